@@ -0,0 +1,292 @@
+package com.crawljax.browser;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.crawljax.core.CrawljaxException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Provider;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps launched browsers warm, so crawlers do not pay the start-up cost of a browser every time.
+ * Browsers are launched in parallel ahead of time, handed out to crawlers, and reset and kept when
+ * a crawler is done with them, so later crawls in the same JVM can reuse them. Browsers that crash
+ * are evicted.
+ * <p>
+ * Set a pool with
+ * {@link com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder#setBrowserPool(BrowserPool)}.
+ * A browser keeps the type, proxy and profile it was launched with when it is handed to another
+ * crawl, so a pool should only be shared by crawls that launch their browsers the same way. The
+ * other settings of the crawl are applied again on acquire, see {@link PooledBrowserBuilder}. Call
+ * {@link #close()} to quit the kept browsers.
+ */
+@ThreadSafe
+public class BrowserPool implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BrowserPool.class);
+
+  private static final String ABOUT_BLANK = "about:blank";
+
+  private final int maxIdle;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final Deque<Idle> idle = new ArrayDeque<>();
+  private final ExecutorService launcher;
+
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Timer waitTime = metrics.timer("wait");
+  private final Counter launched = metrics.counter("launched");
+  private final Counter reused = metrics.counter("reused");
+  private final Counter evicted = metrics.counter("evicted");
+
+  private int launching = 0;
+  private boolean closed = false;
+
+  /**
+   * @param maxIdle the maximum number of browsers to keep when no crawler uses them.
+   */
+  public BrowserPool(int maxIdle) {
+    this.maxIdle = maxIdle;
+    this.launcher = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat("crawljax-browser-pool-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Launches browsers in the background until the given number of browsers is kept or launching.
+   * The browsers are launched by the given provider, so {@link #acquire} hands them out as they are
+   * to the crawl that launched them.
+   *
+   * @param count       the number of browsers to have ready.
+   * @param newBrowsers launches a new browser.
+   */
+  public void prelaunch(int count, Provider<EmbeddedBrowser> newBrowsers) {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      int missing = Math.min(count, maxIdle) - idle.size() - launching;
+      for (int i = 0; i < missing; i++) {
+        launching++;
+        launcher.execute(() -> launchInBackground(newBrowsers));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Hands out a kept browser or, when none is kept, waits for one that is being launched. Only
+   * launches a new browser when none is being launched.
+   *
+   * @param newBrowsers launches a new browser.
+   * @param onReuse     runs on a browser that was not launched by <code>newBrowsers</code>, that is
+   *                    a browser used by a crawler before or launched for another crawl, for
+   *                    example to run the plugins of the current crawl on it.
+   * @return the browser.
+   * @throws CrawljaxException when the thread is interrupted while it waits for a browser.
+   */
+  public EmbeddedBrowser acquire(Provider<EmbeddedBrowser> newBrowsers,
+      Consumer<EmbeddedBrowser> onReuse) {
+    try (Timer.Context ignored = waitTime.time()) {
+      Idle kept = null;
+      lock.lock();
+      try {
+        while (idle.isEmpty() && launching > 0 && !closed) {
+          changed.await();
+        }
+        kept = idle.pollFirst();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CrawljaxException("Interrupted while waiting for a browser", e);
+      } finally {
+        lock.unlock();
+      }
+      if (kept == null) {
+        launched.inc();
+        return newBrowsers.get();
+      }
+      if (kept.launchedBy == null) {
+        reused.inc();
+      }
+      if (kept.launchedBy != newBrowsers) {
+        onReuse.accept(kept.browser);
+      }
+      return kept.browser;
+    }
+  }
+
+  /**
+   * Takes a browser back from a crawler that is done with it. The browser is reset in the
+   * background and kept for the next crawler. It is evicted when it does not respond or when the
+   * pool is full.
+   *
+   * @param browser the browser to return.
+   */
+  public void release(EmbeddedBrowser browser) {
+    lock.lock();
+    try {
+      if (!closed) {
+        launching++;
+        launcher.execute(() -> recycle(browser));
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    quit(browser);
+  }
+
+  /**
+   * Quits the browser instead of keeping it, for example when it crashed.
+   *
+   * @param browser the browser to evict.
+   */
+  public void evict(EmbeddedBrowser browser) {
+    evicted.inc();
+    quit(browser);
+  }
+
+  /**
+   * @return the wait time of {@link #acquire} in the <code>wait</code> timer, and the number of
+   * browsers <code>launched</code>, <code>reused</code> and <code>evicted</code>.
+   */
+  public MetricRegistry getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return the number of browsers kept for the next crawler.
+   */
+  public int getIdleCount() {
+    lock.lock();
+    try {
+      return idle.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Quits all kept browsers. Browsers that are still in use are quit when they are released.
+   */
+  @Override
+  public void close() {
+    Deque<Idle> toQuit;
+    lock.lock();
+    try {
+      closed = true;
+      toQuit = new ArrayDeque<>(idle);
+      idle.clear();
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    for (Idle kept : toQuit) {
+      quit(kept.browser);
+    }
+    launcher.shutdown();
+  }
+
+  private void launchInBackground(Provider<EmbeddedBrowser> newBrowsers) {
+    EmbeddedBrowser browser = null;
+    try {
+      browser = newBrowsers.get();
+      launched.inc();
+    } catch (RuntimeException e) {
+      LOG.warn("Could not launch a browser for the pool: {}", e.getMessage());
+      LOG.debug(e.getMessage(), e);
+    } finally {
+      keep(browser, newBrowsers);
+    }
+  }
+
+  private void recycle(EmbeddedBrowser browser) {
+    boolean healthy = false;
+    try {
+      reset(browser);
+      healthy = true;
+    } catch (RuntimeException e) {
+      LOG.info("Evicting a browser that could not be reset: {}", e.getMessage());
+      evict(browser);
+    } finally {
+      keep(healthy ? browser : null, null);
+    }
+  }
+
+  /**
+   * Stops launching the browser and keeps it, unless the pool is closed or full.
+   *
+   * @param launchedBy the provider that launched the browser, <code>null</code> if the browser was
+   *                   used by a crawler before.
+   */
+  private void keep(EmbeddedBrowser browser, Provider<EmbeddedBrowser> launchedBy) {
+    boolean keep = false;
+    lock.lock();
+    try {
+      launching--;
+      if (browser != null && !closed && idle.size() < maxIdle) {
+        idle.addLast(new Idle(browser, launchedBy));
+        keep = true;
+      }
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (browser != null && !keep) {
+      quit(browser);
+    }
+  }
+
+  /**
+   * Clears the cookies and storage of the last visited site and leaves it, so the next crawl starts
+   * from a clean browser. Fails when the browser does not respond.
+   */
+  private static void reset(EmbeddedBrowser browser) {
+    browser.closeOtherWindows();
+    WebDriver driver = browser.getWebDriver();
+    if (driver == null) {
+      return;
+    }
+    try {
+      driver.manage().deleteAllCookies();
+      browser.executeJavaScript("window.localStorage.clear(); window.sessionStorage.clear();");
+    } catch (RuntimeException e) {
+      LOG.debug("Could not clear the site data of the browser: {}", e.getMessage());
+    }
+    // Fails when the browser crashed.
+    driver.navigate().to(ABOUT_BLANK);
+  }
+
+  private static void quit(EmbeddedBrowser browser) {
+    try {
+      browser.close();
+    } catch (RuntimeException e) {
+      LOG.debug("Could not close a browser: {}", e.getMessage());
+    }
+  }
+
+  private static final class Idle {
+
+    private final EmbeddedBrowser browser;
+    private final Provider<EmbeddedBrowser> launchedBy;
+
+    private Idle(EmbeddedBrowser browser, Provider<EmbeddedBrowser> launchedBy) {
+      this.browser = browser;
+      this.launchedBy = launchedBy;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.crawljax.browser;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.concurrent.Immutable;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The client-side state of a page: its URL, cookies, <code>localStorage</code> and
+ * <code>sessionStorage</code>. Restoring a snapshot loads the URL with the same cookies and storage,
+ * which brings sites that keep their state there back to the same page without replaying the events
+ * that lead to it. In-memory state of the page's scripts is not part of the snapshot, so whether the
+ * restored page is the same state has to be checked.
+ */
+@Immutable
+public final class BrowserSnapshot {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BrowserSnapshot.class);
+
+  private static final Gson GSON = new Gson();
+  private static final Type STORAGE_TYPE =
+      new TypeToken<Map<String, Map<String, String>>>() {
+      }.getType();
+
+  private static final String LOCAL = "local";
+  private static final String SESSION = "session";
+
+  private static final String CAPTURE_STORAGE = "function dump(storage) {"
+      + "  var items = {};"
+      + "  for (var i = 0; i < storage.length; i++) {"
+      + "    var key = storage.key(i);"
+      + "    items[key] = storage.getItem(key);"
+      + "  }"
+      + "  return items;"
+      + "}"
+      + "try {"
+      + "  return JSON.stringify({" + LOCAL + ": dump(window.localStorage), "
+      + SESSION + ": dump(window.sessionStorage)});"
+      + "} catch (e) {"
+      + "  return '{}';"
+      + "}";
+
+  private final URI url;
+  private final ImmutableSet<Cookie> cookies;
+  private final ImmutableMap<String, String> localStorage;
+  private final ImmutableMap<String, String> sessionStorage;
+
+  private BrowserSnapshot(URI url, Set<Cookie> cookies, Map<String, String> localStorage,
+      Map<String, String> sessionStorage) {
+    this.url = url;
+    this.cookies = ImmutableSet.copyOf(cookies);
+    this.localStorage = ImmutableMap.copyOf(localStorage);
+    this.sessionStorage = ImmutableMap.copyOf(sessionStorage);
+  }
+
+  /**
+   * @param browser the browser to take the snapshot of.
+   * @return the snapshot of the current page.
+   * @throws WebDriverException when the browser does not respond.
+   */
+  public static BrowserSnapshot capture(EmbeddedBrowser browser) {
+    WebDriver driver = browser.getWebDriver();
+    URI url = URI.create(browser.getCurrentUrl());
+    Map<String, Map<String, String>> storage =
+        GSON.fromJson(String.valueOf(browser.executeJavaScript(CAPTURE_STORAGE)), STORAGE_TYPE);
+    return new BrowserSnapshot(url, driver.manage().getCookies(),
+        storageOrEmpty(storage, LOCAL), storageOrEmpty(storage, SESSION));
+  }
+
+  private static Map<String, String> storageOrEmpty(Map<String, Map<String, String>> storage,
+      String area) {
+    return storage == null || storage.get(area) == null ? ImmutableMap.of() : storage.get(area);
+  }
+
+  /**
+   * Replaces the cookies and storage of the site with the snapshot and loads its URL. Cookies and
+   * storage can only be set on a page of the same origin, so the URL is loaded twice when the
+   * browser is on another site.
+   *
+   * @param browser the browser to restore the snapshot in.
+   * @throws WebDriverException when the browser does not respond.
+   */
+  public void restore(EmbeddedBrowser browser) {
+    WebDriver driver = browser.getWebDriver();
+    if (!sameOrigin(URI.create(browser.getCurrentUrl()), url)) {
+      browser.goToUrl(url);
+    }
+    driver.manage().deleteAllCookies();
+    for (Cookie cookie : cookies) {
+      try {
+        driver.manage().addCookie(cookie);
+      } catch (WebDriverException e) {
+        LOG.debug("Could not restore cookie {}: {}", cookie.getName(), e.getMessage());
+      }
+    }
+    browser.executeJavaScript(restoreScript(LOCAL + "Storage", localStorage)
+        + restoreScript(SESSION + "Storage", sessionStorage));
+    // Leave the page first, so the URL is loaded fresh even when only its fragment differs.
+    driver.navigate().to("about:blank");
+    browser.goToUrl(url);
+  }
+
+  private static String restoreScript(String storage, Map<String, String> items) {
+    return "window." + storage + ".clear();"
+        + "var items = " + GSON.toJson(items) + ";"
+        + "for (var key in items) { window." + storage + ".setItem(key, items[key]); }";
+  }
+
+  private static boolean sameOrigin(URI current, URI target) {
+    return Objects.equals(current.getScheme(), target.getScheme())
+        && Objects.equals(current.getHost(), target.getHost())
+        && current.getPort() == target.getPort();
+  }
+
+  public URI getUrl() {
+    return url;
+  }
+
+  public ImmutableSet<Cookie> getCookies() {
+    return cookies;
+  }
+
+  public ImmutableMap<String, String> getLocalStorage() {
+    return localStorage;
+  }
+
+  public ImmutableMap<String, String> getSessionStorage() {
+    return sessionStorage;
+  }
+}
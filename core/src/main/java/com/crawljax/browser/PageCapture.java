@@ -0,0 +1,80 @@
+package com.crawljax.browser;
+
+import java.awt.image.BufferedImage;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * A snapshot of the page currently loaded in an {@link EmbeddedBrowser}. The url and the DOM are
+ * fetched once when the capture is taken, the screenshot the first time it is requested. Passing
+ * the capture around instead of the browser avoids fetching the same page source several times
+ * for one state.
+ */
+@NotThreadSafe
+public final class PageCapture {
+
+  private final EmbeddedBrowser browser;
+  private final String url;
+  private final String dom;
+  private BufferedImage screenshot;
+
+  private PageCapture(EmbeddedBrowser browser, String url, String dom) {
+    this.browser = browser;
+    this.url = url;
+    this.dom = dom;
+  }
+
+  /**
+   * @param browser the browser to capture the current page of.
+   * @return a capture of the current url and {@link EmbeddedBrowser#getStrippedDom()}.
+   */
+  public static PageCapture of(EmbeddedBrowser browser) {
+    return new PageCapture(browser, browser.getCurrentUrl(), browser.getStrippedDom());
+  }
+
+  /**
+   * @param browser the browser to capture the current page of.
+   * @param url     the url to record the page under, for example the configured url of the index
+   *                when the browser was redirected.
+   * @return a capture of {@link EmbeddedBrowser#getStrippedDom()} under the given url.
+   */
+  public static PageCapture of(EmbeddedBrowser browser, String url) {
+    return new PageCapture(browser, url, browser.getStrippedDom());
+  }
+
+  /**
+   * @return the browser the page was captured from.
+   */
+  public EmbeddedBrowser getBrowser() {
+    return browser;
+  }
+
+  /**
+   * @return the url of the page.
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * @return the DOM of the page, including the iframe content.
+   */
+  public String getDom() {
+    return dom;
+  }
+
+  /**
+   * Takes the screenshot of the page the first time it is called and returns the same image
+   * afterwards.
+   *
+   * @param scrollTimeout the scroll timeout used when the screenshot still has to be taken.
+   * @return the screenshot of the page.
+   * @see EmbeddedBrowser#getScreenShotAsBufferedImage(int)
+   */
+  public BufferedImage getScreenshot(int scrollTimeout) {
+    if (screenshot == null) {
+      screenshot = browser.getScreenShotAsBufferedImage(scrollTimeout);
+    }
+    return screenshot;
+  }
+
+}
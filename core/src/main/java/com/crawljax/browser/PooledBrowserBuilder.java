@@ -0,0 +1,58 @@
+package com.crawljax.browser;
+
+import com.crawljax.core.configuration.BrowserConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.plugin.Plugins;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Takes the browsers of a crawl from the configured {@link BrowserPool}. Taking the first browser
+ * of the crawl starts launching the browsers of the other crawlers, while the index is crawled.
+ * <p>
+ * Every browser that was not launched for the crawl is first configured for it by
+ * {@link WebDriverBrowserBuilder#configure}, which applies the crawl rules, the browser options and
+ * the metrics registry of the crawl, and then the browser created plugins of the crawl run on it.
+ * Browsers of a custom builder are only handed over with the plugins run, so a pool should only be
+ * shared by crawls with the same custom builder.
+ */
+@Singleton
+public class PooledBrowserBuilder implements Provider<EmbeddedBrowser> {
+
+  private final BrowserPool pool;
+  private final Provider<EmbeddedBrowser> newBrowsers;
+  private final Consumer<EmbeddedBrowser> onReuse;
+  private final int numberOfBrowsers;
+  private final AtomicBoolean prelaunched = new AtomicBoolean();
+
+  @Inject
+  public PooledBrowserBuilder(CrawljaxConfiguration configuration,
+      WebDriverBrowserBuilder defaultBuilder, Plugins plugins) {
+    BrowserConfiguration browserConfig = configuration.getBrowserConfig();
+    this.pool = configuration.getBrowserPool();
+    Provider<EmbeddedBrowser> builder =
+        browserConfig.isDefaultBuilder() ? defaultBuilder : browserConfig.getBrowserBuilder();
+    // A provider of this crawl only, so the pool tells apart the browsers it launched. The builder
+    // of the configuration can be shared by several crawls.
+    this.newBrowsers = builder::get;
+    this.onReuse = browserConfig.isDefaultBuilder()
+        ? browser -> {
+          defaultBuilder.configure(browser);
+          plugins.runOnBrowserCreatedPlugins(browser);
+        }
+        : plugins::runOnBrowserCreatedPlugins;
+    this.numberOfBrowsers = browserConfig.getNumberOfBrowsers();
+  }
+
+  @Override
+  public EmbeddedBrowser get() {
+    EmbeddedBrowser browser = pool.acquire(newBrowsers, onReuse);
+    if (prelaunched.compareAndSet(false, true)) {
+      pool.prelaunch(numberOfBrowsers - 1, newBrowsers);
+    }
+    return browser;
+  }
+}
@@ -0,0 +1,195 @@
+package com.crawljax.browser;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.v108.network.Network;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits until the page in a browser is quiet: its document is loaded, its DOM has not changed for
+ * a while and, in Chrome, it has no more than a few requests in flight. The DOM is watched by a
+ * <code>MutationObserver</code> installed in every document, the network through the DevTools
+ * protocol.
+ * <p>
+ * The time it took the page to settle is recorded in the <code>settle_after_event</code> and
+ * <code>settle_after_reload</code> timers, and the waits that reached their upper bound in the
+ * <code>settle_timeouts</code> counter.
+ */
+class QuiescenceWaiter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(QuiescenceWaiter.class);
+
+  /**
+   * How long the page has to be quiet.
+   */
+  static final long QUIET_PERIOD_MS = 200;
+
+  private static final long POLLING_TIME_MS = 50;
+
+  /**
+   * Returns the milliseconds since the DOM last changed, or <code>0</code> while the document is
+   * loading. The observer is installed on the first call in a document.
+   */
+  private static final String DOM_IDLE_SCRIPT = "var quiet = window.__crawljaxQuiet;"
+      + "if (!quiet) {"
+      + "  quiet = window.__crawljaxQuiet = {last: Date.now()};"
+      + "  new MutationObserver(function() { quiet.last = Date.now(); }).observe(document,"
+      + "      {childList: true, subtree: true, attributes: true, characterData: true});"
+      + "}"
+      + "return document.readyState === 'complete' ? Date.now() - quiet.last : 0;";
+
+  private final WebDriver driver;
+  private final long quietPeriodMs;
+  private final NetworkMonitor network;
+  private final Timer afterEvent;
+  private final Timer afterReload;
+  private final Counter timeouts;
+
+  QuiescenceWaiter(WebDriver driver, MetricRegistry registry) {
+    this(driver, registry, QUIET_PERIOD_MS, NetworkMonitor.attach(driver));
+  }
+
+  @VisibleForTesting
+  QuiescenceWaiter(WebDriver driver, MetricRegistry registry, long quietPeriodMs,
+      NetworkMonitor network) {
+    this.driver = driver;
+    this.quietPeriodMs = quietPeriodMs;
+    this.network = network;
+    this.afterEvent = registry.timer(MetricsModule.EVENTS_PREFIX + "settle_after_event");
+    this.afterReload = registry.timer(MetricsModule.EVENTS_PREFIX + "settle_after_reload");
+    this.timeouts = registry.counter(MetricsModule.EVENTS_PREFIX + "settle_timeouts");
+  }
+
+  /**
+   * @param registry the registry to record the settle times in.
+   * @return a waiter for the same browser and network, recording in the given registry.
+   */
+  QuiescenceWaiter recordingIn(MetricRegistry registry) {
+    return new QuiescenceWaiter(driver, registry, quietPeriodMs, network);
+  }
+
+  /**
+   * @param maxWaitMs the longest time to wait.
+   * @throws InterruptedException when interrupted during the wait.
+   */
+  void afterEvent(long maxWaitMs) throws InterruptedException {
+    await(maxWaitMs, afterEvent);
+  }
+
+  /**
+   * @param maxWaitMs the longest time to wait.
+   * @throws InterruptedException when interrupted during the wait.
+   */
+  void afterReload(long maxWaitMs) throws InterruptedException {
+    await(maxWaitMs, afterReload);
+  }
+
+  private void await(long maxWaitMs, Timer settleTime) throws InterruptedException {
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+    long now = start;
+    while (now < deadline) {
+      long quietFor = Math.min(TimeUnit.NANOSECONDS.toMillis(now - start), domIdleMs());
+      if (network != null) {
+        quietFor = Math.min(quietFor, network.idleMs(now));
+      }
+      if (quietFor >= quietPeriodMs) {
+        settleTime.update(now - start, TimeUnit.NANOSECONDS);
+        return;
+      }
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - now);
+      Thread.sleep(Math.max(1, Math.min(POLLING_TIME_MS, remaining)));
+      now = System.nanoTime();
+    }
+    timeouts.inc();
+    settleTime.update(now - start, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the milliseconds since the DOM last changed. Counts as busy when the DOM can not be
+   * read, for example while an alert is open.
+   */
+  private long domIdleMs() {
+    try {
+      Object idle = ((JavascriptExecutor) driver).executeScript(DOM_IDLE_SCRIPT);
+      return idle instanceof Number ? ((Number) idle).longValue() : 0;
+    } catch (WebDriverException e) {
+      LOG.debug("Could not check whether the DOM is idle: {}", e.getMessage());
+      return 0;
+    }
+  }
+
+  /**
+   * Tracks the requests in flight of a Chrome browser. Long polling and streaming requests never
+   * finish, so like puppeteer's <code>networkidle2</code> a few open requests still count as idle.
+   */
+  static class NetworkMonitor {
+
+    static final int MAX_OPEN_REQUESTS = 2;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile long lastActivity = System.nanoTime();
+
+    /**
+     * @return a monitor listening to the network of the browser or <code>null</code> if the
+     * browser has no DevTools.
+     */
+    static NetworkMonitor attach(WebDriver driver) {
+      if (!(driver instanceof ChromeDriver)) {
+        return null;
+      }
+      try {
+        DevTools devTools = ((ChromeDriver) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+        NetworkMonitor monitor = new NetworkMonitor();
+        devTools.addListener(Network.requestWillBeSent(),
+            request -> monitor.started(request.getRequestId().toString()));
+        devTools.addListener(Network.loadingFinished(),
+            loaded -> monitor.finished(loaded.getRequestId().toString()));
+        devTools.addListener(Network.loadingFailed(),
+            failed -> monitor.finished(failed.getRequestId().toString()));
+        devTools.send(Network.enable(Optional.empty(), Optional.empty(), Optional.empty()));
+        return monitor;
+      } catch (RuntimeException e) {
+        LOG.info("Could not watch the network through DevTools, only watching the DOM: {}",
+            e.getMessage());
+        return null;
+      }
+    }
+
+    void started(String requestId) {
+      inFlight.add(requestId);
+      lastActivity = System.nanoTime();
+    }
+
+    void finished(String requestId) {
+      inFlight.remove(requestId);
+      lastActivity = System.nanoTime();
+    }
+
+    /**
+     * @param now the current {@link System#nanoTime()}.
+     * @return the milliseconds since a request started or finished, or <code>0</code> while too
+     * many requests are in flight.
+     */
+    long idleMs(long now) {
+      if (inFlight.size() > MAX_OPEN_REQUESTS) {
+        return 0;
+      }
+      return TimeUnit.NANOSECONDS.toMillis(Math.max(0, now - lastActivity));
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.crawljax.browser;
 
 import com.assertthat.selenium_shutterbug.core.Shutterbug;
 import com.assertthat.selenium_shutterbug.utils.web.ScrollStrategy;
+import com.codahale.metrics.MetricRegistry;
 import com.crawljax.core.CrawljaxException;
 import com.crawljax.core.configuration.AcceptAllFramesChecker;
 import com.crawljax.core.configuration.IgnoreFrameChecker;
@@ -14,8 +15,10 @@ import com.crawljax.forms.InputValue;
 import com.crawljax.forms.RandomInputValueGenerator;
 import com.crawljax.util.DomUtils;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.io.Files;
+import com.google.common.io.Resources;
 import io.github.bonigarcia.wdm.WebDriverManager;
 import java.awt.Color;
 import java.awt.Graphics2D;
@@ -27,6 +30,7 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
@@ -34,7 +38,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
 import org.openqa.selenium.ElementNotInteractableException;
@@ -73,7 +76,12 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
 
   private static final Logger LOGGER =
       LoggerFactory.getLogger(WebDriverBackedEmbeddedBrowser.class);
-  private final ImmutableSortedSet<String> filterAttributes;
+  private static final Pattern SCRIPT_PATTERN =
+      Pattern.compile("<SCRIPT(.*?)</SCRIPT>", Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+  private static final Pattern XML_INSTRUCTION_PATTERN = Pattern.compile("<\\?xml:(.*?)>");
+  private static final String CAPTURE_DOM_SCRIPT = loadCaptureDomScript();
+  private ImmutableSortedSet<String> filterAttributes;
+  private ImmutableList<Pattern> filterAttributePatterns;
   private final WebDriver browser;
   private int pixelDensity = -1;
   /**
@@ -83,6 +91,15 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
   private long crawlWaitEvent;
   private long crawlWaitReload;
   private IgnoreFrameChecker ignoreFrameChecker = new AcceptAllFramesChecker();
+  /**
+   * Serialize the DOM in the browser instead of fetching the page source of every frame.
+   */
+  private boolean captureDomInBrowser = false;
+  /**
+   * Waits until the page is quiet after events and reloads, <code>null</code> to always wait the
+   * full period.
+   */
+  private QuiescenceWaiter quiescenceWaiter = null;
 
   /**
    * Constructor without configuration values.
@@ -92,6 +109,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
   private WebDriverBackedEmbeddedBrowser(WebDriver driver) {
     this.browser = driver;
     filterAttributes = ImmutableSortedSet.of();
+    filterAttributePatterns = ImmutableList.of();
   }
 
   /**
@@ -107,6 +125,7 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
       long crawlWaitReload, long crawlWaitEvent) {
     this.browser = driver;
     this.filterAttributes = Preconditions.checkNotNull(filterAttributes);
+    this.filterAttributePatterns = compileFilterAttributePatterns(filterAttributes);
     this.crawlWaitEvent = crawlWaitEvent;
     this.crawlWaitReload = crawlWaitReload;
   }
@@ -259,7 +278,11 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
   public void goToUrl(URI url) {
     try {
       browser.navigate().to(url.toString());
-      Thread.sleep(this.crawlWaitReload);
+      if (quiescenceWaiter == null) {
+        Thread.sleep(this.crawlWaitReload);
+      } else {
+        quiescenceWaiter.afterReload(this.crawlWaitReload);
+      }
       handlePopups();
     } catch (WebDriverException e) {
       throwIfConnectionException(e);
@@ -332,7 +355,11 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
         return false;
     }
 
-    Thread.sleep(this.crawlWaitEvent);
+    if (quiescenceWaiter == null) {
+      Thread.sleep(this.crawlWaitEvent);
+    } else {
+      quiescenceWaiter.afterEvent(this.crawlWaitEvent);
+    }
     return true;
   }
 
@@ -365,6 +392,14 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
   public String getStrippedDom() {
 
     try {
+      if (captureDomInBrowser && ignoreFrameChecker instanceof AcceptAllFramesChecker) {
+        String dom = getStrippedDomFromBrowser();
+        if (dom != null) {
+          LOGGER.trace(dom);
+          return dom;
+        }
+        LOGGER.debug("Could not serialize the DOM in the browser, switching to the frames");
+      }
 //			String dom = toUniformDOM(DomUtils.getDocumentToString(getDomTreeWithFrames_GoldStandards()));
       String dom = toUniformDOM(DomUtils.getDocumentToString(getDomTreeWithFrames()));
       LOGGER.trace(dom);
@@ -375,6 +410,27 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
     }
   }
 
+  /**
+   * Serializes the DOM, including the same-origin frame content, in the browser with a single
+   * script that also removes the scripts and the filtered attributes. The script writes the DOM
+   * in the format {@link DomUtils#getDocumentToString(Document)} gives the DOM built from the
+   * page sources, so the result is used as is.
+   *
+   * @return the stripped DOM or <code>null</code> if the browser could not serialize it.
+   */
+  private String getStrippedDomFromBrowser() {
+    Object html;
+    try {
+      html = ((JavascriptExecutor) browser).executeScript(CAPTURE_DOM_SCRIPT,
+          filterAttributes.asList(), System.lineSeparator());
+    } catch (WebDriverException e) {
+      throwIfConnectionException(e);
+      LOGGER.debug("Could not execute the DOM capture script", e);
+      return null;
+    }
+    return html instanceof String ? (String) html : null;
+  }
+
   @Override
   public String getUnStrippedDom() {
     return browser.getPageSource();
@@ -385,16 +441,8 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
    * @return uniform version of dom with predefined attributes stripped
    */
   private String toUniformDOM(String html) {
-
-    Pattern p = Pattern.compile("<SCRIPT(.*?)</SCRIPT>",
-        Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-    Matcher m = p.matcher(html);
-    String htmlFormatted = m.replaceAll("");
-
-    p = Pattern.compile("<\\?xml:(.*?)>");
-    m = p.matcher(htmlFormatted);
-    htmlFormatted = m.replaceAll("");
-
+    String htmlFormatted = SCRIPT_PATTERN.matcher(html).replaceAll("");
+    htmlFormatted = XML_INSTRUCTION_PATTERN.matcher(htmlFormatted).replaceAll("");
     htmlFormatted = filterAttributes(htmlFormatted);
     return htmlFormatted;
   }
@@ -407,15 +455,31 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
    */
   private String filterAttributes(String html) {
     String filteredHtml = html;
-    for (String attribute : this.filterAttributes) {
-      String regex = "\\s" + attribute + "=\"[^\"]*\"";
-      Pattern p = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-      Matcher m = p.matcher(html);
-      filteredHtml = m.replaceAll("");
+    for (Pattern pattern : filterAttributePatterns) {
+      filteredHtml = pattern.matcher(filteredHtml).replaceAll("");
     }
     return filteredHtml;
   }
 
+  private static ImmutableList<Pattern> compileFilterAttributePatterns(
+      ImmutableSortedSet<String> filterAttributes) {
+    ImmutableList.Builder<Pattern> patterns = ImmutableList.builder();
+    for (String attribute : filterAttributes) {
+      patterns.add(Pattern.compile("\\s" + attribute + "=\"[^\"]*\"", Pattern.CASE_INSENSITIVE));
+    }
+    return patterns.build();
+  }
+
+  private static String loadCaptureDomScript() {
+    try {
+      return Resources.toString(
+          Resources.getResource(WebDriverBackedEmbeddedBrowser.class, "captureDom.js"),
+          StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not load the DOM capture script", e);
+    }
+  }
+
   @Override
   public void goBack() {
     try {
@@ -871,21 +935,21 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
   /**
    * @return the period to wait after an event.
    */
-  private long getCrawlWaitEvent() {
+  long getCrawlWaitEvent() {
     return crawlWaitEvent;
   }
 
   /**
    * @return the list of attributes to be filtered from DOM.
    */
-  private ImmutableSortedSet<String> getFilterAttributes() {
+  ImmutableSortedSet<String> getFilterAttributes() {
     return filterAttributes;
   }
 
   /**
    * @return the period to wait after a reload.
    */
-  private long getCrawlWaitReload() {
+  long getCrawlWaitReload() {
     return crawlWaitReload;
   }
 
@@ -1052,6 +1116,28 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
     return exception instanceof ElementNotInteractableException;
   }
 
+  /**
+   * @param filterAttributes the attributes to be filtered from DOM.
+   */
+  public void setFilterAttributes(ImmutableSortedSet<String> filterAttributes) {
+    this.filterAttributes = Preconditions.checkNotNull(filterAttributes);
+    this.filterAttributePatterns = compileFilterAttributePatterns(filterAttributes);
+  }
+
+  /**
+   * @param crawlWaitReload the period to wait after a reload.
+   */
+  public void setCrawlWaitReload(long crawlWaitReload) {
+    this.crawlWaitReload = crawlWaitReload;
+  }
+
+  /**
+   * @param crawlWaitEvent the period to wait after an event is fired.
+   */
+  public void setCrawlWaitEvent(long crawlWaitEvent) {
+    this.crawlWaitEvent = crawlWaitEvent;
+  }
+
   public void setPixelDensity(int pixelDensity) {
     this.pixelDensity = pixelDensity;
   }
@@ -1063,4 +1149,47 @@ public final class WebDriverBackedEmbeddedBrowser implements EmbeddedBrowser {
   public void setUSE_CDP(boolean USE_CDP) {
     this.USE_CDP = USE_CDP;
   }
+
+  public boolean isCaptureDomInBrowser() {
+    return captureDomInBrowser;
+  }
+
+  /**
+   * Enables/Disables serializing the DOM with a single script in the browser. Frames from another
+   * origin can not be read by the script, for those pages the frames are still fetched one by one.
+   *
+   * @param captureDomInBrowser
+   */
+  public void setCaptureDomInBrowser(boolean captureDomInBrowser) {
+    this.captureDomInBrowser = captureDomInBrowser;
+  }
+
+  /**
+   * Wait after events and reloads until the page is quiet instead of the full period, which
+   * becomes the longest time to wait. The settle times are recorded in the registry.
+   *
+   * @param registry the registry to record the settle times in.
+   */
+  public void enableAdaptiveWaiting(MetricRegistry registry) {
+    if (quiescenceWaiter == null) {
+      this.quiescenceWaiter = new QuiescenceWaiter(browser, registry);
+    } else {
+      // Keeps listening to the network of the browser
+      this.quiescenceWaiter = quiescenceWaiter.recordingIn(registry);
+    }
+  }
+
+  /**
+   * Always wait the full period after events and reloads.
+   */
+  public void disableAdaptiveWaiting() {
+    this.quiescenceWaiter = null;
+  }
+
+  /**
+   * @return whether the browser waits until the page is quiet after events and reloads.
+   */
+  boolean isAdaptiveWaiting() {
+    return quiescenceWaiter != null;
+  }
 }
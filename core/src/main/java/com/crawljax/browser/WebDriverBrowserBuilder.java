@@ -1,5 +1,7 @@
 package com.crawljax.browser;
 
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.configuration.BrowserOptions;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.configuration.ProxyConfiguration.ProxyType;
 import com.crawljax.core.plugin.Plugins;
@@ -27,11 +29,18 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
   private static final boolean SYSTEM_OFFLINE = false;
   private final CrawljaxConfiguration configuration;
   private final Plugins plugins;
+  private final MetricRegistry registry;
 
-  @Inject
   public WebDriverBrowserBuilder(CrawljaxConfiguration configuration, Plugins plugins) {
+    this(configuration, plugins, new MetricRegistry());
+  }
+
+  @Inject
+  public WebDriverBrowserBuilder(CrawljaxConfiguration configuration, Plugins plugins,
+      MetricRegistry registry) {
     this.configuration = configuration;
     this.plugins = plugins;
+    this.registry = registry;
   }
 
   /**
@@ -84,26 +93,52 @@ public class WebDriverBrowserBuilder implements Provider<EmbeddedBrowser> {
       throw e;
     }
 
-    /* for Retina display. */
     if (browser instanceof WebDriverBackedEmbeddedBrowser) {
-      int pixelDensity =
-          this.configuration.getBrowserConfig().getBrowserOptions().getPixelDensity();
-      if (pixelDensity != -1) {
-        ((WebDriverBackedEmbeddedBrowser) browser).setPixelDensity(pixelDensity);
-      }
-
-      boolean USE_CDP = this.configuration.getBrowserConfig().getBrowserOptions().isUSE_CDP();
-
-      if ((browserType == EmbeddedBrowser.BrowserType.CHROME_HEADLESS
-          || browserType == EmbeddedBrowser.BrowserType.CHROME) && USE_CDP) {
-        ((WebDriverBackedEmbeddedBrowser) browser).setUSE_CDP(true);
-      }
+      applyBrowserOptions((WebDriverBackedEmbeddedBrowser) browser);
     }
 
     plugins.runOnBrowserCreatedPlugins(browser);
     return browser;
   }
 
+  /**
+   * Applies the settings of this crawl to a browser launched for another crawl: the attributes to
+   * filter and the waits of the crawl rules, the browser options and the registry adaptive waiting
+   * records in. The settings the browser was launched with, such as its proxy, are kept.
+   *
+   * @param browser the browser to configure.
+   */
+  public void configure(EmbeddedBrowser browser) {
+    if (!(browser instanceof WebDriverBackedEmbeddedBrowser)) {
+      return;
+    }
+    WebDriverBackedEmbeddedBrowser webDriverBrowser = (WebDriverBackedEmbeddedBrowser) browser;
+    webDriverBrowser.setFilterAttributes(
+        configuration.getCrawlRules().getPreCrawlConfig().getFilterAttributeNames());
+    webDriverBrowser.setCrawlWaitReload(configuration.getCrawlRules().getWaitAfterReloadUrl());
+    webDriverBrowser.setCrawlWaitEvent(configuration.getCrawlRules().getWaitAfterEvent());
+    applyBrowserOptions(webDriverBrowser);
+  }
+
+  private void applyBrowserOptions(WebDriverBackedEmbeddedBrowser browser) {
+    BrowserOptions options = this.configuration.getBrowserConfig().getBrowserOptions();
+    /* for Retina display. */
+    browser.setPixelDensity(options.getPixelDensity());
+
+    EmbeddedBrowser.BrowserType browserType =
+        this.configuration.getBrowserConfig().getBrowserType();
+    browser.setUSE_CDP((browserType == EmbeddedBrowser.BrowserType.CHROME_HEADLESS
+        || browserType == EmbeddedBrowser.BrowserType.CHROME) && options.isUSE_CDP());
+
+    browser.setCaptureDomInBrowser(options.isCaptureDomInBrowser());
+
+    if (options.isAdaptiveWaiting()) {
+      browser.enableAdaptiveWaiting(registry);
+    } else {
+      browser.disableAdaptiveWaiting();
+    }
+  }
+
   private EmbeddedBrowser newFirefoxBrowser(ImmutableSortedSet<String> filterAttributes,
       long crawlWaitReload, long crawlWaitEvent, boolean headless) {
 
@@ -25,7 +25,7 @@ public class CandidateElement {
 
   private final Identification identification;
 
-  private final Element element;
+  private volatile Element element;
   private final ImmutableList<FormInput> formInputs;
   private final String relatedFrame;
   transient Fragment closestFragment = null;
@@ -159,6 +159,14 @@ public class CandidateElement {
     return element;
   }
 
+  /**
+   * @param element the same element in another copy of the DOM, such as the DOM of a state once
+   *                it is segmented.
+   */
+  public void setElement(Element element) {
+    this.element = element;
+  }
+
   /**
    * @return list with related formInputs
    */
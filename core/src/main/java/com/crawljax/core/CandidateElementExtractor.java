@@ -119,7 +119,7 @@ public class CandidateElementExtractor {
 
     try {
 //			Document dom = DomUtils.asDocument(browser.getStrippedDomWithoutIframeContent());
-      Document dom = currentState.getDocument();
+      Document dom = currentState.getCandidateDocument();
       extractElements(dom, results, "");
     } catch (IOException e) {
       LOG.error(e.getMessage(), e);
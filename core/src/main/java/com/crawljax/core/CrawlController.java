@@ -7,8 +7,14 @@ import com.crawljax.core.plugin.Plugins;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.di.CrawlSessionProvider;
 import com.crawljax.forms.FormInputValueHelper;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -49,6 +55,10 @@ public class CrawlController implements Callable<CrawlSession> {
 
   private final ExitNotifier exitNotifier;
 
+  private final List<Future<Void>> consumers = new ArrayList<>();
+
+  private ScheduledFuture<?> timeLimit;
+
   private ExitStatus exitReason;
 
   @Inject
@@ -102,25 +112,18 @@ public class CrawlController implements Callable<CrawlSession> {
     if (maximumCrawlTime == 0) {
       return;
     }
-    executor.submit(() -> {
-      try {
-        LOG.debug("Waiting {} before killing the crawler", maximumCrawlTime);
-        Thread.sleep(maximumCrawlTime);
-        LOG.info("Time is up! Shutting down...");
-        exitNotifier.signalTimeIsUp();
-      } catch (InterruptedException e) {
-        LOG.debug("Crawler finished before maximum crawl time exceeded");
-      }
-
-    });
-
+    LOG.debug("Waiting {} before killing the crawler", maximumCrawlTime);
+    timeLimit = CrawlExecutors.timer().schedule(() -> {
+      LOG.info("Time is up! Shutting down...");
+      exitNotifier.signalTimeIsUp();
+    }, maximumCrawlTime, TimeUnit.MILLISECONDS);
   }
 
   private void executeConsumers(CrawlTaskConsumer firstConsumer) {
     LOG.debug("Starting {} consumers", config.getBrowserConfig().getNumberOfBrowsers());
-    executor.submit(firstConsumer);
+    consumers.add(executor.submit(firstConsumer));
     for (int i = 1; i < config.getBrowserConfig().getNumberOfBrowsers(); i++) {
-      executor.submit(consumerFactory.get());
+      consumers.add(executor.submit(consumerFactory.get()));
     }
     try {
       exitReason = exitNotifier.awaitTermination();
@@ -134,12 +137,25 @@ public class CrawlController implements Callable<CrawlSession> {
     }
   }
 
+  /**
+   * Cancels the time limit and all consumers, and waits for the consumers to stop. Consumers close
+   * their browser when interrupted.
+   */
   private void shutDown() {
     LOG.info("Received shutdown notice. Reason is {}", exitReason);
+    if (timeLimit != null) {
+      timeLimit.cancel(false);
+    }
+    for (Future<Void> consumer : consumers) {
+      consumer.cancel(true);
+    }
     executor.shutdownNow();
     try {
       LOG.debug("Waiting for task consumers to stop...");
-      executor.awaitTermination(15, TimeUnit.SECONDS);
+      if (!executor.awaitTermination(config.getShutdownTimeout(), TimeUnit.MILLISECONDS)) {
+        LOG.warn("Task consumers did not stop within {} ms", config.getShutdownTimeout());
+      }
+      logConsumerFailures();
     } catch (InterruptedException e) {
       LOG.warn("Interrupted before being able to shut down executor pool", e);
       exitReason = ExitStatus.ERROR;
@@ -156,6 +172,21 @@ public class CrawlController implements Callable<CrawlSession> {
     LOG.debug("terminated");
   }
 
+  private void logConsumerFailures() throws InterruptedException {
+    for (Future<Void> consumer : consumers) {
+      if (!consumer.isDone()) {
+        continue;
+      }
+      try {
+        consumer.get();
+      } catch (CancellationException e) {
+        LOG.debug("Consumer was cancelled");
+      } catch (ExecutionException e) {
+        LOG.error("A task consumer failed: {}", e.getCause().getMessage(), e.getCause());
+      }
+    }
+  }
+
   void stop() {
     exitNotifier.stop();
   }
@@ -0,0 +1,66 @@
+package com.crawljax.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The executors the crawl runs its tasks on.
+ */
+public final class CrawlExecutors {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CrawlExecutors.class);
+
+  private CrawlExecutors() {
+  }
+
+  /**
+   * @param virtualThreads whether to start a virtual thread per task. Falls back to a cached
+   *                       thread pool when the runtime has no virtual threads.
+   * @return an executor for the consumers of one crawl.
+   */
+  public static ExecutorService newConsumerExecutor(boolean virtualThreads) {
+    if (virtualThreads) {
+      try {
+        // Looked up reflectively, so the library keeps running on runtimes before Java 21.
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+      } catch (NoSuchMethodException e) {
+        LOG.warn("Virtual threads are not available on Java {}. Using a thread pool instead.",
+            System.getProperty("java.version"));
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        LOG.warn("Could not create a virtual thread executor. Using a thread pool instead.", e);
+      }
+    }
+    return Executors.newCachedThreadPool();
+  }
+
+  /**
+   * @return a scheduler for timers, like the maximum crawl time. It is shared by all crawls in the
+   * JVM and runs on a single daemon thread, so scheduled tasks should be short. Cancelled tasks are
+   * removed right away, so they do not keep a finished crawl reachable until their delay expires.
+   */
+  public static ScheduledExecutorService timer() {
+    return TimerHolder.TIMER;
+  }
+
+  private static final class TimerHolder {
+
+    private static final ScheduledExecutorService TIMER = newTimer();
+
+    private static ScheduledExecutorService newTimer() {
+      ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+          new ThreadFactoryBuilder()
+              .setNameFormat("crawljax-timer-%d")
+              .setDaemon(true)
+              .build());
+      timer.setRemoveOnCancelPolicy(true);
+      return timer;
+    }
+  }
+}
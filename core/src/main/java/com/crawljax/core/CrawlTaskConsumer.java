@@ -54,6 +54,8 @@ public class CrawlTaskConsumer implements Callable<Void> {
     } catch (RuntimeException e) {
       LOG.error("Unexpected error " + e.getMessage(), e);
       throw e;
+    } finally {
+      candidates.removeConsumer();
     }
     return null;
   }
@@ -64,6 +66,7 @@ public class CrawlTaskConsumer implements Callable<Void> {
       StateVertex crawlTask = null;
 
       if (crawler.getCrawlRules().isDelayNearDuplicateCrawling()) {
+        crawler.awaitFragmentation();
         crawlTask = candidates.awaitNewTask(crawler.getContext().getCurrentState(),
             crawler.getOnUrlSet(), crawler.getContext().getFragmentManager());
         if (crawlTask == null) {
@@ -0,0 +1,230 @@
+package com.crawljax.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Schedules the ids of the states that still have candidate actions to fire. A state is scheduled
+ * at most once. States are handed out round robin: taking a state puts it back at the end of the
+ * schedule until it is removed. For the {@code OLDEST_FIRST} crawl priority mode the state with
+ * the lowest id can be taken instead, and for locality-aware scheduling the state that is cheapest
+ * to reach.
+ * <p>
+ * Adding, taking, rescheduling and removing a state are O(log n). Taking the cheapest state scores
+ * at most a given number of states at the head of the schedule. Looking up whether a state is
+ * scheduled and the number of scheduled states are O(1).
+ */
+@ThreadSafe
+final class CrawlTaskScheduler {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+
+  private final Map<Integer, Long> turnById = new ConcurrentHashMap<>();
+  private final NavigableMap<Long, Integer> idByTurn = new ConcurrentSkipListMap<>();
+  private final NavigableSet<Integer> idsByAge = new ConcurrentSkipListSet<>();
+  private final Set<Integer> stateIds = Collections.unmodifiableSet(turnById.keySet());
+
+  private long nextTurn = 0;
+
+  /**
+   * Schedules the state at the end of the schedule, unless it is already scheduled, in which case
+   * it keeps its place.
+   *
+   * @param id the id of the state.
+   */
+  void add(int id) {
+    lock.lock();
+    try {
+      if (!turnById.containsKey(id)) {
+        schedule(id);
+        idsByAge.add(id);
+        notEmpty.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the state at the head of the schedule and puts it back at the end. Blocks until a state
+   * is scheduled.
+   *
+   * @return the id of the state.
+   * @throws InterruptedException when interrupted while waiting.
+   */
+  int take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (idByTurn.isEmpty()) {
+        notEmpty.await();
+      }
+      int id = idByTurn.firstEntry().getValue();
+      reschedule(id);
+      return id;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the scheduled state with the lowest id and puts it back at the end of the schedule.
+   * Blocks until a state is scheduled.
+   *
+   * @return the id of the state.
+   * @throws InterruptedException when interrupted while waiting.
+   */
+  int takeOldest() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (idsByAge.isEmpty()) {
+        notEmpty.await();
+      }
+      int id = idsByAge.first();
+      reschedule(id);
+      return id;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the given state, if it is scheduled, and puts it back at the end of the schedule.
+   *
+   * @param id the id of the state.
+   * @return whether the state was scheduled.
+   */
+  boolean takeIfScheduled(int id) {
+    lock.lock();
+    try {
+      if (!turnById.containsKey(id)) {
+        return false;
+      }
+      reschedule(id);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the first state in the schedule that matches the filter and puts it back at the end of
+   * the schedule. States before it keep their place.
+   *
+   * @param filter the filter the state has to match.
+   * @return the id of the state or <code>null</code> if no scheduled state matches.
+   */
+  Integer takeFirstMatching(IntPredicate filter) {
+    lock.lock();
+    try {
+      for (int id : idByTurn.values()) {
+        if (filter.test(id)) {
+          reschedule(id);
+          return id;
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the state with the lowest cost among the first states of the schedule and puts it back
+   * at the end of the schedule. Ties go to the state that is first in the schedule. Blocks until a
+   * state is scheduled.
+   *
+   * @param cost  the cost of taking a state, by id. A cost of 0 ends the search early.
+   * @param limit the number of states at the head of the schedule to score.
+   * @return the id of the state.
+   * @throws InterruptedException when interrupted while waiting.
+   */
+  int takeCheapest(IntToLongFunction cost, int limit) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (idByTurn.isEmpty()) {
+        notEmpty.await();
+      }
+      int cheapest = idByTurn.firstEntry().getValue();
+      long lowest = Long.MAX_VALUE;
+      int scored = 0;
+      for (int id : idByTurn.values()) {
+        if (scored++ == limit) {
+          break;
+        }
+        long idCost = cost.applyAsLong(id);
+        if (idCost < lowest) {
+          cheapest = id;
+          lowest = idCost;
+          if (idCost == 0) {
+            break;
+          }
+        }
+      }
+      reschedule(cheapest);
+      return cheapest;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param id the id of the state to remove from the schedule.
+   * @return whether the state was scheduled.
+   */
+  boolean remove(int id) {
+    lock.lock();
+    try {
+      Long turn = turnById.remove(id);
+      if (turn == null) {
+        return false;
+      }
+      idByTurn.remove(turn);
+      idsByAge.remove(id);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  boolean contains(int id) {
+    return turnById.containsKey(id);
+  }
+
+  boolean isEmpty() {
+    return turnById.isEmpty();
+  }
+
+  int size() {
+    return turnById.size();
+  }
+
+  /**
+   * @return a read-only, live view of the ids of the scheduled states.
+   */
+  Set<Integer> getStateIds() {
+    return stateIds;
+  }
+
+  private void reschedule(int id) {
+    idByTurn.remove(turnById.get(id));
+    schedule(id);
+  }
+
+  private void schedule(int id) {
+    long turn = nextTurn++;
+    turnById.put(id, turn);
+    idByTurn.put(turn, id);
+  }
+}
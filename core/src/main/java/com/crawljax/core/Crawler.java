@@ -1,6 +1,9 @@
 package com.crawljax.core;
 
+import com.crawljax.browser.BrowserPool;
+import com.crawljax.browser.BrowserSnapshot;
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.condition.browserwaiter.WaitConditionChecker;
 import com.crawljax.core.configuration.CrawlRules;
 import com.crawljax.core.configuration.CrawlScope;
@@ -24,6 +27,7 @@ import com.crawljax.di.CoreModule.TrainingFormHandlerFactory;
 import com.crawljax.forms.FormHandler;
 import com.crawljax.forms.FormInput;
 import com.crawljax.fragmentation.FragmentManager;
+import com.crawljax.fragmentation.FragmentationQueue;
 import com.crawljax.fragmentation.FragmentationPlugin;
 import com.crawljax.oraclecomparator.StateComparator;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
@@ -81,6 +85,9 @@ public class Crawler {
   private final Provider<InMemoryStateFlowGraph> graphProvider;
   private final StateVertexFactory vertexFactory;
   private final FragmentManager fragmentManager;
+  private final FragmentationQueue fragmentationQueue;
+  private final StateSnapshots snapshots;
+  private final boolean fastRestore;
   private CrawlPath crawlpath;
 
   @VisibleForTesting
@@ -108,7 +115,7 @@ public class Crawler {
       WaitConditionChecker waitConditionChecker,
       CandidateElementExtractorFactory elementExtractor,
       Provider<InMemoryStateFlowGraph> graphProvider, Plugins plugins,
-      StateVertexFactory vertexFactory) {
+      StateVertexFactory vertexFactory, StateSnapshots snapshots) {
     this.context = context;
     this.graphProvider = graphProvider;
     this.vertexFactory = vertexFactory;
@@ -133,13 +140,20 @@ public class Crawler {
         break;
     }
 
-    this.fragmentManager = new FragmentManager(graphProvider);
+    this.fragmentManager =
+        new FragmentManager(graphProvider, crawlRules.getComparisonParallelism());
     FragmentManager.setThresholds(crawlRules.getUsefulFragmentRules());
 
     this.context.setFragmentManager(fragmentManager);
+    int fragmentationThreads = crawlRules.getFragmentationThreads();
+    this.fragmentationQueue = fragmentationThreads > 0
+        ? new FragmentationQueue(fragmentationThreads, context.getRegistry()) : null;
+    this.context.setFragmentationQueue(fragmentationQueue);
     this.avoidUnrelatedBacktracking = crawlRules.isAvoidUnrelatedBacktracking();
     this.avoidDifferentBacktracking = crawlRules.isAvoidDifferentBacktracking();
     this.UseEquivalentReset = crawlRules.isUseEquivalentReset();
+    this.snapshots = snapshots;
+    this.fastRestore = crawlRules.isFastRestore();
   }
 
   public static String printCrawlPath(List<Eventable> path, boolean print) {
@@ -195,9 +209,18 @@ public class Crawler {
    */
   public void close() {
     interruptThread();
+    if (fragmentationQueue != null) {
+      fragmentationQueue.shutdown();
+    }
+    fragmentManager.shutdownComparisons();
     LOG.info("Closing browser");
     plugins.runOnBrowserClosingPlugins(context);
-    browser.close();
+    BrowserPool pool = context.getConfig().getBrowserPool();
+    if (pool == null) {
+      browser.close();
+    } else {
+      pool.release(browser);
+    }
   }
 
   private Eventable getResetEquivalent() {
@@ -227,8 +250,12 @@ public class Crawler {
             .getCandidateElement(toReach.getElement().getNode()).get(0);
         CandidateElement equivalentCandidate = stateMachine.getCurrentState()
             .getCandidateElement(toReach);
-        if (equivalentCandidate != null && fragmentManager.areRelated(
-            elementToReach.getClosestFragment(), equivalentCandidate.getClosestFragment())) {
+        if (equivalentCandidate == null) {
+          continue;
+        }
+        awaitFragmentation();
+        if (fragmentManager.areRelated(elementToReach.getClosestFragment(),
+            equivalentCandidate.getClosestFragment())) {
           LOG.info("Found equivalent edge from {}. Using it on {}",
               toReach.getSourceStateVertex().getName(), stateMachine.getCurrentState().getName());
           Eventable clone = (Eventable) toReach.clone();
@@ -276,6 +303,24 @@ public class Crawler {
       }
     }
 
+    StateVertex previousState = newCrawlPath(nextTarget);
+
+    if (!UseEquivalentReset || !equivalentResetDone) {
+      browser.goToUrl(url);
+      // Checks the landing page for URL and sets the current page accordingly
+      checkOnURLState(previousState);
+    }
+
+    plugins.runOnUrlLoadPlugins(context);
+    crawlDepth.set(0);
+  }
+
+  /**
+   * Saves the current crawl path and starts a new one from the index.
+   *
+   * @return the state the crawler was in before.
+   */
+  private StateVertex newCrawlPath(int nextTarget) {
     CrawlSession session = context.getSession();
     if (crawlpath != null) {
       session.addCrawlPath(crawlpath);
@@ -291,15 +336,65 @@ public class Crawler {
     context.setStateMachine(stateMachine);
     crawlpath = new CrawlPath(nextTarget);
     context.setCrawlPath(crawlpath);
+    return previousState;
+  }
 
-    if (!UseEquivalentReset || !equivalentResetDone) {
-      browser.goToUrl(url);
-      // Checks the landing page for URL and sets the current page accordingly
-      checkOnURLState(previousState);
+  /**
+   * Backtracks to the state by restoring its {@link BrowserSnapshot} when fast restore is enabled
+   * and the state has one. A snapshot that does not restore the state is discarded.
+   *
+   * @return whether the browser is in the state.
+   */
+  private boolean restoreSnapshot(StateVertex crawlTask) {
+    BrowserSnapshot snapshot = fastRestore ? snapshots.get(crawlTask) : null;
+    if (snapshot == null) {
+      return false;
     }
-
+    int depth;
+    List<Eventable> path;
+    try {
+      browser.handlePopups();
+      snapshot.restore(browser);
+      StateVertex restored = stateMachine.newStateFor(browser);
+      if (!crawlTask.equals(restored)) {
+        LOG.info("The snapshot of {} restored a different page. Following the path instead.",
+            crawlTask.getName());
+        snapshots.discard(crawlTask);
+        return false;
+      }
+      InMemoryStateFlowGraph graph = graphProvider.get();
+      depth = graph.getDistance(graph.getInitialState(), crawlTask);
+      // A state only reached from an on-URL state has no path from the index
+      path = depth < 0 ? ImmutableList.of()
+          : graph.getShortestPath(graph.getInitialState(), crawlTask);
+      depth = Math.max(depth, 0);
+    } catch (RuntimeException e) {
+      LOG.info("Could not restore the snapshot of {}: {}", crawlTask.getName(), e.getMessage());
+      LOG.debug(e.getMessage(), e);
+      snapshots.discard(crawlTask);
+      return false;
+    }
+    LOG.info("Restored {} from its snapshot", crawlTask.getName());
+    newCrawlPath(crawlTask.getId());
+    // The path that reaches the state from the index, so the crawl path stays replayable
+    crawlpath.addAll(path);
+    stateMachine.setCurrentState(crawlTask);
     plugins.runOnUrlLoadPlugins(context);
-    crawlDepth.set(0);
+    crawlDepth.set(depth);
+    setBTStatus(true, -1);
+    snapshots.restored();
+    return true;
+  }
+
+  private void takeSnapshot(StateVertex state) {
+    if (!fastRestore) {
+      return;
+    }
+    try {
+      snapshots.put(state, BrowserSnapshot.capture(browser));
+    } catch (RuntimeException e) {
+      LOG.debug("Could not take a snapshot of {}: {}", state.getName(), e.getMessage());
+    }
   }
 
   private void checkOnURLState(StateVertex previousState) {
@@ -313,8 +408,10 @@ public class Crawler {
       plugins.runOnNewStatePlugins(context, newState);
 
       parseCurrentPageForCandidateElements();
+      takeSnapshot(newState);
 
       if (newState instanceof HybridStateVertexImpl) {
+        awaitFragmentation();
         for (StateVertex existing : stateMachine.getOnURLSet()) {
           boolean assignDynamic = true;
           fragmentManager.cacheStateComparision(newState, existing, assignDynamic);
@@ -372,6 +469,10 @@ public class Crawler {
 
     LOG.info("Resetting the crawler and Going to state {}", crawlTask.getName());
     try {
+      if (restoreSnapshot(crawlTask)) {
+        crawlThroughActions();
+        return;
+      }
       reset(crawlTask.getId());
 
       boolean reachable = reachFromHome(crawlTask);
@@ -608,6 +709,7 @@ public class Crawler {
       clone.setId(getBackTrackingEventableId());
 
       if (!clickable.getSourceStateVertex().equals(currState)) {
+        awaitFragmentation();
 
         if (avoidDifferentBacktracking &&
             fragmentManager.cacheStateComparision(clickable.getSourceStateVertex(), currState, true)
@@ -726,6 +828,7 @@ public class Crawler {
         //DONE: Are these two equivalent states?
         //What changed and how are they related.. What edge can we add between them? Added during inspect
         if (stateMachine.getCurrentState() instanceof HybridStateVertexImpl) {
+          awaitFragmentation();
           StateVertex newState = stateMachine.getCurrentState();
           StateVertex expectedState = clickable.getTargetStateVertex();
           boolean assignDynamic = true;
@@ -790,6 +893,7 @@ public class Crawler {
 
     LOG.info("Checking the result of Backtracking");
     if (!currState.equals(targetState)) {
+      awaitFragmentation();
       boolean assignDynamic = true;
       StateComparision comp = fragmentManager.cacheStateComparision(currState, targetState,
           assignDynamic);
@@ -910,7 +1014,7 @@ public class Crawler {
     for (FormInput input : formInputs) {
       try {
         Node inputNode = XPathHelper.getBelongingNode(input,
-            stateMachine.getCurrentState().getDocument());
+            stateMachine.getCurrentState().getCandidateDocument());
         if (inputNode != null) {
           Rectangle inputRectangle = VipsUtils.getRectangle(inputNode, browser.getWebDriver());
           if (inputRectangle == null || inputRectangle.getX() < 0 || inputRectangle.getY() < 0) {
@@ -1231,7 +1335,7 @@ public class Crawler {
     boolean interrupted = Thread.interrupted();
     CandidateCrawlAction action =
         candidateActionCache.pollActionOrNull(stateMachine, context.getFragmentManager(),
-            afterBacktrack);
+            fragmentationQueue, afterBacktrack);
 
     while (action != null && !interrupted) {
       boolean newStateFound = false;
@@ -1280,7 +1384,7 @@ public class Crawler {
 
       afterBacktrack = false;
       action = candidateActionCache.pollActionOrNull(stateMachine, context.getFragmentManager(),
-          afterBacktrack);
+          fragmentationQueue, afterBacktrack);
 //			}
       interrupted = Thread.interrupted();
       if (!interrupted && crawlerNotInScope()) {
@@ -1304,6 +1408,17 @@ public class Crawler {
     }
   }
 
+  /**
+   * Waits until the fragments of the new states are in the {@link FragmentManager}, when they are
+   * fragmented off the crawl thread. Has to be called before the crawler reads the fragment
+   * manager or the fragments of a state.
+   */
+  void awaitFragmentation() {
+    if (fragmentationQueue != null) {
+      fragmentationQueue.await();
+    }
+  }
+
   private long getBackTrackingEventableId() {
     nextBackTrackingId += 1;
     return nextBackTrackingId;
@@ -1369,6 +1484,7 @@ public class Crawler {
     if (isNewState) {
       int depth = crawlDepth.incrementAndGet();
       LOG.info("New DOM is a new state! crawl depth is now {}", depth);
+      takeSnapshot(stateMachine.getCurrentState());
       if (maxDepth == depth) {
         LOG.debug("Maximum depth achieved. Not crawling this state any further");
       } else {
@@ -1410,12 +1526,23 @@ public class Crawler {
   private void parseCurrentPageForCandidateElements() {
     StateVertex currentState = stateMachine.getCurrentState();
     LOG.info("Parsing DOM of state {} for candidate elements", currentState.getName());
-    ImmutableList<CandidateElement> extract = candidateExtractor.extract(currentState);
+    ImmutableList<CandidateElement> extract = extractCandidates(currentState);
 
     plugins.runPreStateCrawlingPlugins(context, extract, currentState);
     candidateActionCache.addActions(extract, currentState);
   }
 
+  /**
+   * Locks the state while reading its DOM, as the fragments of the state may be added on another
+   * thread. A state that is still segmented hands out a copy of its DOM, so the candidates are
+   * extracted without waiting for the segmentation.
+   */
+  private ImmutableList<CandidateElement> extractCandidates(StateVertex state) {
+    synchronized (state) {
+      return candidateExtractor.extract(state);
+    }
+  }
+
   private void waitForRefreshTagIfAny(final Eventable eventable) {
     if ("meta".equalsIgnoreCase(eventable.getElement().getTag())) {
       Pattern p = Pattern.compile("(\\d+);\\s+URL=(.*)");
@@ -1478,8 +1605,10 @@ public class Crawler {
     plugins.runOnUrlFirstLoadPlugins(context);
 
     plugins.runOnUrlLoadPlugins(context);
-    StateVertex index = vertexFactory.createIndex(url.toString(), browser.getStrippedDom(),
-        stateComparator.getStrippedDom(browser), browser);
+    // The index keeps the configured url, also when the browser was redirected
+    PageCapture capture = PageCapture.of(browser, url.toString());
+    StateVertex index =
+        vertexFactory.createIndex(capture, stateComparator.getStrippedDom(capture));
 
     index.setOnURL(true);
 
@@ -1489,7 +1618,7 @@ public class Crawler {
     plugins.runOnNewStatePlugins(context, index);
 
     LOG.debug("Parsing the index for candidate elements");
-    ImmutableList<CandidateElement> extract = candidateExtractor.extract(index);
+    ImmutableList<CandidateElement> extract = extractCandidates(index);
 
     plugins.runPreStateCrawlingPlugins(context, extract, index);
 
@@ -9,6 +9,7 @@ import com.crawljax.core.state.CrawlPath;
 import com.crawljax.core.state.StateMachine;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.fragmentation.FragmentManager;
+import com.crawljax.fragmentation.FragmentationQueue;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -25,6 +26,7 @@ public class CrawlerContext {
   private StateMachine stateMachine;
   private CrawlPath crawlpath;
   private FragmentManager fragmentManager;
+  private FragmentationQueue fragmentationQueue;
 
   @Inject
   public CrawlerContext(EmbeddedBrowser browser,
@@ -120,4 +122,16 @@ public class CrawlerContext {
     this.fragmentManager = fragmentManager;
   }
 
+  /**
+   * @return The queue fragmenting the new states off the crawl thread, or <code>null</code> if
+   * they are fragmented on the crawl thread.
+   */
+  public FragmentationQueue getFragmentationQueue() {
+    return fragmentationQueue;
+  }
+
+  public void setFragmentationQueue(FragmentationQueue fragmentationQueue) {
+    this.fragmentationQueue = fragmentationQueue;
+  }
+
 }
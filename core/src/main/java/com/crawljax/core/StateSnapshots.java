@@ -0,0 +1,53 @@
+package com.crawljax.core;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.BrowserSnapshot;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.metrics.MetricsModule;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * The {@link BrowserSnapshot}s of the states of a crawl, shared by its crawlers so any of them can
+ * restore a state another one found. A snapshot that did not restore its state is discarded, so
+ * the crawlers replay the path to that state from then on.
+ */
+@Singleton
+class StateSnapshots {
+
+  private final ConcurrentMap<Integer, BrowserSnapshot> snapshots = new ConcurrentHashMap<>();
+  private final Counter restoredCount;
+  private final Counter discardedCount;
+
+  @Inject
+  StateSnapshots(MetricRegistry registry) {
+    restoredCount =
+        registry.register(MetricsModule.EVENTS_PREFIX + "snapshots_restored", new Counter());
+    discardedCount =
+        registry.register(MetricsModule.EVENTS_PREFIX + "snapshots_discarded", new Counter());
+  }
+
+  void put(StateVertex state, BrowserSnapshot snapshot) {
+    snapshots.putIfAbsent(state.getId(), snapshot);
+  }
+
+  /**
+   * @return the snapshot of the state or <code>null</code> if it has none.
+   */
+  BrowserSnapshot get(StateVertex state) {
+    return snapshots.get(state.getId());
+  }
+
+  void restored() {
+    restoredCount.inc();
+  }
+
+  void discard(StateVertex state) {
+    if (snapshots.remove(state.getId()) != null) {
+      discardedCount.inc();
+    }
+  }
+}
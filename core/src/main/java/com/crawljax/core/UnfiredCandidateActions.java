@@ -17,7 +17,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.locks.Lock;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -34,7 +33,7 @@ public class UnfiredCandidateActions {
   private static final Logger LOG = LoggerFactory.getLogger(UnfiredCandidateActions.class);
 
   private final Map<Integer, Queue<CandidateCrawlAction>> cache;
-  private final BlockingQueue<Integer> statesWithCandidates;
+  private final CrawlTaskScheduler statesWithCandidates;
   private final Striped<Lock> locks;
   private final Provider<StateFlowGraph> sfg;
   private final Counter crawlerLostCount;
@@ -45,7 +44,7 @@ public class UnfiredCandidateActions {
       MetricRegistry registry) {
     this.sfg = sfg;
     cache = Maps.newHashMap();
-    statesWithCandidates = Queues.newLinkedBlockingQueue();
+    statesWithCandidates = new CrawlTaskScheduler();
     // Every browser gets a lock.
     locks = Striped.lock(config.getNumberOfBrowsers());
 
@@ -84,7 +83,7 @@ public class UnfiredCandidateActions {
   }
 
   private void removeStateFromQueue(int id) {
-    while (statesWithCandidates.remove(id)) {
+    if (statesWithCandidates.remove(id)) {
       LOG.trace("Removed id {} from the queue", id);
     }
   }
@@ -140,74 +139,28 @@ public class UnfiredCandidateActions {
    * @throws InterruptedException when taking from the queue is interrupted.
    */
   public StateVertex awaitNewTask() throws InterruptedException {
+    // Takes the head of the schedule and puts it back at the end. It will be removed later.
     int id = statesWithCandidates.take();
-    // Put it back the end of the queue. It will be removed later.
-    statesWithCandidates.add(id);
     LOG.debug("New task polled for state {}", id);
     LOG.info("There are {} states with unfired actions", statesWithCandidates.size());
     return sfg.get().getById(id);
   }
 
   public StateVertex getOldest() {
-    StateVertex oldestVertex = null;
-    int oldest = -1;
-    for (int id : statesWithCandidates) {
-      if (oldest == -1) {
-        oldest = id;
-        oldestVertex = sfg.get().getById(id);
-      }
-      if (id < oldest) {
-        oldest = id;
-        oldestVertex = sfg.get().getById(id);
-      }
-    }
-
-    while (true) {
-      try {
-        int id = statesWithCandidates.take();
-        statesWithCandidates.put(id);
-        if (id == oldest) {
-          break;
-        }
-      } catch (InterruptedException e) {
-        LOG.error("Interrupted exception while getting oldest ");
-        LOG.debug(e.getMessage());
-      }
+    try {
+      return sfg.get().getById(statesWithCandidates.takeOldest());
+    } catch (InterruptedException e) {
+      LOG.error("Interrupted exception while getting oldest ");
+      LOG.debug(e.getMessage());
+      Thread.currentThread().interrupt();
+      return null;
     }
-
-    return oldestVertex;
   }
 
   public StateVertex getNextNonDuplicate() {
-    StateVertex nextUnique = null;
-    int nextUniqueId = -1;
-    for (int id : statesWithCandidates) {
-      StateVertex forId = sfg.get().getById(id);
-      if (!forId.hasNearDuplicate()) {
-        nextUnique = forId;
-        nextUniqueId = id;
-        break;
-      }
-    }
-
-    if (nextUnique == null) {
-      return null;
-    }
-
-    while (true) {
-      try {
-        int id = statesWithCandidates.take();
-        statesWithCandidates.put(id);
-        if (id == nextUniqueId) {
-          break;
-        }
-      } catch (InterruptedException e) {
-        LOG.error("Interrupted exception while getting next non-duplicate ");
-        LOG.debug(e.getMessage());
-      }
-    }
-
-    return nextUnique;
+    Integer nextUniqueId = statesWithCandidates
+        .takeFirstMatching(id -> !sfg.get().getById(id).hasNearDuplicate());
+    return nextUniqueId == null ? null : sfg.get().getById(nextUniqueId);
   }
 
   /**
@@ -11,18 +11,23 @@ import com.crawljax.core.state.StateMachine;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.forms.FormInput;
 import com.crawljax.fragmentation.FragmentManager;
+import com.crawljax.fragmentation.FragmentationQueue;
 import com.crawljax.metrics.MetricsModule;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.Striped;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -40,36 +45,64 @@ public class UnfiredFragmentCandidates {
 
   private static int MAX_REPEAT = 2;
 
-  private final Map<Integer, List<CandidateCrawlAction>> cache;
-  private final BlockingQueue<Integer> statesWithCandidates;
+  /**
+   * The number of lock stripes. The actions of a state are only accessed while holding the lock of
+   * its stripe, so this bounds how many states can be polled at the same time.
+   */
+  private static final int LOCK_STRIPES = 1024;
+
+  /**
+   * The backtracking costs of states that can not be reached and of states another consumer is at.
+   * A consumer only takes a state another consumer is at when nothing else is pending, so it steals
+   * work rather than staying idle.
+   */
+  private static final long UNREACHABLE_COST = Long.MAX_VALUE - 2;
+  private static final long OTHER_CONSUMER_COST = Long.MAX_VALUE - 1;
+
+  /**
+   * The number of pending states, besides the states other consumers are at, whose backtracking
+   * cost is computed when a consumer takes its next state. Each cost takes a shortest path search
+   * per on-URL state, so only the head of the schedule is scored.
+   */
+  private static final int SCHEDULING_WINDOW = 16;
+
+  private final ConcurrentMap<Integer, Deque<CandidateCrawlAction>> cache;
+  private final CrawlTaskScheduler statesWithCandidates;
   private final Striped<Lock> locks;
   private final Provider<StateFlowGraph> sfg;
   private final Counter crawlerLostCount;
   private final Counter unfiredActionsCount;
-  private final Map<Integer, List<CandidateCrawlAction>> unreachableCache;
+  private final ConcurrentMap<Integer, Deque<CandidateCrawlAction>> unreachableCache;
 
   //	private StateVertex nextBestState = null;
   private boolean skipExploredActions = true;
-  private final List<CandidateCrawlAction> skipInputs;
-  private final List<Eventable> skipInputsForPath;
-  private final Map<Long, List<FormInput>> inputMap = new HashMap<>();
+  private final Set<CandidateCrawlAction> skipInputs;
+  private final Set<Eventable> skipInputsForPath;
+  private final Map<Long, List<FormInput>> inputMap = new ConcurrentHashMap<>();
   private final boolean applyNonSelAdvantage;
 
-  private boolean unexploredStates = true;
+  private volatile boolean unexploredStates = true;
 
   private boolean restoreConnectedEdges = false;
 
+  private final boolean localityAwareScheduling;
+  /**
+   * The state every consumer is at or heading to, by the id of the thread it runs on.
+   */
+  private final ConcurrentMap<Long, Integer> consumerStates = new ConcurrentHashMap<>();
+  private final Counter tasksOnCurrentStateCount;
+  private final Counter tasksStolenCount;
+
   @Inject
   UnfiredFragmentCandidates(BrowserConfiguration config, Provider<StateFlowGraph> sfg,
       MetricRegistry registry, CrawlRules crawlRules) {
     this.sfg = sfg;
-    cache = Maps.newHashMap();
-    unreachableCache = Maps.newHashMap();
-    skipInputs = new ArrayList<>();
-    skipInputsForPath = new ArrayList<>();
-    statesWithCandidates = Queues.newLinkedBlockingQueue();
-    // Every browser gets a lock.
-    locks = Striped.lock(config.getNumberOfBrowsers());
+    cache = new ConcurrentHashMap<>();
+    unreachableCache = new ConcurrentHashMap<>();
+    skipInputs = ConcurrentHashMap.newKeySet();
+    skipInputsForPath = ConcurrentHashMap.newKeySet();
+    statesWithCandidates = new CrawlTaskScheduler();
+    locks = Striped.lazyWeakLock(LOCK_STRIPES);
 
     crawlerLostCount =
         registry.register(MetricsModule.EVENTS_PREFIX + "crawler_lost", new Counter());
@@ -80,10 +113,15 @@ public class UnfiredFragmentCandidates {
     skipExploredActions = crawlRules.isSkipExploredActions();
     MAX_REPEAT = crawlRules.getMaxRepeatExploredActions();
     restoreConnectedEdges = crawlRules.isRestoreConnectedEdges();
+    localityAwareScheduling = crawlRules.isLocalityAwareScheduling();
+    tasksOnCurrentStateCount =
+        registry.register(MetricsModule.EVENTS_PREFIX + "tasks_on_current_state", new Counter());
+    tasksStolenCount =
+        registry.register(MetricsModule.EVENTS_PREFIX + "tasks_stolen", new Counter());
   }
 
 
-  private CandidateCrawlAction getBestAction(List<CandidateCrawlAction> availableActions,
+  private CandidateCrawlAction getBestAction(Collection<CandidateCrawlAction> availableActions,
       StateVertex state, FragmentManager fragmentManager) {
     if (state.getRootFragment() != null && !state.getRootFragment().isAccessTransferred()) {
       fragmentManager.setAccess(state);
@@ -107,16 +145,22 @@ public class UnfiredFragmentCandidates {
         }
 
         double influence = fragmentManager.calculateCandidateInfluence(element);
-        double duplicationFactor = fragmentManager.calculateDuplicationFactor(element, state);
         if (!element.wasExplored()) {
           unexploredActionFound = true;
-          if (influence * duplicationFactor > maxInfluence) {
-            maxInfluence = influence * duplicationFactor;
+        }
+        if (influence <= 0) {
+          // The duplication factor is at least one, so the action can never be the best one.
+          continue;
+        }
+        double score = influence * fragmentManager.calculateDuplicationFactor(element, state);
+        if (!element.wasExplored()) {
+          if (score > maxInfluence) {
+            maxInfluence = score;
             bestAction = action;
           }
         } else {
-          if (influence * duplicationFactor > maxExploredInfluence) {
-            maxExploredInfluence = influence * duplicationFactor;
+          if (score > maxExploredInfluence) {
+            maxExploredInfluence = score;
             bestExploredAction = action;
           }
         }
@@ -132,29 +176,38 @@ public class UnfiredFragmentCandidates {
       LOG.debug(ex.getMessage());
     } finally {
       long end = System.currentTimeMillis();
-      LOG.info("Time taken to find Best Action : " + (end - start) + " millis");
+      LOG.debug("Time taken to find best action: {} millis", end - start);
     }
     return null;
   }
 
+  /**
+   * @param fragmentationQueue the queue the states are fragmented on, awaited before the fragments
+   *                           of the state are read. <code>null</code> if the states are
+   *                           fragmented in place.
+   */
   CandidateCrawlAction pollActionOrNull(StateMachine stateMachine, FragmentManager fragmentManager,
-      boolean afterBacktrack) {
+      FragmentationQueue fragmentationQueue, boolean afterBacktrack) {
     StateVertex state = stateMachine.getCurrentState();
 
     if (!(state instanceof HybridStateVertexImpl)) {
       return pollActionOrNull(state);
     }
+    if (fragmentationQueue != null && cache.containsKey(state.getId())) {
+      fragmentationQueue.await();
+    }
 
     StateVertex bestState = null;
     CandidateCrawlAction bestAction = null;
 
     LOG.debug("Polling action for state {}", state.getName());
+    if (unreachableCache.containsKey(state.getId())) {
+      rediscoveredState(state);
+    }
+    Lock lock = locks.get(state.getId());
+    lock.lock();
     try {
-
-      if (unreachableCache.get(state.getId()) != null) {
-        rediscoveredState(state);
-      }
-      List<CandidateCrawlAction> queue = cache.get(state.getId());
+      Deque<CandidateCrawlAction> queue = cache.get(state.getId());
 
       if (queue == null) {
         return bestAction;
@@ -174,7 +227,8 @@ public class UnfiredFragmentCandidates {
           if (unexploredStates && !afterBacktrack) {
             try {
               bestState = fragmentManager.getClosestUnexploredState(state,
-                  stateMachine.getOnURLSet(), statesWithCandidates, applyNonSelAdvantage);
+                  stateMachine.getOnURLSet(), statesWithCandidates.getStateIds(),
+                  applyNonSelAdvantage);
             } catch (Exception ex) {
               LOG.error("Error getting closest unexplored state", ex.getMessage());
             }
@@ -232,6 +286,7 @@ public class UnfiredFragmentCandidates {
       return bestAction;
 
     } finally {
+      lock.unlock();
       if (bestState != null && bestAction != null) {
         fragmentManager.seenState(bestState);
       }
@@ -254,14 +309,13 @@ public class UnfiredFragmentCandidates {
 
 
   private void restoreState(StateVertex state) {
-    if (unreachableCache.containsKey(state.getId())) {
-      // If the actions are not in QUEUE, check if the state has been updated and lost during crawl.
-      // If so, then place its actions back in the queue.
+    // If the actions are not in QUEUE, check if the state has been updated and lost during crawl.
+    // If so, then place its actions back in the queue.
+    Deque<CandidateCrawlAction> removed = unreachableCache.remove(state.getId());
+    if (removed != null) {
       LOG.info("Placing {} back in queue as it is rediscovered", state.getName());
-      List<CandidateCrawlAction> removed = unreachableCache.get(state.getId());
       addActions(removed, state);
       unfiredActionsCount.dec(removed.size());
-      unreachableCache.remove(state.getId());
       if (state.hasUnexploredActions()) {
         LOG.info("Rediscovered state{} has unexplored actions", state.getId());
         if (!unexploredStates) {
@@ -273,7 +327,7 @@ public class UnfiredFragmentCandidates {
   }
 
   private void removeStateFromQueue(int id) {
-    while (statesWithCandidates.remove(id)) {
+    if (statesWithCandidates.remove(id)) {
       LOG.trace("Removed id {} from the queue", id);
     }
   }
@@ -296,7 +350,7 @@ public class UnfiredFragmentCandidates {
    * @param actions The actions you want to add to a state.
    * @param state   The state name. This should be unique per state.
    */
-  void addActions(List<CandidateCrawlAction> actions, StateVertex state) {
+  void addActions(Collection<CandidateCrawlAction> actions, StateVertex state) {
     if (actions.isEmpty()) {
       LOG.debug("Received empty actions list. Ignoring...");
       return;
@@ -305,11 +359,7 @@ public class UnfiredFragmentCandidates {
     try {
       lock.lock();
       LOG.debug("Adding {} crawl actions for state {}", actions.size(), state.getId());
-      if (cache.containsKey(state.getId())) {
-        cache.get(state.getId()).addAll(actions);
-      } else {
-        cache.put(state.getId(), actions);
-      }
+      cache.computeIfAbsent(state.getId(), id -> new ArrayDeque<>()).addAll(actions);
       statesWithCandidates.add(state.getId());
       LOG.info("There are {} states with unfired actions", statesWithCandidates.size());
     } finally {
@@ -334,20 +384,19 @@ public class UnfiredFragmentCandidates {
   public StateVertex awaitNewTask(StateVertex currentState, List<StateVertex> onURLSet,
       FragmentManager fragmentManager) throws InterruptedException {
     if (currentState == null) {
+      // Takes the head of the schedule and puts it back at the end. It will be removed later.
       int id = statesWithCandidates.take();
-      // Put it back the end of the queue. It will be removed later.
-      statesWithCandidates.add(id);
       return sfg.get().getById(id);
     }
 
     if (!(currentState instanceof HybridStateVertexImpl)) {
-      return awaitNewTask();
+      return awaitNextTask(currentState, onURLSet);
     }
 
     StateVertex next = null;
     try {
-      next = fragmentManager.getClosestUnexploredState(currentState, onURLSet, statesWithCandidates,
-          applyNonSelAdvantage);
+      next = fragmentManager.getClosestUnexploredState(currentState, onURLSet,
+          statesWithCandidates.getStateIds(), applyNonSelAdvantage);
     } catch (Exception ignored) {
 
     }
@@ -357,10 +406,7 @@ public class UnfiredFragmentCandidates {
       if (fragmentManager.getAllFragments() == null) {
         return null;
       }
-      int id = statesWithCandidates.take();
-      // Put it back the end of the queue. It will be removed later.
-      statesWithCandidates.add(id);
-      return sfg.get().getById(id);
+      return awaitNextTask(currentState, onURLSet);
     }
 
     LOG.info("Next Best Task : " + next.getName());
@@ -374,44 +420,98 @@ public class UnfiredFragmentCandidates {
   }
 
   public StateVertex awaitNewTask() throws InterruptedException {
+    // Takes the head of the schedule and puts it back at the end. It will be removed later.
     int id = statesWithCandidates.take();
-    // Put it back the end of the queue. It will be removed later.
-    statesWithCandidates.add(id);
     LOG.debug("New task polled for state {}", id);
     LOG.info("There are {} states with unfired actions", statesWithCandidates.size());
     return sfg.get().getById(id);
   }
 
-  public StateVertex getNextNonDuplicate() {
-    StateVertex nextUnique = null;
-    int nextUniqueId = -1;
-    for (int id : statesWithCandidates) {
-      StateVertex forId = sfg.get().getById(id);
-      if (!forId.hasNearDuplicate()) {
-        nextUnique = forId;
-        nextUniqueId = id;
-        break;
+  /**
+   * Takes the next state in line or, with locality-aware scheduling, the state that is cheapest to
+   * backtrack to from the current state of the calling consumer. The consumer keeps its current
+   * state while it is pending, otherwise the cheapest state of the head of the schedule is taken.
+   */
+  private StateVertex awaitNextTask(StateVertex currentState, List<StateVertex> onURLSet)
+      throws InterruptedException {
+    if (!localityAwareScheduling) {
+      return awaitNewTask();
+    }
+    long consumer = Thread.currentThread().getId();
+    consumerStates.put(consumer, currentState.getId());
+    Set<Integer> otherConsumerStates = new HashSet<>();
+    consumerStates.forEach((otherConsumer, stateId) -> {
+      if (otherConsumer != consumer) {
+        otherConsumerStates.add(stateId);
       }
+    });
+
+    int id = currentState.getId();
+    if (!statesWithCandidates.takeIfScheduled(id)) {
+      // Other consumers are at one state each, so the window always has SCHEDULING_WINDOW states
+      // left to take before stealing one, if there are that many.
+      id = statesWithCandidates.takeCheapest(
+          stateId -> backtrackCost(stateId, currentState, onURLSet, otherConsumerStates),
+          SCHEDULING_WINDOW + otherConsumerStates.size());
     }
-
-    if (nextUnique == null) {
-      return null;
+    if (id == currentState.getId()) {
+      tasksOnCurrentStateCount.inc();
+    } else if (otherConsumerStates.contains(id)) {
+      LOG.debug("Consumer {} is idle, so it takes over state {}", consumer, id);
+      tasksStolenCount.inc();
     }
+    consumerStates.put(consumer, id);
+    LOG.debug("New task polled for state {}", id);
+    return sfg.get().getById(id);
+  }
+
+  /**
+   * Forgets the state the calling consumer is at, so other consumers no longer avoid it. Call it
+   * when the consumer stops.
+   */
+  public void removeConsumer() {
+    consumerStates.remove(Thread.currentThread().getId());
+  }
 
-    while (true) {
+  /**
+   * @return 0 when the consumer is at the state. Otherwise the reload of the URL plus the number of
+   * events to replay from the closest on-URL state. States other consumers are at cost the most,
+   * so they are only taken when nothing else is left.
+   */
+  private long backtrackCost(int stateId, StateVertex currentState, List<StateVertex> onURLSet,
+      Set<Integer> otherConsumerStates) {
+    if (stateId == currentState.getId()) {
+      return 0;
+    }
+    if (otherConsumerStates.contains(stateId)) {
+      return OTHER_CONSUMER_COST;
+    }
+    StateFlowGraph graph = sfg.get();
+    StateVertex state = graph.getById(stateId);
+    if (state == null) {
+      return UNREACHABLE_COST;
+    }
+    if (state.isOnURL()) {
+      return 1;
+    }
+    long events = Long.MAX_VALUE;
+    for (StateVertex onURL : onURLSet) {
       try {
-        int id = statesWithCandidates.take();
-        statesWithCandidates.put(id);
-        if (id == nextUniqueId) {
-          break;
+        int distance = graph.getDistance(onURL, state);
+        if (distance >= 0) {
+          events = Math.min(events, distance);
         }
-      } catch (InterruptedException e) {
-        LOG.error("Interruped while finding next unique state");
-        LOG.debug(e.getMessage());
+      } catch (RuntimeException ex) {
+        LOG.debug("Could not compute the distance from {}", onURL.getName());
       }
     }
+    return events == Long.MAX_VALUE ? UNREACHABLE_COST : 1 + events;
+  }
 
-    return nextUnique;
+  public StateVertex getNextNonDuplicate() {
+    Integer nextUniqueId = statesWithCandidates
+        .takeFirstMatching(id -> !sfg.get().getById(id).hasNearDuplicate());
+    return nextUniqueId == null ? null : sfg.get().getById(nextUniqueId);
   }
 
   public void purgeActionsForState(StateVertex crawlTask) {
@@ -420,11 +520,14 @@ public class UnfiredFragmentCandidates {
       lock.lock();
       LOG.debug("Removing tasks for target state {}", crawlTask.getName());
       removeStateFromQueue(crawlTask.getId());
-      List<CandidateCrawlAction> removed = cache.remove(crawlTask.getId());
+      Deque<CandidateCrawlAction> removed = cache.remove(crawlTask.getId());
       if (removed != null) {
         unfiredActionsCount.inc(removed.size());
         LOG.info("Placing purged actions in unreachable cache for {}", crawlTask.getName());
-        unreachableCache.put(crawlTask.getId(), removed);
+        unreachableCache.merge(crawlTask.getId(), removed, (unreachable, purged) -> {
+          unreachable.addAll(purged);
+          return unreachable;
+        });
       }
     } finally {
       lock.unlock();
@@ -434,11 +537,7 @@ public class UnfiredFragmentCandidates {
 
 
   public boolean disableInputsForAction(CandidateCrawlAction action) {
-    if (!this.skipInputs.contains(action)) {
-      this.skipInputs.add(action);
-      return true;
-    }
-    return false;
+    return this.skipInputs.add(action);
   }
 
   public boolean shouldDisableInput(CandidateCrawlAction action) {
@@ -451,12 +550,11 @@ public class UnfiredFragmentCandidates {
   }
 
   public void disableInputsForPath(Eventable event) {
-    if (!this.skipInputsForPath.contains(event)) {
+    if (this.skipInputsForPath.add(event)) {
       LOG.info("Disabling related inputs for {} ", event.getId());
       LOG.info("event {} - Before {}", event.getId(), event.getRelatedFormInputs().size());
       event.setRelatedFormInputs(new ArrayList<>());
       LOG.info("event {} - After {}", event.getId(), event.getRelatedFormInputs().size());
-      this.skipInputsForPath.add(event);
     }
   }
 
@@ -486,27 +584,31 @@ public class UnfiredFragmentCandidates {
 
 
   public void removeAction(CandidateElement candidate, StateVertex state) {
-    if (unreachableCache.get(state.getId()) != null) {
+    if (unreachableCache.containsKey(state.getId())) {
       rediscoveredState(state);
     }
-    if (statesWithCandidates.contains(state.getId())) {
-      List<CandidateCrawlAction> availableActions = cache.get(state.getId());
-      CandidateCrawlAction toRemove = null;
-      for (CandidateCrawlAction action : availableActions) {
-        if (action.getCandidateElement().equals(candidate)) {
-          toRemove = action;
+    Lock lock = locks.get(state.getId());
+    lock.lock();
+    try {
+      Deque<CandidateCrawlAction> availableActions = cache.get(state.getId());
+      if (availableActions == null) {
+        return;
+      }
+      Iterator<CandidateCrawlAction> actions = availableActions.iterator();
+      while (actions.hasNext()) {
+        if (actions.next().getCandidateElement().equals(candidate)) {
+          actions.remove();
           break;
         }
       }
-      if (toRemove != null) {
-        availableActions.remove(toRemove);
-      }
       if (availableActions.isEmpty()) {
         LOG.debug("All actions polled for state {}", state.getName());
         cache.remove(state.getId());
         removeStateFromQueue(state.getId());
         LOG.debug("There are now {} states with unfinished actions", cache.size());
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -516,11 +618,11 @@ public class UnfiredFragmentCandidates {
     Lock lock = locks.get(state.getId());
     try {
       lock.lock();
-      List<CandidateCrawlAction> queue = cache.get(state.getId());
+      Deque<CandidateCrawlAction> queue = cache.get(state.getId());
       if (queue == null) {
         return null;
       } else {
-        CandidateCrawlAction action = queue.remove(0);
+        CandidateCrawlAction action = queue.poll();
         if (queue.isEmpty()) {
           LOG.debug("All actions polled for state {}", state.getName());
           cache.remove(state.getId());
@@ -11,6 +11,14 @@ public class BrowserOptions {
    * a flag available for chrome (use chrome developer tools)
    */
   private boolean USE_CDP = true;
+  /**
+   * serialize the DOM with a single script in the browser
+   */
+  private boolean captureDomInBrowser = false;
+  /**
+   * wait until the page is quiet instead of the full wait after events and reloads
+   */
+  private boolean adaptiveWaiting = false;
 
   public BrowserOptions() {
     this.pixelDensity = -1;
@@ -60,6 +68,35 @@ public class BrowserOptions {
   }
 
 
+  public boolean isCaptureDomInBrowser() {
+    return captureDomInBrowser;
+  }
+
+  /**
+   * Enables/Disables serializing the DOM, including the same-origin frames, with a single script in
+   * the browser instead of fetching the page source of every frame.
+   *
+   * @param captureDomInBrowser
+   */
+  public void setCaptureDomInBrowser(boolean captureDomInBrowser) {
+    this.captureDomInBrowser = captureDomInBrowser;
+  }
+
+  public boolean isAdaptiveWaiting() {
+    return adaptiveWaiting;
+  }
+
+  /**
+   * Enables/Disables waiting after events and reloads until the DOM stops changing and, in Chrome,
+   * the network is idle. The wait after event and after reload of the crawl rules are then the
+   * longest time to wait.
+   *
+   * @param adaptiveWaiting
+   */
+  public void setAdaptiveWaiting(boolean adaptiveWaiting) {
+    this.adaptiveWaiting = adaptiveWaiting;
+  }
+
   public int getPixelDensity() {
     return pixelDensity;
   }
@@ -72,6 +109,8 @@ public class BrowserOptions {
   public String toString() {
     return this.getClass().getSimpleName() + "( pixelDensity: "
         + this.pixelDensity + ", USE_CDP : " + this.USE_CDP
+        + ", captureDomInBrowser : " + this.captureDomInBrowser
+        + ", adaptiveWaiting : " + this.adaptiveWaiting
         + ")";
   }
 
@@ -59,6 +59,10 @@ public class CrawlRules {
   private int maxRepeatExploredActions = 2;
   private FragmentRules usefulFragmentRules = new FragmentRules();
   private boolean restoreConnectedEdges = false;
+  private boolean localityAwareScheduling = false;
+  private boolean fastRestore = false;
+  private int fragmentationThreads = 0;
+  private int comparisonParallelism = 1;
 
   private CrawlRules() {
   }
@@ -246,13 +250,33 @@ public class CrawlRules {
         .add("crawlFrames", crawlFrames).add("crawlHiddenAnchors", crawlHiddenAnchors)
         .add("waitAfterReloadUrl", waitAfterReloadUrl)
         .add("waitAfterEvent", waitAfterEvent)
-        .add("followExternalLinks", followExternalLinks).toString();
+        .add("followExternalLinks", followExternalLinks)
+        .add("localityAwareScheduling", localityAwareScheduling)
+        .add("fastRestore", fastRestore)
+        .add("fragmentationThreads", fragmentationThreads)
+        .add("comparisonParallelism", comparisonParallelism).toString();
   }
 
   public boolean isRestoreConnectedEdges() {
     return restoreConnectedEdges;
   }
 
+  public boolean isLocalityAwareScheduling() {
+    return localityAwareScheduling;
+  }
+
+  public boolean isFastRestore() {
+    return fastRestore;
+  }
+
+  public int getFragmentationThreads() {
+    return fragmentationThreads;
+  }
+
+  public int getComparisonParallelism() {
+    return comparisonParallelism;
+  }
+
   /*
    * @RANDOM: generates input values randomly for inputs that have no existing values.
    * @TRAINING: when a form input is detected, waits for user input to manually enter data.
@@ -307,6 +331,62 @@ public class CrawlRules {
       return this;
     }
 
+    /**
+     * When the crawl has no better priority for the next state, hand each browser the pending
+     * state that is cheapest to backtrack to from where it is, rather than the next one in line.
+     * Mostly useful when crawling with more than one browser. Default is <code>false</code>.
+     *
+     * @param localityAwareScheduling whether to schedule states by backtracking cost.
+     * @return The builder for method chaining.
+     */
+    public CrawlRulesBuilder setLocalityAwareScheduling(boolean localityAwareScheduling) {
+      crawlRules.localityAwareScheduling = localityAwareScheduling;
+      return this;
+    }
+
+    /**
+     * Snapshot the cookies, web storage and URL of every new state, and backtrack to a state by
+     * restoring its snapshot instead of replaying the events that lead to it. The path is only
+     * replayed when the restored page is not the same state. Only pays off for sites that keep
+     * their states in the URL and storage. Default is <code>false</code>.
+     *
+     * @param fastRestore whether to backtrack by restoring snapshots.
+     * @return The builder for method chaining.
+     */
+    public CrawlRulesBuilder setFastRestore(boolean fastRestore) {
+      crawlRules.fastRestore = fastRestore;
+      return this;
+    }
+
+    /**
+     * Fragment new states of a hybrid crawl on a pool of worker threads instead of the crawl
+     * thread. The crawl thread only captures the DOM, layout and screenshot of a new state and
+     * waits for its fragments when it first needs them, to pick the next action or to compare
+     * states. Default is <code>0</code>, fragmenting on the crawl thread.
+     *
+     * @param fragmentationThreads the number of worker threads of every crawler.
+     * @return The builder for method chaining.
+     */
+    public CrawlRulesBuilder setFragmentationThreads(int fragmentationThreads) {
+      checkArgument(fragmentationThreads >= 0, "The number of threads cannot be negative");
+      crawlRules.fragmentationThreads = fragmentationThreads;
+      return this;
+    }
+
+    /**
+     * Compare a new state of a hybrid crawl to the other states on a fork/join pool. The tree edit
+     * distances of the DOMs are computed in parallel, the rest of every comparison on the thread
+     * fragmenting the state. Default is <code>1</code>, comparing the states one by one.
+     *
+     * @param comparisonParallelism the parallelism of the pool of every crawler.
+     * @return The builder for method chaining.
+     */
+    public CrawlRulesBuilder setComparisonParallelism(int comparisonParallelism) {
+      checkArgument(comparisonParallelism > 0, "The parallelism should be larger than 0");
+      crawlRules.comparisonParallelism = comparisonParallelism;
+      return this;
+    }
+
     public CrawlRulesBuilder setCrawlNearDuplicates(boolean crawlNearDuplicates) {
       crawlRules.crawlNearDuplicates = crawlNearDuplicates;
       return this;
@@ -2,6 +2,7 @@ package com.crawljax.core.configuration;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.crawljax.browser.BrowserPool;
 import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.browser.EmbeddedBrowser.BrowserType;
 import com.crawljax.clickabledetection.ClickableDetectorPlugin;
@@ -40,6 +41,9 @@ public class CrawljaxConfiguration {
   private CrawlRules crawlRules;
   private int maximumStates = 0;
   private long maximumRuntime = TimeUnit.HOURS.toMillis(1);
+  private long shutdownTimeout = TimeUnit.SECONDS.toMillis(15);
+  private boolean virtualThreads = false;
+  private BrowserPool browserPool = null;
   private int maximumDepth = 0;
   private File output = new File("out");
   /**
@@ -113,6 +117,28 @@ public class CrawljaxConfiguration {
     return maximumDepth;
   }
 
+  /**
+   * @return How long to wait for the consumers to stop when the crawl ends, in milliseconds.
+   */
+  public long getShutdownTimeout() {
+    return shutdownTimeout;
+  }
+
+  /**
+   * @return Whether the consumers run on virtual threads when the runtime supports them.
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * @return The pool the browsers are taken from and returned to, or <code>null</code> if every
+   * crawler launches and quits its own browser.
+   */
+  public BrowserPool getBrowserPool() {
+    return browserPool;
+  }
+
   /**
    * @return The output directory for site-specific data such as form inputs.
    */
@@ -199,7 +225,9 @@ public class CrawljaxConfiguration {
         .add("browserConfig", browserConfig).add("plugins", plugins)
         .add("proxyConfiguration", proxyConfiguration).add("crawlRules", crawlRules)
         .add("maximumStates", maximumStates).add("maximumRuntime", maximumRuntime)
-        .add("maximumDepth", maximumDepth).add("crawlScope", crawlScope).toString();
+        .add("maximumDepth", maximumDepth).add("crawlScope", crawlScope)
+        .add("shutdownTimeout", shutdownTimeout).add("virtualThreads", virtualThreads)
+        .toString();
   }
 
   public static class CrawljaxConfigurationBuilder {
@@ -283,6 +311,36 @@ public class CrawljaxConfiguration {
       return this;
     }
 
+    /**
+     * @param time How long to wait for the consumers to stop when the crawl ends. Default is 15
+     *             seconds.
+     */
+    public CrawljaxConfigurationBuilder setShutdownTimeout(long time, TimeUnit unit) {
+      checkArgument(time >= 0, "Time should be 0 or larger.");
+      config.shutdownTimeout = unit.toMillis(time);
+      return this;
+    }
+
+    /**
+     * Run the consumers on virtual threads, so many crawls can share one JVM without a platform
+     * thread per browser. Only has effect on a runtime that has virtual threads (Java 21 or later),
+     * otherwise a regular thread pool is used. Default is <code>false</code>.
+     */
+    public CrawljaxConfigurationBuilder setVirtualThreads(boolean virtualThreads) {
+      config.virtualThreads = virtualThreads;
+      return this;
+    }
+
+    /**
+     * Take the browsers from a pool instead of launching a new browser for every crawler. The pool
+     * can be shared by crawls with the same browser configuration, so they reuse each others
+     * browsers. Default is no pool.
+     */
+    public CrawljaxConfigurationBuilder setBrowserPool(BrowserPool browserPool) {
+      config.browserPool = browserPool;
+      return this;
+    }
+
     /**
      * @param depth The maximum depth the crawler can reach. The default is <code>2</code>.
      */
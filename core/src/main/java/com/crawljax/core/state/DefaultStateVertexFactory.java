@@ -13,4 +13,9 @@ public class DefaultStateVertexFactory extends StateVertexFactory {
       String strippedDom, EmbeddedBrowser browser) {
     return new StateVertexImpl(id, url, name, dom, strippedDom);
   }
+
+  @Override
+  public boolean hasExactEquality() {
+    return true;
+  }
 }
@@ -1,6 +1,7 @@
 package com.crawljax.core.state;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.core.ExitNotifier;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
 import com.google.common.collect.ImmutableList;
@@ -9,6 +10,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,7 +25,6 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.jgrapht.GraphPath;
-import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
 import org.jgrapht.alg.shortestpath.KShortestSimplePaths;
 import org.jgrapht.graph.AbstractBaseGraph;
 import org.jgrapht.graph.DirectedPseudograph;
@@ -53,6 +54,15 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
   private final AtomicInteger nextStateNameCounter = new AtomicInteger();
   private final Map<Integer, StateVertex> stateById;
 
+  /**
+   * States bucketed by their {@link Object#hashCode()}. Only maintained when the
+   * {@link StateVertexFactory#hasExactEquality()}, so clones can be found without a full scan.
+   */
+  private final Map<Integer, List<StateVertex>> statesByHash = new HashMap<>();
+  private final boolean exactEquality;
+  private final NearestStateIndex nearestStateIndex;
+  private final ShortestPaths shortestPaths;
+
   private final ExitNotifier exitNotifier;
   private final StateVertexFactory vertexFactory;
 
@@ -69,7 +79,10 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
   public InMemoryStateFlowGraph(ExitNotifier exitNotifier, StateVertexFactory vertexFactory) {
     this.exitNotifier = exitNotifier;
     this.vertexFactory = vertexFactory;
+    this.exactEquality = vertexFactory.hasExactEquality();
+    this.nearestStateIndex = vertexFactory.createNearestStateIndex();
     sfg = new DirectedPseudograph<>(Eventable.class);
+    shortestPaths = new ShortestPaths(sfg);
     stateById = Collections.synchronizedMap(new HashMap<>());
     LOG.debug("Initialized the state-flow graph");
     ReadWriteLock lock = new ReentrantReadWriteLock();
@@ -134,6 +147,11 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
           LOG.info("Vertex should be added !!" + stateVertex);
         }
         stateById.put(stateVertex.getId(), stateVertex);
+        nearestStateIndex.add(stateVertex);
+        if (exactEquality) {
+          statesByHash.computeIfAbsent(stateVertex.hashCode(), hash -> new ArrayList<>(1))
+              .add(stateVertex);
+        }
         int count = stateCounter.incrementAndGet();
         exitNotifier.incrementNumberOfStates();
         LOG.info("Number of states in the graph is now {}", count);
@@ -149,18 +167,10 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
   }
 
   private void setNearDuplicate(StateVertex vertex) {
-    double minDistance = -1.0;
-    StateVertex closestVertex = null;
-    for (StateVertex vertexOfGraph : sfg.vertexSet()) {
-      double dist = vertex.getDist(vertexOfGraph);
-
-      if (minDistance == -1 || dist < minDistance) {
-        minDistance = dist;
-        closestVertex = vertexOfGraph;
-      }
-    }
-    if (closestVertex != null) {
-      vertex.setDistToNearestState(minDistance);
+    NearestStateIndex.Neighbour nearest = nearestStateIndex.findNearest(vertex);
+    if (nearest != null) {
+      StateVertex closestVertex = nearest.getState();
+      vertex.setDistToNearestState(nearest.getDistance());
       vertex.setNearestState(closestVertex.getId());
 
       // TODO: recognize clusters and calculate min distance to the cluster
@@ -178,7 +188,7 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
    */
   @Override
   public boolean hasClone(StateVertex vertex) {
-    for (StateVertex vertexOfGraph : sfg.vertexSet()) {
+    for (StateVertex vertexOfGraph : getCloneCandidates(vertex)) {
       if (vertex.equals(vertexOfGraph)) {
         if (vertexOfGraph instanceof HybridStateVertexImpl) {
           ((HybridStateVertexImpl) vertexOfGraph).assignDynamicFragments(vertex);
@@ -189,6 +199,21 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
     return false;
   }
 
+  /**
+   * @param vertex the state to find clones of.
+   * @return the states that can possibly be equal to the given state. That is the bucket with the
+   * same hash code for abstractions with an exact equality, the candidates of the
+   * {@link NearestStateIndex} if it can narrow them down, and all states otherwise.
+   */
+  private Collection<StateVertex> getCloneCandidates(StateVertex vertex) {
+    if (exactEquality) {
+      List<StateVertex> bucket = statesByHash.get(vertex.hashCode());
+      return bucket == null ? Collections.emptyList() : bucket;
+    }
+    Collection<StateVertex> candidates = nearestStateIndex.findCloneCandidates(vertex);
+    return candidates == null ? sfg.vertexSet() : candidates;
+  }
+
   @Override
   public StateVertex getById(int id) {
     return stateById.get(id);
@@ -221,7 +246,9 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
     writeLock.lock();
     try {
       boolean added = sfg.addEdge(sourceVertex, targetVertex, clickable);
-      if (!added) {
+      if (added) {
+        shortestPaths.edgeAdded(clickable);
+      } else {
         Set<Eventable> allEdges = sfg.getAllEdges(sourceVertex, targetVertex);
         for (Eventable edge : allEdges) {
           if (edge.equals(clickable)) {
@@ -283,8 +310,17 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
   public ImmutableList<Eventable> getShortestPath(StateVertex start, StateVertex end) {
     readLock.lock();
     try {
-      return ImmutableList
-          .copyOf(DijkstraShortestPath.findPathBetween(sfg, start, end).getEdgeList());
+      return shortestPaths.getShortestPath(start, end);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  @Override
+  public int getDistance(StateVertex start, StateVertex end) {
+    readLock.lock();
+    try {
+      return shortestPaths.getDistance(start, end);
     } finally {
       readLock.unlock();
     }
@@ -313,7 +349,7 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
   private StateVertex getStateInGraph(StateVertex state) {
     readLock.lock();
     try {
-      for (StateVertex st : sfg.vertexSet()) {
+      for (StateVertex st : getCloneCandidates(state)) {
         if (state.equals(st)) {
           return st;
         }
@@ -353,6 +389,16 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
         browser);
   }
 
+  /**
+   * @param capture     the captured page of the new state
+   * @param strippedDom the stripped dom by the OracleComparators
+   * @return a new state for the captured page, not yet added to the graph.
+   */
+  public StateVertex newStateFor(PageCapture capture, String strippedDom) {
+    int id = nextStateNameCounter.incrementAndGet();
+    return vertexFactory.newStateVertex(id, getNewStateName(id), capture, strippedDom);
+  }
+
   private String getNewStateName(int id) {
     return "state" + id;
   }
@@ -433,7 +479,13 @@ public class InMemoryStateFlowGraph implements Serializable, StateFlowGraph {
   @Override
   public boolean removeEdge(Eventable event) {
     this.expiredEdges.add(event);
-    sfg.removeEdge(event);
+    writeLock.lock();
+    try {
+      shortestPaths.edgeRemoved(event);
+      sfg.removeEdge(event);
+    } finally {
+      writeLock.unlock();
+    }
     return true;
   }
 
@@ -0,0 +1,36 @@
+package com.crawljax.core.state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The default {@link NearestStateIndex} that compares a state against every indexed state. It
+ * makes no assumptions about {@link StateVertex#getDist(StateVertex)} and can therefore be used
+ * with any state abstraction.
+ */
+public class LinearNearestStateIndex implements NearestStateIndex {
+
+  private static final long serialVersionUID = 4418023581234506571L;
+
+  private final List<StateVertex> states = new ArrayList<>();
+
+  @Override
+  public void add(StateVertex state) {
+    states.add(state);
+  }
+
+  @Override
+  public Neighbour findNearest(StateVertex state) {
+    double minDistance = -1.0;
+    StateVertex closestVertex = null;
+    for (StateVertex indexed : states) {
+      double dist = state.getDist(indexed);
+
+      if (minDistance == -1 || dist < minDistance) {
+        minDistance = dist;
+        closestVertex = indexed;
+      }
+    }
+    return closestVertex == null ? null : new Neighbour(closestVertex, minDistance);
+  }
+}
@@ -0,0 +1,66 @@
+package com.crawljax.core.state;
+
+import com.google.common.base.MoreObjects;
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * An index over the states of the {@link StateFlowGraph} that finds the state closest to a given
+ * state according to {@link StateVertex#getDist(StateVertex)}. The index to use is provided by the
+ * {@link StateVertexFactory#createNearestStateIndex()}.
+ */
+public interface NearestStateIndex extends Serializable {
+
+  /**
+   * @param state the state to add to the index.
+   */
+  void add(StateVertex state);
+
+  /**
+   * @param state the state to find the nearest neighbour of.
+   * @return the closest indexed state or <code>null</code> if the index is empty. Ties are broken
+   * in favour of the state that was added first.
+   */
+  Neighbour findNearest(StateVertex state);
+
+  /**
+   * Narrows down the states that have to be compared when looking for a clone of the given state.
+   *
+   * @param state the state to find clones of.
+   * @return the indexed states that can be equal to the given state, in the order they were added,
+   * or <code>null</code> if the index cannot narrow them down.
+   */
+  default Collection<StateVertex> findCloneCandidates(StateVertex state) {
+    return null;
+  }
+
+  /**
+   * A state in the index together with its distance to the queried state.
+   */
+  final class Neighbour {
+
+    private final StateVertex state;
+    private final double distance;
+
+    public Neighbour(StateVertex state, double distance) {
+      this.state = state;
+      this.distance = distance;
+    }
+
+    public StateVertex getState() {
+      return state;
+    }
+
+    public double getDistance() {
+      return distance;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("state", state)
+          .add("distance", distance)
+          .toString();
+    }
+  }
+}
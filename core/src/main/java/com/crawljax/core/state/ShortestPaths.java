@@ -0,0 +1,168 @@
+package com.crawljax.core.state;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jgrapht.Graph;
+
+/**
+ * Breadth-first shortest paths over the state-flow graph. The shortest path tree of every queried
+ * source state is cached, so repeated queries from the same source, like backtracking from the
+ * index or computing the hops from the states loaded by URL, do not traverse the graph again.
+ * <p>
+ * The trees are kept up to date as the graph changes. An added edge only relaxes the states it
+ * brings closer. A removed edge only drops the trees it was part of, which are rebuilt on their
+ * next query.
+ * <p>
+ * Updates have to be made while no queries run. The {@link InMemoryStateFlowGraph} updates it under
+ * its write lock and queries it under its read lock.
+ */
+@SuppressWarnings("serial")
+class ShortestPaths implements Serializable {
+
+  private static final int MAX_CACHED_SOURCES = 128;
+
+  private final Graph<StateVertex, Eventable> graph;
+  private transient LoadingCache<StateVertex, Tree> trees;
+
+  ShortestPaths(Graph<StateVertex, Eventable> graph) {
+    this.graph = graph;
+    this.trees = newCache();
+  }
+
+  /**
+   * @param start the source state.
+   * @param end   the target state.
+   * @return the edges of a shortest path from start to end.
+   * @throws IllegalArgumentException when either state is not in the graph or end can not be
+   *                                  reached from start.
+   */
+  ImmutableList<Eventable> getShortestPath(StateVertex start, StateVertex end) {
+    Tree tree = treeOf(start);
+    Integer distance = tree.distances.get(end);
+    if (distance == null) {
+      throw new IllegalArgumentException("No path from " + start.getName() + " to "
+          + end.getName());
+    }
+    List<Eventable> path = new ArrayList<>(distance);
+    StateVertex state = end;
+    for (int i = 0; i < distance; i++) {
+      Eventable edge = tree.parents.get(state);
+      path.add(edge);
+      state = graph.getEdgeSource(edge);
+    }
+    return ImmutableList.copyOf(Lists.reverse(path));
+  }
+
+  /**
+   * @param start the source state.
+   * @param end   the target state.
+   * @return the number of edges on a shortest path from start to end or <code>-1</code> if end can
+   * not be reached from start.
+   */
+  int getDistance(StateVertex start, StateVertex end) {
+    Integer distance = treeOf(start).distances.get(end);
+    return distance == null ? -1 : distance;
+  }
+
+  /**
+   * Relaxes the cached trees the edge shortens. Call after the edge is added to the graph.
+   */
+  void edgeAdded(Eventable edge) {
+    StateVertex source = graph.getEdgeSource(edge);
+    StateVertex target = graph.getEdgeTarget(edge);
+    for (Tree tree : trees.asMap().values()) {
+      Integer sourceDistance = tree.distances.get(source);
+      if (sourceDistance == null) {
+        continue;
+      }
+      Integer targetDistance = tree.distances.get(target);
+      if (targetDistance == null || sourceDistance + 1 < targetDistance) {
+        tree.distances.put(target, sourceDistance + 1);
+        tree.parents.put(target, edge);
+        Deque<StateVertex> queue = new ArrayDeque<>();
+        queue.add(target);
+        relax(tree, queue);
+      }
+    }
+  }
+
+  /**
+   * Drops the cached trees the edge is part of. Call before the edge is removed from the graph.
+   */
+  void edgeRemoved(Eventable edge) {
+    if (!graph.containsEdge(edge)) {
+      return;
+    }
+    StateVertex target = graph.getEdgeTarget(edge);
+    trees.asMap().values().removeIf(tree -> edge.equals(tree.parents.get(target)));
+  }
+
+  private Tree treeOf(StateVertex start) {
+    if (!graph.containsVertex(start)) {
+      throw new IllegalArgumentException(start.getName() + " is not in the graph");
+    }
+    return trees.getUnchecked(start);
+  }
+
+  private Tree build(StateVertex source) {
+    Tree tree = new Tree();
+    tree.distances.put(source, 0);
+    Deque<StateVertex> queue = new ArrayDeque<>();
+    queue.add(source);
+    relax(tree, queue);
+    return tree;
+  }
+
+  /**
+   * Breadth-first relaxation from the queued states. All queued states have to be at the same
+   * distance, so states are dequeued in order of distance.
+   */
+  private void relax(Tree tree, Deque<StateVertex> queue) {
+    while (!queue.isEmpty()) {
+      StateVertex state = queue.poll();
+      int next = tree.distances.get(state) + 1;
+      for (Eventable edge : graph.outgoingEdgesOf(state)) {
+        StateVertex target = graph.getEdgeTarget(edge);
+        Integer distance = tree.distances.get(target);
+        if (distance == null || next < distance) {
+          tree.distances.put(target, next);
+          tree.parents.put(target, edge);
+          queue.add(target);
+        }
+      }
+    }
+  }
+
+  private LoadingCache<StateVertex, Tree> newCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_SOURCES)
+        .build(CacheLoader.from(this::build));
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    trees = newCache();
+  }
+
+  /**
+   * The shortest path tree of a source state: the distance of every reachable state and the edge
+   * it is reached by.
+   */
+  private static final class Tree {
+
+    private final Map<StateVertex, Integer> distances = new HashMap<>();
+    private final Map<StateVertex, Eventable> parents = new HashMap<>();
+  }
+}
@@ -48,14 +48,25 @@ public interface StateFlowGraph {
   boolean canGoTo(StateVertex source, StateVertex target);
 
   /**
-   * Convenience method to find the Dijkstra shortest path between two states on the graph.
+   * Convenience method to find the shortest path between two states on the graph.
    *
    * @param start the start state.
    * @param end   the end state.
    * @return a list of shortest path of clickables from the state to the end
+   * @throws IllegalArgumentException when either state is not in the graph or end can not be
+   *                                  reached from start. Use {@link #getDistance(StateVertex,
+   *                                  StateVertex)} to check first.
    */
   ImmutableList<Eventable> getShortestPath(StateVertex start, StateVertex end);
 
+  /**
+   * @param start the start state.
+   * @param end   the end state.
+   * @return the number of clickables on the shortest path from start to end or <code>-1</code> if
+   * end can not be reached from start.
+   */
+  int getDistance(StateVertex start, StateVertex end);
+
   /**
    * Return all the states in the StateFlowGraph.
    *
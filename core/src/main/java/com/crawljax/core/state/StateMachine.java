@@ -1,6 +1,7 @@
 package com.crawljax.core.state;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.condition.ConditionTypeChecker;
 import com.crawljax.condition.invariant.Invariant;
 import com.crawljax.core.CrawlerContext;
@@ -49,8 +50,8 @@ public class StateMachine {
   }
 
   public StateVertex newStateFor(EmbeddedBrowser browser) {
-    return stateFlowGraph.newStateFor(browser.getCurrentUrl(), browser.getStrippedDom(),
-        stateComparator.getStrippedDom(browser), browser);
+    PageCapture capture = PageCapture.of(browser);
+    return stateFlowGraph.newStateFor(capture, stateComparator.getStrippedDom(capture));
   }
 
   /**
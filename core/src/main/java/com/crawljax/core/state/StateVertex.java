@@ -58,6 +58,13 @@ public interface StateVertex extends Serializable {
    */
   Document getDocument() throws IOException;
 
+  /**
+   * @return the Document to extract the candidate elements of this state from. The same as
+   * {@link #getDocument()}, unless the state can hand out a copy while its DOM is still processed.
+   * @throws IOException if an exception is thrown.
+   */
+  Document getCandidateDocument() throws IOException;
+
   void setDocument(Document dom);
 
   /**
@@ -1,6 +1,7 @@
 package com.crawljax.core.state;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 
 /**
  * A factory that creates a {@link com.crawljax.core.state.StateVertex}. This factory can be
@@ -27,4 +28,51 @@ public abstract class StateVertexFactory {
       EmbeddedBrowser browser) {
     return newStateVertex(StateVertex.INDEX_ID, url, "index", dom, strippedDom, browser);
   }
+
+  /**
+   * Defines a State from a {@link PageCapture}. By default this delegates to
+   * {@link #newStateVertex(int, String, String, String, String, EmbeddedBrowser)}. Override it to
+   * reuse the page data, such as the screenshot, that was already captured for this state.
+   *
+   * @param name        the name of the state
+   * @param capture     the captured page
+   * @param strippedDom the stripped dom by the OracleComparators
+   */
+  public StateVertex newStateVertex(int id, String name, PageCapture capture,
+      String strippedDom) {
+    return newStateVertex(id, capture.getUrl(), name, capture.getDom(), strippedDom,
+        capture.getBrowser());
+  }
+
+  /**
+   * @return The index {@link StateVertex}.
+   */
+  public StateVertex createIndex(PageCapture capture, String strippedDom) {
+    return newStateVertex(StateVertex.INDEX_ID, "index", capture, strippedDom);
+  }
+
+  /**
+   * Whether the {@link Object#equals(Object)} of the created states is exact, meaning two states
+   * can only be equal when their {@link Object#hashCode()} is equal. If so, the
+   * {@link InMemoryStateFlowGraph} detects clones with a hash lookup instead of comparing the new
+   * state against every state in the graph. Abstractions with a threshold based equality must keep
+   * the default.
+   *
+   * @return <code>true</code> if equal states are guaranteed to have equal hash codes.
+   */
+  public boolean hasExactEquality() {
+    return false;
+  }
+
+  /**
+   * Creates the index the {@link InMemoryStateFlowGraph} uses to find the nearest state of a new
+   * state. By default every state is compared. Abstractions whose
+   * {@link StateVertex#getDist(StateVertex)} is a metric can return a
+   * {@link VantagePointTreeIndex} instead.
+   *
+   * @return a new, empty, {@link NearestStateIndex}.
+   */
+  public NearestStateIndex createNearestStateIndex() {
+    return new LinearNearestStateIndex();
+  }
 }
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import javax.xml.xpath.XPathExpressionException;
 import org.openqa.selenium.WebDriver;
 import org.slf4j.Logger;
@@ -39,7 +40,8 @@ public class StateVertexImpl implements StateVertex {
   private transient Document document;
   private final String name;
 
-  private final transient HashMap<Node, List<CandidateElement>> nodeCandidateMapping = new HashMap<>();
+  private transient volatile Map<Node, List<CandidateElement>> nodeCandidateMapping =
+      new HashMap<>();
 
   private transient ImmutableList<CandidateElement> candidateElements;
 
@@ -145,6 +147,11 @@ public class StateVertexImpl implements StateVertex {
     return DomUtils.asDocument(this.strippedDom);
   }
 
+  @Override
+  public Document getCandidateDocument() throws IOException {
+    return getDocument();
+  }
+
   @Override
   public void setDocument(Document dom) {
     this.document = dom;
@@ -156,13 +163,19 @@ public class StateVertexImpl implements StateVertex {
     createNodeCandidateMapping();
   }
 
-  private void createNodeCandidateMapping() {
+  /**
+   * Maps the elements of the candidates to the candidates. Call it again when the candidates are
+   * moved to other elements.
+   */
+  protected void createNodeCandidateMapping() {
+    Map<Node, List<CandidateElement>> mapping = new HashMap<>();
     for (CandidateElement candidate : candidateElements) {
-      if (!nodeCandidateMapping.containsKey(candidate.getElement())) {
-        nodeCandidateMapping.put(candidate.getElement(), new ArrayList<>());
+      if (!mapping.containsKey(candidate.getElement())) {
+        mapping.put(candidate.getElement(), new ArrayList<>());
       }
-      nodeCandidateMapping.get(candidate.getElement()).add(candidate);
+      mapping.get(candidate.getElement()).add(candidate);
     }
+    nodeCandidateMapping = mapping;
   }
 
   public List<CandidateElement> getCandidateElement(Node equivalentNode) {
@@ -0,0 +1,135 @@
+package com.crawljax.core.state;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A {@link NearestStateIndex} backed by a vantage-point tree. Every node splits the states below it
+ * by their distance to the node's state, so that a search can skip whole subtrees using the
+ * triangle inequality. This is only correct if {@link StateVertex#getDist(StateVertex)} is a
+ * metric, which is why state abstractions have to opt in through
+ * {@link StateVertexFactory#createNearestStateIndex()}.
+ * <p>
+ * The tree is built incrementally: the radius of a node is the distance to the first state added
+ * below it. It is not rebalanced, but unlike a linear scan a search typically only computes the
+ * distance to a fraction of the states.
+ */
+public class VantagePointTreeIndex implements NearestStateIndex {
+
+  private static final long serialVersionUID = 3581203489237523418L;
+
+  private Node root;
+  private int size;
+
+  @Override
+  public void add(StateVertex state) {
+    Node added = new Node(state, size++);
+    if (root == null) {
+      root = added;
+      return;
+    }
+    Node node = root;
+    while (true) {
+      double dist = state.getDist(node.state);
+      if (Double.isNaN(node.radius)) {
+        node.radius = dist;
+        node.outside = added;
+        return;
+      }
+      if (dist < node.radius) {
+        if (node.inside == null) {
+          node.inside = added;
+          return;
+        }
+        node = node.inside;
+      } else {
+        if (node.outside == null) {
+          node.outside = added;
+          return;
+        }
+        node = node.outside;
+      }
+    }
+  }
+
+  @Override
+  public Neighbour findNearest(StateVertex state) {
+    if (root == null) {
+      return null;
+    }
+    Node best = null;
+    double bestDistance = Double.POSITIVE_INFINITY;
+
+    Deque<Candidate> toVisit = new ArrayDeque<>();
+    toVisit.push(new Candidate(root, 0));
+    while (!toVisit.isEmpty()) {
+      Candidate candidate = toVisit.pop();
+      if (candidate.lowerBound > bestDistance) {
+        continue;
+      }
+      Node node = candidate.node;
+      double dist = state.getDist(node.state);
+      if (best == null || dist < bestDistance
+          || (dist == bestDistance && node.order < best.order)) {
+        best = node;
+        bestDistance = dist;
+      }
+      if (Double.isNaN(node.radius)) {
+        continue;
+      }
+
+      // Any state inside the radius is at least dist - radius away, and any state outside it at
+      // least radius - dist. Visit the side the query falls in first.
+      Candidate inside = node.inside == null ? null
+          : new Candidate(node.inside, Math.max(0, dist - node.radius));
+      Candidate outside = new Candidate(node.outside, Math.max(0, node.radius - dist));
+      if (dist < node.radius) {
+        toVisit.push(outside);
+        if (inside != null) {
+          toVisit.push(inside);
+        }
+      } else {
+        if (inside != null) {
+          toVisit.push(inside);
+        }
+        toVisit.push(outside);
+      }
+    }
+    return new Neighbour(best.state, bestDistance);
+  }
+
+  /**
+   * @return the number of states in the index.
+   */
+  public int size() {
+    return size;
+  }
+
+  private static final class Node implements Serializable {
+
+    private static final long serialVersionUID = 7290125734471091823L;
+
+    private final StateVertex state;
+    private final int order;
+    private double radius = Double.NaN;
+    private Node inside;
+    private Node outside;
+
+    private Node(StateVertex state, int order) {
+      this.state = state;
+      this.order = order;
+    }
+  }
+
+  private static final class Candidate {
+
+    private final Node node;
+    private final double lowerBound;
+
+    private Candidate(Node node, double lowerBound) {
+      this.node = node;
+      this.lowerBound = lowerBound;
+    }
+  }
+}
@@ -6,6 +6,7 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PooledBrowserBuilder;
 import com.crawljax.browser.WebDriverBrowserBuilder;
 import com.crawljax.core.configuration.BrowserConfiguration;
 import com.crawljax.core.configuration.CrawlRules;
@@ -40,7 +41,9 @@ public class ConfigurationModule extends AbstractModule {
     BrowserConfiguration browserConfig = config.getBrowserConfig();
     bind(BrowserConfiguration.class).toInstance(browserConfig);
 
-    if (browserConfig.isDefaultBuilder()) {
+    if (config.getBrowserPool() != null) {
+      bind(EmbeddedBrowser.class).toProvider(PooledBrowserBuilder.class);
+    } else if (browserConfig.isDefaultBuilder()) {
       bind(EmbeddedBrowser.class).toProvider(WebDriverBrowserBuilder.class);
     } else {
       bind(EmbeddedBrowser.class).toProvider(
@@ -5,6 +5,7 @@ import com.crawljax.condition.ConditionTypeChecker;
 import com.crawljax.condition.crawlcondition.CrawlCondition;
 import com.crawljax.core.CandidateElementExtractor;
 import com.crawljax.core.CandidateElementManager;
+import com.crawljax.core.CrawlExecutors;
 import com.crawljax.core.CrawlSession;
 import com.crawljax.core.ExitNotifier;
 import com.crawljax.core.ExtractorManager;
@@ -20,7 +21,6 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +44,8 @@ public class CoreModule extends AbstractModule {
 
     bind(ExitNotifier.class).toInstance(new ExitNotifier(configuration.getMaximumStates()));
 
-    bind(ExecutorService.class).toInstance(Executors.newCachedThreadPool());
+    bind(ExecutorService.class)
+        .toInstance(CrawlExecutors.newConsumerExecutor(configuration.isVirtualThreads()));
 
     bind(CrawlSession.class).toProvider(CrawlSessionProvider.class);
 
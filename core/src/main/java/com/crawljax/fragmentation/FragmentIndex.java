@@ -0,0 +1,151 @@
+package com.crawljax.fragmentation;
+
+import com.crawljax.stateabstractions.dom.apted.node.AptedNode;
+import com.crawljax.stateabstractions.dom.apted.node.StringNodeData;
+import com.crawljax.stateabstractions.dom.apted.util.AptedUtils;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes the unique fragments by a hash of their APTED tree, so a new fragment is only compared
+ * with the fragments that can be equal or equivalent to it. {@link Fragment#compare(Fragment)}
+ * finds two fragments different unless the edit distance of their trees is 0, that is unless both
+ * trees have the same labels in the same shape and so the same hash. Fragments with the same hash
+ * are still compared in full, so a hash collision does not change the result.
+ * <p>
+ * With visual data the labels include the visibility of a node, but only when both states have
+ * visual data. Fragments of states with visual data are therefore indexed with and without it.
+ * Fragments whose tree cannot be hashed are compared with every fragment.
+ */
+class FragmentIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FragmentIndex.class);
+
+  private final List<Entry> entries = new ArrayList<>();
+  private final List<Entry> unindexed = new ArrayList<>();
+  private final Map<HashCode, List<Entry>> byStructure = new HashMap<>();
+  private final Map<HashCode, List<Entry>> byVisualStructure = new HashMap<>();
+
+  /**
+   * @param fragment the fragment to hash.
+   * @return the signature of the fragment, or <code>null</code> if its tree cannot be hashed.
+   */
+  static Signature sign(Fragment fragment) {
+    try {
+      HashCode structure = hash(AptedUtils.getAptedTree(fragment, false));
+      HashCode visualStructure = null;
+      if (((HybridStateVertexImpl) fragment.getReferenceState()).isVisualData()) {
+        visualStructure = hash(AptedUtils.getAptedTree(fragment, true));
+      }
+      return new Signature(structure, visualStructure);
+    } catch (RuntimeException e) {
+      LOG.debug("Could not hash fragment {}: {}", fragment.getId(), e.getMessage());
+      return null;
+    }
+  }
+
+  private static HashCode hash(AptedNode<StringNodeData> tree) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hash(tree, hasher);
+    return hasher.hash();
+  }
+
+  private static void hash(AptedNode<StringNodeData> node, Hasher hasher) {
+    String label = node.getNodeData().getLabel();
+    hasher.putInt(label.length()).putUnencodedChars(label).putInt(node.getChildren().size());
+    for (AptedNode<StringNodeData> child : node.getChildren()) {
+      hash(child, hasher);
+    }
+  }
+
+  /**
+   * @param signature the signature of a new fragment, <code>null</code> if it has none.
+   * @return the indexed fragments the new fragment can be equal or equivalent to, in the order
+   * they were added.
+   */
+  List<Fragment> getCandidates(Signature signature) {
+    if (signature == null) {
+      return fragments(entries);
+    }
+    List<Entry> candidates = new ArrayList<>(unindexed);
+    for (Entry entry : byStructure.getOrDefault(signature.structure,
+        Collections.emptyList())) {
+      if (signature.visualStructure == null || entry.signature.visualStructure == null) {
+        candidates.add(entry);
+      }
+    }
+    if (signature.visualStructure != null) {
+      candidates.addAll(byVisualStructure.getOrDefault(signature.visualStructure,
+          Collections.emptyList()));
+    }
+    candidates.sort(Comparator.comparingInt(entry -> entry.order));
+    return fragments(candidates);
+  }
+
+  /**
+   * @param fragment  the fragment to index.
+   * @param signature the signature of the fragment, <code>null</code> if it has none.
+   */
+  void add(Fragment fragment, Signature signature) {
+    Entry entry = new Entry(entries.size(), fragment, signature);
+    entries.add(entry);
+    if (signature == null) {
+      unindexed.add(entry);
+      return;
+    }
+    byStructure.computeIfAbsent(signature.structure, hash -> new ArrayList<>()).add(entry);
+    if (signature.visualStructure != null) {
+      byVisualStructure.computeIfAbsent(signature.visualStructure, hash -> new ArrayList<>())
+          .add(entry);
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private static List<Fragment> fragments(List<Entry> entries) {
+    List<Fragment> fragments = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      fragments.add(entry.fragment);
+    }
+    return fragments;
+  }
+
+  /**
+   * The hash of the tree of a fragment, and of its tree with visual data if its state has any.
+   */
+  static final class Signature {
+
+    private final HashCode structure;
+    private final HashCode visualStructure;
+
+    private Signature(HashCode structure, HashCode visualStructure) {
+      this.structure = structure;
+      this.visualStructure = visualStructure;
+    }
+  }
+
+  private static final class Entry {
+
+    private final int order;
+    private final Fragment fragment;
+    private final Signature signature;
+
+    private Entry(int order, Fragment fragment, Signature signature) {
+      this.order = order;
+      this.fragment = fragment;
+      this.signature = signature;
+    }
+  }
+}
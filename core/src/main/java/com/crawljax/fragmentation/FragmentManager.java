@@ -7,20 +7,29 @@ import com.crawljax.core.state.StatePair.StateComparision;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.fragmentation.Fragment.FragmentComparision;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl.DomTree;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl.TreeDistance;
 import com.crawljax.stateabstractions.visual.ColorHistogram;
 import com.crawljax.util.DomUtils;
 import com.crawljax.util.XPathHelper;
 import com.crawljax.vips_selenium.VipsUtils;
 import com.crawljax.vips_selenium.VipsUtils.AccessType;
 import com.crawljax.vips_selenium.VipsUtils.Coverage;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Provider;
 import javax.xml.xpath.XPathExpressionException;
 import org.opencv.core.Mat;
@@ -38,19 +47,61 @@ public class FragmentManager {
    */
   ArrayList<Fragment> fragments = new ArrayList<>();
 
+  /**
+   * The global fragments by the hash of their tree, to find the fragments a new fragment has to be
+   * compared with.
+   */
+  private FragmentIndex fragmentIndex = new FragmentIndex();
+
   /**
    * Global map that maintains clusters of states. Each entry in the list is a set of states that
    * are near-duplicates to each other
    */
   List<Set<StateVertex>> nearDuplicates = new ArrayList<>();
 
-  HashMap<StatePair, StatePair> stateComparisionCache = new HashMap<>();
+  ConcurrentMap<StatePair, StatePair> stateComparisionCache = new ConcurrentHashMap<>();
   HashMap<Integer, Double> hops = new HashMap<>();
   private Provider<InMemoryStateFlowGraph> sfg;
-  private final HashMap<Integer, Double> numNonSelections = new HashMap<>();
+
+  /**
+   * Incremented every time a state is selected. The number of times a state has not been selected
+   * is the current epoch minus the epoch it was last selected in.
+   */
+  private final AtomicLong selectionEpoch = new AtomicLong();
+  private final ConcurrentMap<Integer, Long> lastSelectionEpochs = new ConcurrentHashMap<>();
+
+  /**
+   * Incremented after a fragment is added, as that can change the duplicate and equivalent
+   * fragments the duplication factor of a candidate is computed from.
+   */
+  private final AtomicLong fragmentVersion = new AtomicLong();
+
+  /**
+   * The duplication factor of every candidate, valid as long as the fragment version is unchanged.
+   * Weak keys, so candidates are compared by identity and dropped with their state.
+   */
+  private final Cache<CandidateElement, DuplicationFactor> duplicationFactors =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  /**
+   * Computes the DOM differences of a new state to the other states in parallel, or
+   * <code>null</code> to compare the states one by one.
+   */
+  private final ForkJoinPool comparisonPool;
 
   public FragmentManager(Provider<InMemoryStateFlowGraph> graphProvider) {
+    this(graphProvider, 1);
+  }
+
+  /**
+   * @param graphProvider         the state-flow graph.
+   * @param comparisonParallelism the number of threads comparing a new state to the other states.
+   */
+  public FragmentManager(Provider<InMemoryStateFlowGraph> graphProvider,
+      int comparisonParallelism) {
     this.sfg = graphProvider;
+    this.comparisonPool =
+        comparisonParallelism > 1 ? new ForkJoinPool(comparisonParallelism) : null;
   }
 
   private static int getFragmentWidth(Fragment fragment) throws XPathExpressionException {
@@ -159,8 +210,7 @@ public class FragmentManager {
   }
 
   public void cacheStateComparision(StatePair statePair, boolean assignDynamic) {
-    if (!stateComparisionCache.containsKey(statePair)) {
-      stateComparisionCache.put(statePair, statePair);
+    if (stateComparisionCache.putIfAbsent(statePair, statePair) == null) {
       StateComparision comp = statePair.getStateComparision();
       if (assignDynamic && (comp.equals(StateComparision.NEARDUPLICATE1) || comp.equals(
           StateComparision.NEARDUPLICATE2))) {
@@ -254,15 +304,25 @@ public class FragmentManager {
 
   /**
    * Every fragment that is discovered during the crawl will be compared with the global map of
-   * unique fragments
+   * unique fragments. Only the unique fragments with the same tree can be equal or equivalent, so
+   * the others are skipped using the {@link FragmentIndex}.
    *
    * @param fragment the fragment to be added
    * @param fast     if true, the comparison will be done using the fast comparison algorithm
    */
   public void addFragment(Fragment fragment, boolean fast) {
+    try {
+      compareAndAddFragment(fragment, fast);
+    } finally {
+      fragmentVersion.incrementAndGet();
+    }
+  }
+
+  private void compareAndAddFragment(Fragment fragment, boolean fast) {
     ArrayList<Fragment> equivalentFragments = new ArrayList<>();
     ArrayList<Fragment> nd2Fragments = new ArrayList<>();
-    for (Fragment existingFragment : fragments) {
+    FragmentIndex.Signature signature = FragmentIndex.sign(fragment);
+    for (Fragment existingFragment : fragmentIndex.getCandidates(signature)) {
       try {
 
         FragmentComparision comp =
@@ -293,6 +353,7 @@ public class FragmentManager {
 
     fragment.setIsGlobal(true);
     fragments.add(fragment);
+    fragmentIndex.add(fragment, signature);
 
     for (Fragment existingFragment : equivalentFragments) {
       existingFragment.addEquivalentFragment(fragment);
@@ -541,7 +602,7 @@ public class FragmentManager {
     }
   }
 
-  private Set<StateVertex> getNearDuplicates(StateVertex state) {
+  private synchronized Set<StateVertex> getNearDuplicates(StateVertex state) {
     Set<StateVertex> returnSet = new HashSet<>();
     for (Set<StateVertex> nearduplicateSet : nearDuplicates) {
       if (nearduplicateSet.contains(state)) {
@@ -630,7 +691,7 @@ public class FragmentManager {
    * @return
    */
   public StateVertex getClosestUnexploredState(StateVertex currentState, List<StateVertex> onURLSet,
-      BlockingQueue<Integer> statesWithCandidates, boolean applyNonSelAdvantage) {
+      Set<Integer> statesWithCandidates, boolean applyNonSelAdvantage) {
     // Selector = Influence - Hops
     long start = System.currentTimeMillis();
     HashMap<StateVertex, Double> hops = new HashMap<>();
@@ -675,12 +736,9 @@ public class FragmentManager {
         double influence = 0;
         double candidateInfluence = calculateFragmentCandidateInfluence(state.getRootFragment());
         double hopInfluence = calculateHops(state.getRootFragment(), currentState, onURLSet);
-        // Remove this assigning non seelctions: already done in unfiredCandidates.seenState()
-        if (numNonSelections.containsKey(state.getId())) {
-        } else {
-          numNonSelections.put(state.getId(), 1.0);
-        }
-        double nonSelectionAdvantage = numNonSelections.get(state.getId());
+        // A state that was never selected starts out as not selected once.
+        lastSelectionEpochs.computeIfAbsent(state.getId(), id -> selectionEpoch.get() - 1);
+        double nonSelectionAdvantage = getNumNonSelections(state.getId());
 
         influence = candidateInfluence - hopInfluence;
         if (applyNonSelAdvantage) {
@@ -722,13 +780,17 @@ public class FragmentManager {
     int size = onURLSet.size();
 
     for (StateVertex onURL : onURLSet) {
+      int distance = -1;
       try {
-        averageHopsFromURLLoad += sfg.get().getShortestPath(onURL, fragment.getReferenceState())
-            .size();
+        distance = sfg.get().getDistance(onURL, fragment.getReferenceState());
       } catch (Exception ex) {
+        LOG.debug("Could not compute the hops from {}", onURL.getName());
+      }
+      if (distance < 0) {
         size = size - 1;
+      } else {
+        averageHopsFromURLLoad += distance;
       }
-
     }
 
     if (size <= 0) {
@@ -783,7 +845,26 @@ public class FragmentManager {
     return fragmentInfluence;
   }
 
+  /**
+   * The duplication factor only changes when fragments are added, so it is cached per candidate
+   * until the next fragment is added.
+   *
+   * @param element the candidate element
+   * @param state   the state the candidate belongs to
+   * @return the duplication factor of the candidate
+   */
   public double calculateDuplicationFactor(CandidateElement element, StateVertex state) {
+    long version = fragmentVersion.get();
+    DuplicationFactor cached = duplicationFactors.getIfPresent(element);
+    if (cached != null && cached.version == version && cached.stateId == state.getId()) {
+      return cached.factor;
+    }
+    double factor = computeDuplicationFactor(element, state);
+    duplicationFactors.put(element, new DuplicationFactor(state.getId(), version, factor));
+    return factor;
+  }
+
+  private double computeDuplicationFactor(CandidateElement element, StateVertex state) {
     Fragment closest = null;
     try {
       closest = state.getClosestFragment(element);
@@ -952,11 +1033,24 @@ public class FragmentManager {
    */
   public StateComparision cacheStateComparision(StateVertex newState, StateVertex expectedState,
       boolean assignDynamic) {
+    return cacheStateComparision(newState, expectedState, assignDynamic,
+        Collections.emptyMap());
+  }
+
+  /**
+   * @param differences the DOM differences of the new state to other states computed already, see
+   *                    {@link #computeDifferences(StateVertex, List)}.
+   */
+  private StateComparision cacheStateComparision(StateVertex newState, StateVertex expectedState,
+      boolean assignDynamic, Map<Integer, StateDifference> differences) {
     if (getCachedComparision(newState, expectedState) == null) {
 
       StateComparision comp = null;
+      StateDifference difference = differences.get(expectedState.getId());
+      boolean sameStructure =
+          difference != null ? difference.sameStructure : newState.equals(expectedState);
 
-      if (newState.equals(expectedState)) {
+      if (sameStructure) {
         LOG.info("{} has same structure as expected {}", newState.getName(),
             expectedState.getName());
         boolean screenshotSame = false;
@@ -999,8 +1093,9 @@ public class FragmentManager {
       /**
        * Compare with differing nodes.
        */
-      List<List<Node>> differentNodes = ((HybridStateVertexImpl) newState).getDifference(
-          expectedState);
+      List<List<Node>> differentNodes = difference != null && difference.mapped
+          ? difference.changedNodes
+          : ((HybridStateVertexImpl) newState).getDifference(expectedState);
       if (differentNodes == null) {
         addToNearDuplicates(newState);
         addToNearDuplicates(expectedState);
@@ -1128,7 +1223,7 @@ public class FragmentManager {
     return affectedFragments;
   }
 
-  private void addToNearDuplicates(StateVertex state) {
+  private synchronized void addToNearDuplicates(StateVertex state) {
     if (state == null) {
       return;
     }
@@ -1146,7 +1241,7 @@ public class FragmentManager {
     }
   }
 
-  private boolean hasExploredNearDuplicate(StateVertex state) {
+  private synchronized boolean hasExploredNearDuplicate(StateVertex state) {
     if (state == null) {
       return false;
     }
@@ -1173,7 +1268,8 @@ public class FragmentManager {
     return false;
   }
 
-  private void addToNearDuplicates(StateVertex newState, StateVertex expectedState) {
+  private synchronized void addToNearDuplicates(StateVertex newState,
+      StateVertex expectedState) {
     newState.setHasNearDuplicate(true);
     expectedState.setHasNearDuplicate(true);
 
@@ -1216,10 +1312,22 @@ public class FragmentManager {
 
   public void stopCrawling() {
     this.fragments = null;
+    this.fragmentIndex = null;
     this.hops = null;
     this.nearDuplicates = null;
     this.stateComparisionCache = null;
     this.sfg = null;
+    shutdownComparisons();
+  }
+
+  /**
+   * Stops the threads comparing new states to the other states. Later comparisons run on the
+   * calling thread.
+   */
+  public void shutdownComparisons() {
+    if (comparisonPool != null) {
+      comparisonPool.shutdown();
+    }
   }
 
   public void cacheStateComparisions(StateVertex newState) {
@@ -1227,16 +1335,20 @@ public class FragmentManager {
       return;
     }
 
-    CopyOnWriteArrayList<StateVertex> allStates = new CopyOnWriteArrayList<>(
-        sfg.get().getAllStates());
-
-    for (StateVertex state : allStates) {
-      if (state.getId() == newState.getId()) {
-        continue;
+    List<StateVertex> otherStates = new ArrayList<>();
+    for (StateVertex state : sfg.get().getAllStates()) {
+      if (state.getId() != newState.getId()) {
+        otherStates.add(state);
       }
+    }
+
+    Map<Integer, StateDifference> differences = computeDifferences(newState, otherStates);
+
+    for (StateVertex state : otherStates) {
       try {
         boolean assignDynamic = true;
-        StateComparision comp = cacheStateComparision(newState, state, assignDynamic);
+        StateComparision comp = cacheStateComparision(newState, state, assignDynamic,
+            differences);
         LOG.info(state.getName() + " : " + newState.getName() + " are " + comp);
       } catch (Exception ex) {
         LOG.error("Could not compare states {} and {}", state.getName(), newState.getName());
@@ -1244,6 +1356,90 @@ public class FragmentManager {
     }
   }
 
+  /**
+   * Computes the DOM differences of a new state to the states it has to be compared with on the
+   * comparison pool. Only APTED runs in parallel, once per pair of states for both the distance
+   * {@link StateVertex#equals(Object)} would compute and the edit mapping. The DOMs are not safe
+   * for concurrent reads, so they are read into trees and the changed nodes looked up on the
+   * calling thread.
+   *
+   * @param newState    the new state.
+   * @param otherStates the states to compare the new state with.
+   * @return the differences by the id of the other state. States without a difference are compared
+   * one by one.
+   */
+  private Map<Integer, StateDifference> computeDifferences(StateVertex newState,
+      List<StateVertex> otherStates) {
+    if (comparisonPool == null || comparisonPool.isShutdown()
+        || HybridStateVertexImpl.FAST_COMPARE || !(newState instanceof HybridStateVertexImpl)) {
+      return Collections.emptyMap();
+    }
+    HybridStateVertexImpl hybridState = (HybridStateVertexImpl) newState;
+    boolean visualData = hybridState.isVisualData();
+    DomTree newTree = null;
+    Map<Integer, DomTree> trees = new HashMap<>();
+    Map<Integer, ForkJoinTask<TreeDistance>> distances = new HashMap<>();
+    List<StateVertex> compared = new ArrayList<>();
+    for (StateVertex state : otherStates) {
+      if (getCachedComparision(newState, state) != null
+          || !(state instanceof HybridStateVertexImpl)) {
+        continue;
+      }
+      try {
+        if (newTree == null) {
+          newTree = HybridStateVertexImpl.getDomTree(newState.getDocument(), visualData);
+        }
+        DomTree newStateTree = newTree;
+        DomTree tree = HybridStateVertexImpl.getDomTree(state.getDocument(), visualData);
+        double mapAbove = needsChangedNodes(newState, state) ? hybridState.getThreshold()
+            : Double.POSITIVE_INFINITY;
+        trees.put(state.getId(), tree);
+        distances.put(state.getId(), comparisonPool.submit(
+            () -> HybridStateVertexImpl.computeTreeDistance(newStateTree, tree, mapAbove)));
+        compared.add(state);
+      } catch (RuntimeException ex) {
+        LOG.debug("Could not read the DOM of {}, comparing it later", state.getName());
+      }
+    }
+
+    Map<Integer, StateDifference> differences = new HashMap<>();
+    for (StateVertex state : compared) {
+      TreeDistance distance;
+      try {
+        distance = distances.get(state.getId()).join();
+      } catch (RuntimeException ex) {
+        LOG.debug("Could not compute the distance to {}, comparing it later", state.getName());
+        continue;
+      }
+      boolean sameStructure = distance.getDistance() <= hybridState.getThreshold();
+      List<List<Node>> changedNodes = null;
+      if (distance.getMapping() != null) {
+        try {
+          changedNodes = HybridStateVertexImpl.getChangedNodes(newTree,
+              trees.get(state.getId()), distance.getMapping(), visualData);
+        } catch (RuntimeException ex) {
+          LOG.error("Error getting changed nodes between {} and {}", newState.getName(),
+              state.getName());
+          LOG.debug(ex.getMessage());
+        }
+      }
+      differences.put(state.getId(),
+          new StateDifference(sameStructure, distance.getMapping() != null, changedNodes));
+    }
+    return differences;
+  }
+
+  /**
+   * @return whether {@link #cacheStateComparision(StateVertex, StateVertex, boolean)} needs the
+   * changed nodes of two states with a different structure, which it does unless the states can be
+   * classified by their root fragments.
+   */
+  private boolean needsChangedNodes(StateVertex newState, StateVertex expectedState) {
+    return newState.getFragments() != null && expectedState.getFragments() != null
+        && !getRelatedFragments(newState.getRootFragment())
+        .contains(expectedState.getRootFragment());
+  }
+
   /**
    * Updates no of times state has not been polled during crawl (Helps prevent crawler getting stuck
    * in similar states)
@@ -1251,18 +1447,22 @@ public class FragmentManager {
    * @param currentState
    */
   public void seenState(StateVertex currentState) {
-    if (!numNonSelections.containsKey(currentState.getId())) {
-      numNonSelections.put(currentState.getId(), 0.0);
-    }
-    List<Integer> selectionStates = new ArrayList<>();
-    selectionStates.addAll(numNonSelections.keySet());
-    for (int key : selectionStates) {
-      if (key == currentState.getId()) {
-        numNonSelections.replace(key, 0.0);
-      } else {
-        numNonSelections.replace(key, numNonSelections.get(key) + 1);
-      }
+    long epoch = selectionEpoch.incrementAndGet();
+    lastSelectionEpochs.merge(currentState.getId(), epoch, Math::max);
+  }
+
+  /**
+   * @param stateId the id of the state
+   * @return the number of times other states have been selected since the state was last
+   * selected, or 0 if the state is not tracked yet.
+   */
+  double getNumNonSelections(int stateId) {
+    Long lastSelected = lastSelectionEpochs.get(stateId);
+    if (lastSelected == null) {
+      return 0;
     }
+    // Read after the last selection, so the epoch is never behind it.
+    return selectionEpoch.get() - lastSelected;
   }
 
 
@@ -1287,5 +1487,40 @@ public class FragmentManager {
     DIRECT, DUPLICATE, EQUIVALENT, ND2
   }
 
+  /**
+   * The difference of a new state to another state, computed on the comparison pool.
+   */
+  private static final class StateDifference {
+
+    private final boolean sameStructure;
+    private final boolean mapped;
+    private final List<List<Node>> changedNodes;
+
+    /**
+     * @param sameStructure whether the new state equals the other state.
+     * @param mapped        whether the changed nodes were looked up.
+     * @param changedNodes  the changed nodes, or <code>null</code> if they could not be found.
+     */
+    private StateDifference(boolean sameStructure, boolean mapped,
+        List<List<Node>> changedNodes) {
+      this.sameStructure = sameStructure;
+      this.mapped = mapped;
+      this.changedNodes = changedNodes;
+    }
+  }
+
+  private static final class DuplicationFactor {
+
+    private final int stateId;
+    private final long version;
+    private final double factor;
+
+    private DuplicationFactor(int stateId, long version, double factor) {
+      this.stateId = stateId;
+      this.version = version;
+      this.factor = factor;
+    }
+  }
+
 
 }
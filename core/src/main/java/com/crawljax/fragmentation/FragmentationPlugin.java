@@ -18,6 +18,7 @@ import com.crawljax.core.state.StatePair.StateComparision;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
 import com.crawljax.util.DomUtils;
+import com.crawljax.vips_selenium.VipsUtils;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
@@ -87,6 +88,26 @@ public class FragmentationPlugin implements OnNewStatePlugin, OnRevisitStatePlug
 
   }
 
+  /**
+   * Fragments a state again from a fragmented DOM exported by an earlier crawl, without a browser.
+   * Unlike {@link #loadFragmentState}, the earlier segmentation is discarded and the page is
+   * segmented anew from the layout stored in the DOM, so stored crawl output can be re-analyzed
+   * with a changed segmentation.
+   *
+   * @param fragState
+   * @param manager
+   * @param dom
+   * @param screenshot
+   * @param outputDir
+   */
+  public static void refragmentState(StateVertex fragState, FragmentManager manager, Document dom,
+      BufferedImage screenshot, File outputDir) {
+    VipsUtils.cleanDom(dom, true);
+    VipsUtils.clearSegmentation(dom);
+    fragState.setDocument(dom);
+    fragmentState(fragState, manager, screenshot, outputDir, false);
+  }
+
   /**
    * Main function that gets called everytime a new state is discovered. Uses VIPS to perform
    * fragmentation and calls fragment manager to analyze fragments
@@ -99,20 +120,74 @@ public class FragmentationPlugin implements OnNewStatePlugin, OnRevisitStatePlug
    */
   public static void fragmentState(StateVertex newState, FragmentManager manager,
       EmbeddedBrowser browser, File outputDir, boolean exportDom) {
-    long start = System.currentTimeMillis();
-    File screenshotsFolder = new File(outputDir, "screenshots");
-    if (!screenshotsFolder.exists()) {
-      boolean created = screenshotsFolder.mkdir();
-      checkArgument(created, "Could not create screenshotsFolder dir");
-    }
-//			File screenshotFile = new File(screenshotsFolder, "frag_" + newState.getName() + ".png");
+    BufferedImage screenshot = captureState((HybridStateVertexImpl) newState, browser);
+    fragmentState(newState, manager, screenshot, outputDir, exportDom);
+  }
+
+  /**
+   * Captures the screenshot and layout of a new state in the browser and fragments it on the
+   * worker threads of the queue, so the crawler can go on with the browser in the meantime.
+   *
+   * @param newState
+   * @param manager
+   * @param browser
+   * @param outputDir
+   * @param queue
+   */
+  public static void fragmentState(StateVertex newState, FragmentManager manager,
+      EmbeddedBrowser browser, File outputDir, FragmentationQueue queue) {
+    HybridStateVertexImpl state = (HybridStateVertexImpl) newState;
+    BufferedImage screenshot = captureState(state, browser);
+    File screenshotsFolder = getScreenshotsFolder(outputDir);
+    queue.submit(newState, state.segmentLater(screenshot, screenshotsFolder), () -> {
+      // The crawler extracts the candidate elements from a copy of the DOM meanwhile
+      synchronized (state) {
+        fragmentState(newState, manager, screenshot, outputDir, false);
+      }
+    });
+  }
+
+  private static BufferedImage captureState(HybridStateVertexImpl state,
+      EmbeddedBrowser browser) {
     BufferedImage screenshot;
-    if (((HybridStateVertexImpl) newState).getImage() != null) {
-      screenshot = ((HybridStateVertexImpl) newState).getImage();
+    if (state.getImage() != null) {
+      screenshot = state.getImage();
     } else {
       screenshot = browser.getScreenShotAsBufferedImage(500);
     }
-    Document fragmentedDom = ((HybridStateVertexImpl) newState).fragmentDom(browser, screenshot,
+    if (!state.isFragmented()) {
+      state.captureLayout(browser);
+    }
+    return screenshot;
+  }
+
+  private static File getScreenshotsFolder(File outputDir) {
+    File screenshotsFolder = new File(outputDir, "screenshots");
+    if (!screenshotsFolder.exists()) {
+      boolean created = screenshotsFolder.mkdirs();
+      checkArgument(created || screenshotsFolder.isDirectory(),
+          "Could not create screenshotsFolder dir");
+    }
+    return screenshotsFolder;
+  }
+
+  /**
+   * Fragments a state without a browser. The layout of the page has to be captured in the DOM of
+   * the state already, either by {@link HybridStateVertexImpl#captureLayout(EmbeddedBrowser)}
+   * during the crawl or because the DOM is a fragmented DOM exported by an earlier crawl.
+   *
+   * @param newState
+   * @param manager
+   * @param screenshot
+   * @param outputDir
+   * @param exportDom
+   */
+  public static void fragmentState(StateVertex newState, FragmentManager manager,
+      BufferedImage screenshot, File outputDir, boolean exportDom) {
+    long start = System.currentTimeMillis();
+    File screenshotsFolder = getScreenshotsFolder(outputDir);
+//			File screenshotFile = new File(screenshotsFolder, "frag_" + newState.getName() + ".png");
+    Document fragmentedDom = ((HybridStateVertexImpl) newState).fragmentDom(screenshot,
         screenshotsFolder);
 
     long end = System.currentTimeMillis();
@@ -230,7 +305,12 @@ public class FragmentationPlugin implements OnNewStatePlugin, OnRevisitStatePlug
     File outputDir = context.getConfig().getOutputDir();
 
     if (newState instanceof HybridStateVertexImpl) {
-      fragmentState(newState, manager, browser, outputDir, false);
+      FragmentationQueue queue = context.getFragmentationQueue();
+      if (queue == null) {
+        fragmentState(newState, manager, browser, outputDir, false);
+      } else {
+        fragmentState(newState, manager, browser, outputDir, queue);
+      }
     }
   }
 
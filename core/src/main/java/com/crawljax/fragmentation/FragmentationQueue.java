@@ -0,0 +1,109 @@
+package com.crawljax.fragmentation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.GuardedBy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fragments the new states of a crawler on a bounded pool of worker threads, so the crawler can
+ * go on while a state is fragmented. Segmenting a state only touches that state, so states are
+ * segmented in parallel. Their fragments are added to the {@link FragmentManager} one state at a
+ * time and in the order the states were found, because the manager is not thread safe and its
+ * results depend on that order. The crawler calls {@link #await()} before it reads the manager.
+ * <p>
+ * When all workers are busy and the queue is full, the crawler fragments the state itself. States
+ * submitted after {@link #shutdown()} are fragmented by the thread that submits them as well, so
+ * {@link #await()} never waits for a step the workers dropped. The time the crawler waited for
+ * fragments is recorded in the <code>fragmentation_wait</code> timer.
+ */
+public class FragmentationQueue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FragmentationQueue.class);
+
+  private static final int QUEUED_PER_THREAD = 2;
+
+  private final ThreadPoolExecutor executor;
+  private final Timer waitTime;
+
+  @GuardedBy("this")
+  private CompletableFuture<Void> added = CompletableFuture.completedFuture(null);
+
+  /**
+   * @param threads  the number of worker threads.
+   * @param registry the registry to record the waiting time in.
+   */
+  public FragmentationQueue(int threads, MetricRegistry registry) {
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads * QUEUED_PER_THREAD), new ThreadFactoryBuilder()
+        .setNameFormat("crawljax-fragmentation-%d")
+        .setDaemon(true)
+        .build(), FragmentationQueue::runInline);
+    this.waitTime = registry.timer(MetricsModule.EVENTS_PREFIX + "fragmentation_wait");
+  }
+
+  /**
+   * @param state   the state to fragment.
+   * @param segment segments the state. Runs in parallel with the other states.
+   * @param add     adds the fragments of the state to the fragment manager. Runs after the
+   *                fragments of the states submitted before are added.
+   */
+  public synchronized void submit(StateVertex state, Runnable segment, Runnable add) {
+    CompletableFuture<Void> segmented =
+        CompletableFuture.runAsync(() -> run(state, segment), executor);
+    added = added.thenCombineAsync(segmented, (previous, current) -> {
+      run(state, add);
+      return null;
+    }, executor);
+  }
+
+  /**
+   * Unlike {@link ThreadPoolExecutor.CallerRunsPolicy}, also runs the step once the executor is
+   * shut down, because the steps of a state that are never run would leave {@link #added}
+   * incomplete.
+   */
+  private static void runInline(Runnable step, ThreadPoolExecutor executor) {
+    step.run();
+  }
+
+  private static void run(StateVertex state, Runnable step) {
+    try {
+      step.run();
+    } catch (RuntimeException e) {
+      LOG.error("Could not fragment state {}: {}", state.getName(), e.getMessage());
+      LOG.debug("Fragmentation failed", e);
+    }
+  }
+
+  /**
+   * Waits until the fragments of all submitted states are added to the fragment manager.
+   */
+  public void await() {
+    CompletableFuture<Void> pending;
+    synchronized (this) {
+      pending = added;
+    }
+    if (pending.isDone()) {
+      return;
+    }
+    try (Timer.Context ignored = waitTime.time()) {
+      pending.join();
+    }
+  }
+
+  /**
+   * Waits for the submitted states and stops the worker threads.
+   */
+  public void shutdown() {
+    await();
+    executor.shutdown();
+  }
+}
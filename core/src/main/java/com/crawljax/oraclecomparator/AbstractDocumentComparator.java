@@ -0,0 +1,32 @@
+package com.crawljax.oraclecomparator;
+
+import com.crawljax.util.DomUtils;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+/**
+ * Base class for comparators that work on a parsed DOM. The string based {@link
+ * #normalize(String)} parses the DOM, applies {@link #normalizeDocument(Document)} and serializes
+ * the result again.
+ */
+public abstract class AbstractDocumentComparator extends AbstractComparator
+    implements DocumentComparator {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(AbstractDocumentComparator.class.getName());
+
+  @Override
+  public String normalize(String dom) {
+    try {
+      Document document = DomUtils.asDocument(dom);
+      normalizeDocument(document);
+      return DomUtils.getDocumentToString(document);
+    } catch (IOException e) {
+      LOGGER.warn("Could not perform DOM comparison", e);
+      return dom;
+    }
+  }
+
+}
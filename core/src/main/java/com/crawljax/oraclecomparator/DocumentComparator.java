@@ -0,0 +1,19 @@
+package com.crawljax.oraclecomparator;
+
+import org.w3c.dom.Document;
+
+/**
+ * A {@link Comparator} that normalizes a parsed DOM. {@link StateComparator} hands consecutive
+ * document comparators the same {@link Document}, so the DOM is parsed and serialized only once
+ * for all of them.
+ */
+public interface DocumentComparator extends Comparator {
+
+  /**
+   * Normalizes the given document in place.
+   *
+   * @param document the parsed DOM to normalize.
+   */
+  void normalizeDocument(Document document);
+
+}
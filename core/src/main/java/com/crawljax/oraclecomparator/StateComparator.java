@@ -1,13 +1,17 @@
 package com.crawljax.oraclecomparator;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.condition.Condition;
 import com.crawljax.core.configuration.CrawlRules;
+import com.crawljax.util.DomUtils;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
 import javax.inject.Inject;
 import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 
 /**
  * Defines an Oracle Comparator which used multiple Oracles to decide whether two states are
@@ -34,7 +38,29 @@ public class StateComparator {
    * @return the stripped dom using {@link OracleComparator}s.
    */
   public String getStrippedDom(EmbeddedBrowser browser) {
-    String newDom = browser.getStrippedDom();
+    return getStrippedDom(browser.getStrippedDom(), browser);
+  }
+
+  /**
+   * @param capture the captured page of the current browser
+   * @return the stripped dom using {@link OracleComparator}s.
+   */
+  public String getStrippedDom(PageCapture capture) {
+    return getStrippedDom(capture.getDom(), capture.getBrowser());
+  }
+
+  /**
+   * Applies the {@link OracleComparator}s to the given DOM. Consecutive {@link
+   * DocumentComparator}s share one parsed document, which is only serialized again when a string
+   * based comparator follows or when all comparators have been applied.
+   *
+   * @param dom     the stripped dom of the current page
+   * @param browser the current browser instance, used to check the preconditions
+   * @return the stripped dom using {@link OracleComparator}s.
+   */
+  public String getStrippedDom(String dom, EmbeddedBrowser browser) {
+    String newDom = dom;
+    Document document = null;
     for (OracleComparator oraclePreCondition : oracleComparator) {
       // use oracle if preconditions succeeds
       if (allPreConditionsSucceed(oraclePreCondition, browser)) {
@@ -43,6 +69,19 @@ public class StateComparator {
         LOGGER.debug("Using {} : {}", oracle.getClass().getSimpleName(),
             oraclePreCondition.getId());
 
+        if (oracle instanceof DocumentComparator) {
+          if (document == null) {
+            document = parse(newDom);
+          }
+          if (document != null) {
+            ((DocumentComparator) oracle).normalizeDocument(document);
+            continue;
+          }
+        } else if (document != null) {
+          newDom = DomUtils.getDocumentToString(document);
+          document = null;
+        }
+
         // TODO dodgy code. Is the equivalence check necessary?
         boolean equivalent = oracle.isEquivalent("", newDom);
         newDom = oracle.normalize(newDom);
@@ -52,9 +91,21 @@ public class StateComparator {
         }
       }
     }
+    if (document != null) {
+      newDom = DomUtils.getDocumentToString(document);
+    }
     return newDom;
   }
 
+  private Document parse(String dom) {
+    try {
+      return DomUtils.asDocument(dom);
+    } catch (IOException e) {
+      LOGGER.warn("Could not parse the DOM, falling back to string normalization", e);
+      return null;
+    }
+  }
+
   private boolean allPreConditionsSucceed(OracleComparator oraclePreCondition,
       EmbeddedBrowser browser) {
     for (Condition preCondition : oraclePreCondition.getPreConditions()) {
@@ -58,11 +58,62 @@ public class EditDistanceComparator extends AbstractComparator {
       throw new IllegalArgumentException(
           "Threshold Coefficient must be between 0.0 and 1.0!");
     } else {
-      return LevenshteinDistance.getDefaultInstance().apply(str1, str2) <= getThreshold(
-          str1, str2, thresholdCoefficient);
+      double threshold = getThreshold(str1, str2, thresholdCoefficient);
+      int maxDistance = (int) Math.min(Integer.MAX_VALUE, Math.floor(threshold));
+      return getLevenshteinDistance(str1, str2, maxDistance) != -1;
     }
   }
 
+  /**
+   * Computes the Levenshtein distance after skipping the common prefix and suffix of the two
+   * strings, which typically covers most of two DOMs of the same page.
+   *
+   * @param str1 the first string.
+   * @param str2 the second string.
+   * @return the Levenshtein distance between the two strings.
+   */
+  public static int getLevenshteinDistance(String str1, String str2) {
+    return getLevenshteinDistance(str1, str2, -1);
+  }
+
+  /**
+   * Computes the Levenshtein distance, but stops as soon as it is known to exceed the given maximum.
+   * Only a diagonal band of <code>2 * maxDistance + 1</code> cells of the distance matrix is filled,
+   * so the cost is linear in the length of the strings for a fixed maximum.
+   *
+   * @param str1        the first string.
+   * @param str2        the second string.
+   * @param maxDistance the maximum distance of interest, or -1 for no maximum.
+   * @return the Levenshtein distance between the two strings, or -1 if it is larger than the
+   * maximum.
+   */
+  public static int getLevenshteinDistance(String str1, String str2, int maxDistance) {
+    int length1 = str1.length();
+    int length2 = str2.length();
+    if (maxDistance != -1 && Math.abs(length1 - length2) > maxDistance) {
+      return -1;
+    }
+
+    int prefix = 0;
+    int minLength = Math.min(length1, length2);
+    while (prefix < minLength && str1.charAt(prefix) == str2.charAt(prefix)) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < minLength - prefix
+        && str1.charAt(length1 - suffix - 1) == str2.charAt(length2 - suffix - 1)) {
+      suffix++;
+    }
+    CharSequence rest1 = str1.subSequence(prefix, length1 - suffix);
+    CharSequence rest2 = str2.subSequence(prefix, length2 - suffix);
+
+    if (maxDistance == -1 || maxDistance >= Math.max(rest1.length(), rest2.length())) {
+      // The distance can never exceed the length of the longest string.
+      return LevenshteinDistance.getDefaultInstance().apply(rest1, rest2);
+    }
+    return new LevenshteinDistance(maxDistance).apply(rest1, rest2);
+  }
+
   /**
    * Calculate a threshold.
    *
@@ -1,28 +1,13 @@
 package com.crawljax.oraclecomparator.comparators;
 
-import com.crawljax.oraclecomparator.AbstractComparator;
+import com.crawljax.oraclecomparator.AbstractDocumentComparator;
 import com.crawljax.util.DomUtils;
-import java.io.IOException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
-public class ScriptComparator extends AbstractComparator {
-
-  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractComparator.class
-      .getName());
+public class ScriptComparator extends AbstractDocumentComparator {
 
   @Override
-  public String normalize(String dom) {
-    Document orgDoc;
-    try {
-      orgDoc = DomUtils.asDocument(dom);
-      orgDoc = DomUtils.removeScriptTags(orgDoc);
-      return DomUtils.getDocumentToString(orgDoc);
-    } catch (IOException e) {
-      LOGGER.warn("Could not perform DOM comparison", e);
-      return dom;
-    }
-
+  public void normalizeDocument(Document document) {
+    DomUtils.removeScriptTags(document);
   }
 }
@@ -1,9 +1,7 @@
 package com.crawljax.oraclecomparator.comparators;
 
-import com.crawljax.oraclecomparator.AbstractComparator;
-import com.crawljax.util.DomUtils;
+import com.crawljax.oraclecomparator.AbstractDocumentComparator;
 import com.crawljax.util.XPathHelper;
-import java.io.IOException;
 import javax.xml.xpath.XPathExpressionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +15,7 @@ import org.w3c.dom.NodeList;
 /**
  * Oracle which can ignore style attributes.
  */
-public class StyleComparator extends AbstractComparator {
+public class StyleComparator extends AbstractDocumentComparator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(StyleComparator.class.getName());
 
@@ -28,13 +26,8 @@ public class StyleComparator extends AbstractComparator {
   private static final String[] ALLOW_STYLE_TYPES = {"display", "visibility"};
 
   @Override
-  public String normalize(String dom) {
-    try {
-      return DomUtils.getDocumentToString(stripDom(DomUtils.asDocument(dom)));
-    } catch (IOException e) {
-      LOGGER.warn("Could not complete dom comparison", e);
-      return dom;
-    }
+  public void normalizeDocument(Document document) {
+    stripDom(document);
   }
 
   private Document stripDom(Document dom) {
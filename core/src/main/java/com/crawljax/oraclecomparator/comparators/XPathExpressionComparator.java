@@ -1,10 +1,8 @@
 package com.crawljax.oraclecomparator.comparators;
 
-import com.crawljax.oraclecomparator.AbstractComparator;
-import com.crawljax.util.DomUtils;
+import com.crawljax.oraclecomparator.AbstractDocumentComparator;
 import com.crawljax.util.XPathHelper;
 import com.google.common.collect.ImmutableList;
-import java.io.IOException;
 import java.util.Collection;
 import javax.xml.xpath.XPathExpressionException;
 import org.slf4j.Logger;
@@ -18,7 +16,7 @@ import org.w3c.dom.NodeList;
 /**
  * Oracle which can ignore element/attributes by xpath expression.
  */
-public class XPathExpressionComparator extends AbstractComparator {
+public class XPathExpressionComparator extends AbstractDocumentComparator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(XPathExpressionComparator.class
       .getName());
@@ -40,19 +38,16 @@ public class XPathExpressionComparator extends AbstractComparator {
   }
 
   /**
-   * @param dom the dom to ignore the xpath expressions from
-   * @return the stripped dom with the elements found with the xpath expressions
+   * @param document the document to remove the elements and attributes found with the xpath
+   *                 expressions from
    */
   @Override
-  public String normalize(String dom) {
+  public void normalizeDocument(Document document) {
     String curExpression = "";
-    Document doc = null;
-    String domRet;
     try {
-      doc = DomUtils.asDocument(dom);
       for (String expression : expressions) {
         curExpression = expression;
-        NodeList nodeList = XPathHelper.evaluateXpathExpression(doc, expression);
+        NodeList nodeList = XPathHelper.evaluateXpathExpression(document, expression);
 
         for (int i = 0; i < nodeList.getLength(); i++) {
           Node node = nodeList.item(i);
@@ -65,16 +60,9 @@ public class XPathExpressionComparator extends AbstractComparator {
 
         }
       }
-    } catch (XPathExpressionException | DOMException | IOException e) {
+    } catch (XPathExpressionException | DOMException e) {
       LOGGER.error("Exception with stripping XPath expression: {}", curExpression, e);
-    } finally {
-      if (doc != null) {
-        domRet = DomUtils.getDocumentToString(doc);
-      } else {
-        domRet = "";
-      }
     }
-    return domRet;
   }
 
 }
@@ -1,8 +1,10 @@
 package com.crawljax.stateabstractions.dom;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.core.state.NearestStateIndex;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.core.state.StateVertexFactory;
+import com.crawljax.core.state.VantagePointTreeIndex;
 import com.crawljax.oraclecomparator.comparators.EditDistanceComparator;
 
 /**
@@ -33,6 +35,11 @@ public class LevenshteinStateVertexFactory extends StateVertexFactory {
         editDistanceComparator);
   }
 
+  @Override
+  public NearestStateIndex createNearestStateIndex() {
+    return new VantagePointTreeIndex();
+  }
+
   @Override
   public String toString() {
     return "DOMLevenshtein_" + threshold;
@@ -5,7 +5,6 @@ import com.crawljax.core.state.StateVertexImpl;
 import com.crawljax.oraclecomparator.comparators.EditDistanceComparator;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
-import org.apache.commons.text.similarity.LevenshteinDistance;
 
 /**
  * The state vertex class which represents a state in the browser. When iterating over the possible
@@ -56,7 +55,7 @@ public class LevenshteinStateVertexImpl extends StateVertexImpl {
     if (vertexOfGraph instanceof LevenshteinStateVertexImpl) {
       LevenshteinStateVertexImpl vertex = (LevenshteinStateVertexImpl) vertexOfGraph;
 
-      return (double) new LevenshteinDistance().apply(this.getStrippedDom(),
+      return EditDistanceComparator.getLevenshteinDistance(this.getStrippedDom(),
           vertex.getStrippedDom());
     }
     return -1;
@@ -0,0 +1,81 @@
+package com.crawljax.stateabstractions.dom.RTED;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A DOM converted to a {@link LblTree} once, together with the node count and label histogram used
+ * to bound the tree edit distance without running {@link RTED_InfoTree_Opt}.
+ */
+public class RTEDTree {
+
+  private final LblTree tree;
+  private final int nodeCount;
+  private final Map<String, Integer> labelHistogram = new HashMap<>();
+
+  private RTEDTree(LblTree tree) {
+    this.tree = tree;
+    int count = 0;
+    for (Enumeration<?> e = tree.breadthFirstEnumeration(); e.hasMoreElements(); ) {
+      LblTree node = (LblTree) e.nextElement();
+      labelHistogram.merge(node.getLabel(), 1, Integer::sum);
+      count++;
+    }
+    this.nodeCount = count;
+  }
+
+  /**
+   * @param dom the DOM to convert.
+   * @return the tree of element names under the body of the DOM.
+   * @throws IOException if the DOM cannot be parsed.
+   */
+  public static RTEDTree of(String dom) throws IOException {
+    return new RTEDTree(RTEDUtils.getDomTree(dom));
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * A lower bound of the unit cost tree edit distance. Every edit operation changes the node count
+   * by at most one, and the L1 distance between the label histograms by at most two.
+   *
+   * @param other the tree to compare with.
+   * @return a lower bound of the non normalized tree edit distance.
+   */
+  public int getLowerBound(RTEDTree other) {
+    int sizeDifference = Math.abs(nodeCount - other.nodeCount);
+    int histogramDistance = 0;
+    for (Entry<String, Integer> label : labelHistogram.entrySet()) {
+      histogramDistance +=
+          Math.abs(label.getValue() - other.labelHistogram.getOrDefault(label.getKey(), 0));
+    }
+    for (Entry<String, Integer> label : other.labelHistogram.entrySet()) {
+      if (!labelHistogram.containsKey(label.getKey())) {
+        histogramDistance += label.getValue();
+      }
+    }
+    return Math.max(sizeDifference, (histogramDistance + 1) / 2);
+  }
+
+  /**
+   * @param other the tree to compare with.
+   * @return {@link #getLowerBound(RTEDTree)} divided by the size of the largest tree, so it can be
+   * compared with {@link #getDistance(RTEDTree)}.
+   */
+  public double getNormalizedLowerBound(RTEDTree other) {
+    return getLowerBound(other) / (double) Math.max(nodeCount, other.nodeCount);
+  }
+
+  /**
+   * @param other the tree to compare with.
+   * @return the same distance as {@link RTEDUtils#getRobustTreeEditDistance(String, String)}.
+   */
+  public double getDistance(RTEDTree other) {
+    return RTEDUtils.getRobustTreeEditDistance(tree, other.tree);
+  }
+}
@@ -31,6 +31,18 @@ public class RTEDUtils {
       LOG.error("IO Exception comparing the given two doms");
     }
 
+    return getRobustTreeEditDistance(domTree1, domTree2);
+  }
+
+  /**
+   * Get a scalar value for the DOM diversity using the Robust Tree Edit Distance, for trees created
+   * with {@link #getDomTree(String)}.
+   *
+   * @param domTree1
+   * @param domTree2
+   * @return the tree edit distance divided by the size of the largest tree.
+   */
+  public static double getRobustTreeEditDistance(LblTree domTree1, LblTree domTree2) {
     double DD = 0.0;
     RTED_InfoTree_Opt rted;
     double ted;
@@ -50,7 +62,12 @@ public class RTEDUtils {
     return DD;
   }
 
-  private static LblTree getDomTree(String dom1) throws IOException {
+  /**
+   * @param dom1 the DOM to convert.
+   * @return the tree of element names under the body of the DOM.
+   * @throws IOException if the DOM cannot be parsed.
+   */
+  public static LblTree getDomTree(String dom1) throws IOException {
 
     org.w3c.dom.Document doc1 = DomUtils.asDocument(dom1);
 
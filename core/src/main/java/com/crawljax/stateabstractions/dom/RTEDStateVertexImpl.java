@@ -2,9 +2,11 @@ package com.crawljax.stateabstractions.dom;
 
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.core.state.StateVertexImpl;
+import com.crawljax.stateabstractions.dom.RTED.RTEDTree;
 import com.crawljax.stateabstractions.dom.RTED.RTEDUtils;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
+import java.io.IOException;
 
 /**
  * The state vertex class which represents a state in the browser. When iterating over the possible
@@ -17,6 +19,8 @@ public class RTEDStateVertexImpl extends StateVertexImpl {
 
   private double threshold = 0.0;
 
+  private transient RTEDTree tree;
+
   /**
    * Defines a State.
    *
@@ -43,10 +47,44 @@ public class RTEDStateVertexImpl extends StateVertexImpl {
     return RTEDUtils.getRobustTreeEditDistance(dom1, dom2);
   }
 
+  private double computeDistance(RTEDStateVertexImpl that) {
+    RTEDTree tree1 = this.getTree();
+    RTEDTree tree2 = that.getTree();
+    if (tree1 == null || tree2 == null) {
+      return computeDistance(this.getDom(), that.getDom());
+    }
+    return tree1.getDistance(tree2);
+  }
+
+  /**
+   * @return the tree of this state's DOM, built on first use, or <code>null</code> if the DOM
+   * could not be parsed.
+   */
+  private RTEDTree getTree() {
+    if (tree == null) {
+      try {
+        tree = RTEDTree.of(this.getDom());
+      } catch (IOException e) {
+        LOG.error("Could not build the tree of state {}", this.getName());
+        LOG.debug(e.getMessage());
+      }
+    }
+    return tree;
+  }
+
   @Override
   public boolean equals(Object object) {
     RTEDStateVertexImpl that = (RTEDStateVertexImpl) object;
-    double distance = computeDistance(this.getDom(), that.getDom());
+    if (this.getDom().equals(that.getDom())) {
+      return true;
+    }
+    RTEDTree tree1 = this.getTree();
+    RTEDTree tree2 = that.getTree();
+    if (tree1 != null && tree2 != null && tree1.getNormalizedLowerBound(tree2) > threshold) {
+      // The distance can only be larger than the lower bound.
+      return false;
+    }
+    double distance = computeDistance(that);
     return distance <= threshold;
 
   }
@@ -61,7 +99,7 @@ public class RTEDStateVertexImpl extends StateVertexImpl {
   public double getDist(StateVertex vertexOfGraph) {
     if (vertexOfGraph instanceof RTEDStateVertexImpl) {
       RTEDStateVertexImpl vertex = (RTEDStateVertexImpl) vertexOfGraph;
-      return computeDistance(this.getDom(), vertex.getDom());
+      return computeDistance(vertex);
     }
     return -1;
   }
@@ -31,31 +31,42 @@ public class TLSHStateVertexFactory extends StateVertexFactory {
 
   public static double computeTLSHDistance(String dom1, String dom2)
       throws IllegalArgumentException {
-    int distance = 200;
-    TLSH tlsh1, tlsh2;
-    Digest digest1, digest2;
-
-    try {
-      tlsh1 = new TLSH(dom1);
-      digest1 = new DigestBuilder().withHash(tlsh1.hash()).build();
-    } catch (com.idealista.tlsh.exceptions.InsufficientComplexityException e) {
-      LOG.info("Insufficient Complexity in DOM");
-      LOG.debug(dom1);
+    String hash1 = computeTLSHHash(dom1);
+    String hash2 = computeTLSHHash(dom2);
+    if (hash1 == null || hash2 == null) {
       throw new IllegalArgumentException();
     }
+    return computeTLSHDistance(toDigest(hash1), toDigest(hash2));
+  }
 
+  /**
+   * @param dom the DOM to hash.
+   * @return the TLSH hash of the DOM, or <code>null</code> if the DOM is not complex enough to be
+   * hashed.
+   */
+  public static String computeTLSHHash(String dom) {
     try {
-      tlsh2 = new TLSH(dom2);
-      digest2 = new DigestBuilder().withHash(tlsh2.hash()).build();
+      return new TLSH(dom).hash();
     } catch (com.idealista.tlsh.exceptions.InsufficientComplexityException e) {
       LOG.info("Insufficient Complexity in DOM");
-      LOG.debug(dom2);
-      throw new IllegalArgumentException();
+      LOG.debug(dom);
+      return null;
     }
+  }
 
-    distance = digest2.calculateDifference(digest1, true);
+  /**
+   * @param hash a hash computed by {@link #computeTLSHHash(String)}.
+   * @return the digest to compare the hash with.
+   */
+  public static Digest toDigest(String hash) {
+    return new DigestBuilder().withHash(hash).build();
+  }
 
-    return distance;
+  /**
+   * @return the TLSH distance between the two digests.
+   */
+  public static double computeTLSHDistance(Digest digest1, Digest digest2) {
+    return digest2.calculateDifference(digest1, true);
   }
 
   @Override
@@ -6,7 +6,7 @@ import com.crawljax.oraclecomparator.comparators.EditDistanceComparator;
 import com.crawljax.stateabstractions.dom.DOMConfiguration.Mode;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
-import org.apache.commons.lang3.StringUtils;
+import com.idealista.tlsh.digests.Digest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,6 +31,13 @@ public class TLSHStateVertexImpl extends StateVertexImpl {
 
   private final EditDistanceComparator editDistanceComparator;
 
+  /**
+   * The TLSH hash of the used DOM, or <code>null</code> if the DOM is not complex enough for TLSH.
+   */
+  private final String tlshHash;
+
+  private transient Digest digest;
+
   /**
    * Creates a current state without an url and the stripped dom equals the dom.
    *
@@ -56,6 +63,7 @@ public class TLSHStateVertexImpl extends StateVertexImpl {
     this.mode = mode;
     this.usedDom = DOMConfiguration.getConfiguredDOM(dom, strippedDom, mode);
     this.editDistanceComparator = editDistanceComparator;
+    this.tlshHash = TLSHStateVertexFactory.computeTLSHHash(usedDom);
   }
 
   @Override
@@ -73,14 +81,13 @@ public class TLSHStateVertexImpl extends StateVertexImpl {
     if (this.getName().equalsIgnoreCase(that.getName())) {
       return true;
     }
-    try {
-      double distance = TLSHStateVertexFactory.computeTLSHDistance(this.getUsedDom(),
-          that.getUsedDom());
+    if (this.hasDigest() && that.hasDigest()) {
+      double distance = TLSHStateVertexFactory.computeTLSHDistance(this.getDigest(),
+          that.getDigest());
       return distance <= threshold * maxRaw;
-    } catch (IllegalArgumentException Ex) {
-      LOG.info("DOM not complex enough for TLSH. Falling back on Levenshtein");
-      return editDistanceComparator.isEquivalent(this.getUsedDom(), that.getUsedDom());
     }
+    LOG.debug("DOM not complex enough for TLSH. Falling back on Levenshtein");
+    return editDistanceComparator.isEquivalent(this.getUsedDom(), that.getUsedDom());
   }
 
   @Override
@@ -93,14 +100,12 @@ public class TLSHStateVertexImpl extends StateVertexImpl {
   public double getDist(StateVertex vertexOfGraph) {
     if (vertexOfGraph instanceof TLSHStateVertexImpl) {
       TLSHStateVertexImpl vertex = (TLSHStateVertexImpl) vertexOfGraph;
-      try {
-        return TLSHStateVertexFactory.computeTLSHDistance(this.getUsedDom(),
-            vertex.getUsedDom());
-      } catch (IllegalArgumentException IAEx) {
-        LOG.info("DOM not complex enough for TLSH. Falling back on Levenshtein");
-        return StringUtils.getLevenshteinDistance(this.getUsedDom(),
-            vertex.getUsedDom());
+      if (this.hasDigest() && vertex.hasDigest()) {
+        return TLSHStateVertexFactory.computeTLSHDistance(this.getDigest(), vertex.getDigest());
       }
+      LOG.debug("DOM not complex enough for TLSH. Falling back on Levenshtein");
+      return EditDistanceComparator.getLevenshteinDistance(this.getUsedDom(),
+          vertex.getUsedDom());
     }
     return -1;
   }
@@ -108,4 +113,18 @@ public class TLSHStateVertexImpl extends StateVertexImpl {
   private String getUsedDom() {
     return this.usedDom;
   }
+
+  /**
+   * @return whether the used DOM was complex enough to compute a TLSH digest.
+   */
+  public boolean hasDigest() {
+    return tlshHash != null;
+  }
+
+  private Digest getDigest() {
+    if (digest == null) {
+      digest = TLSHStateVertexFactory.toDigest(tlshHash);
+    }
+    return digest;
+  }
 }
@@ -1,6 +1,7 @@
 package com.crawljax.stateabstractions.hybrid;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.browser.WebDriverBackedEmbeddedBrowser;
 import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
 import com.crawljax.core.state.StateVertex;
@@ -31,14 +32,29 @@ public class FragGenStateVertexFactory extends StateVertexFactory {
     HybridStateVertexImpl newVertex = new HybridStateVertexImpl(id, url, name, dom, strippedDom,
         threshold, visualData);
     if (visualData && browser != null) {
-      BufferedImage screenshot = browser.getScreenShotAsBufferedImage(500);
-      newVertex.setImage(screenshot);
-      VipsUtils.populateStyle(newVertex.getDocument(), browser.getWebDriver(),
-          ((WebDriverBackedEmbeddedBrowser) browser).isUSE_CDP());
+      addVisualData(newVertex, browser, browser.getScreenShotAsBufferedImage(500));
     }
     return newVertex;
   }
 
+  @Override
+  public StateVertex newStateVertex(int id, String name, PageCapture capture,
+      String strippedDom) {
+    HybridStateVertexImpl newVertex = new HybridStateVertexImpl(id, capture.getUrl(), name,
+        capture.getDom(), strippedDom, threshold, visualData);
+    if (visualData) {
+      addVisualData(newVertex, capture.getBrowser(), capture.getScreenshot(500));
+    }
+    return newVertex;
+  }
+
+  private static void addVisualData(HybridStateVertexImpl newVertex, EmbeddedBrowser browser,
+      BufferedImage screenshot) {
+    newVertex.setImage(screenshot);
+    VipsUtils.populateStyle(newVertex.getDocument(), browser.getWebDriver(),
+        ((WebDriverBackedEmbeddedBrowser) browser).isUSE_CDP());
+  }
+
   @Override
   public String toString() {
     return "Hybrid" + threshold;
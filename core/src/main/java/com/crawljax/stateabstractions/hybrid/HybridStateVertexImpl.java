@@ -25,15 +25,20 @@ import com.google.common.collect.Maps;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import javax.xml.xpath.XPathExpressionException;
+import net.jcip.annotations.GuardedBy;
 import org.apache.commons.io.FilenameUtils;
 import org.openqa.selenium.WebDriver;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 /**
@@ -56,9 +61,30 @@ public class HybridStateVertexImpl extends StateVertexImpl {
   private double threshold = 0.0;
   transient private Document fragmentedDom = null;
 
+  /**
+   * Segments this state, while it waits to be segmented on a fragmentation worker. Whoever reads
+   * the DOM first runs it, so the DOM is never read while VIPS annotates it.
+   */
+  transient private volatile Runnable pendingSegmentation = null;
+
+  /**
+   * A copy of the DOM taken when the state is queued for segmentation. The crawler extracts the
+   * candidate elements from it while the DOM itself is segmented, and the candidates are moved to
+   * the DOM once it is.
+   */
+  transient private volatile Document unsegmentedDom = null;
+
+  /**
+   * Held while VIPS segments the DOM. It is taken before the lock of this state, never after.
+   */
+  transient private Object segmentationLock = new Object();
+
+  @GuardedBy("segmentationLock")
+  transient private boolean segmenting = false;
+
   transient private BufferedImage image = null;
 
-  private boolean fragmented = false;
+  private volatile boolean fragmented = false;
 
   private boolean visualData = false;
 
@@ -132,24 +158,70 @@ public class HybridStateVertexImpl extends StateVertexImpl {
   // Doc1 is the new state
   // Doc2 is the old state
   public static List<List<Node>> getChangedNodes(Document doc1, Document doc2, boolean visualData) {
+    DomTree tree1 = getDomTree(doc1, visualData);
+    DomTree tree2 = getDomTree(doc2, visualData);
+    return getChangedNodes(tree1, tree2, computeEditMapping(tree1, tree2), visualData);
+  }
 
-    List<Node> postOrder1 = Lists.newArrayList();
-    populatePostorder(postOrder1, doc1.getElementsByTagName("body").item(0));
+  /**
+   * Reads the body of a DOM into a {@link DomTree}.
+   *
+   * @param doc        the DOM.
+   * @param visualData whether to label the nodes with their visibility.
+   * @return the tree of the DOM.
+   */
+  public static DomTree getDomTree(Document doc, boolean visualData) {
+    List<Node> postOrder = Lists.newArrayList();
+    populatePostorder(postOrder, doc.getElementsByTagName("body").item(0));
+    return new DomTree(postOrder, AptedUtils.getAptedTree(doc, visualData));
+  }
 
-    List<Node> postOrder2 = Lists.newArrayList();
-    populatePostorder(postOrder2, doc2.getElementsByTagName("body").item(0));
+  /**
+   * Computes the APTED edit mapping of two trees. Only reads the trees and not their DOMs, so it
+   * can run on any thread.
+   *
+   * @param tree1 the tree of the new state.
+   * @param tree2 the tree of the old state.
+   * @return the mapping of the post order positions of the nodes, starting at <code>1</code>.
+   */
+  public static List<int[]> computeEditMapping(DomTree tree1, DomTree tree2) {
+    APTED<StringUnitCostModel, StringNodeData> apted = new APTED<>(new StringUnitCostModel());
+    apted.computeEditDistance(tree1.aptedTree, tree2.aptedTree);
+    return apted.computeEditMapping();
+  }
+
+  /**
+   * Computes the APTED edit distance of two trees, and their edit mapping if the distance is
+   * larger than the given bound. Like {@link #computeEditMapping(DomTree, DomTree)}, it can run on
+   * any thread.
+   *
+   * @param tree1    the tree of the new state.
+   * @param tree2    the tree of the old state.
+   * @param mapAbove the distance the mapping is computed above.
+   * @return the distance, and the mapping or <code>null</code>.
+   */
+  public static TreeDistance computeTreeDistance(DomTree tree1, DomTree tree2, double mapAbove) {
+    APTED<StringUnitCostModel, StringNodeData> apted = new APTED<>(new StringUnitCostModel());
+    double distance = apted.computeEditDistance(tree1.aptedTree, tree2.aptedTree);
+    return new TreeDistance(distance, distance > mapAbove ? apted.computeEditMapping() : null);
+  }
+
+  /**
+   * @param tree1      the tree of the new state.
+   * @param tree2      the tree of the old state.
+   * @param mappings   the edit mapping of the trees.
+   * @param visualData whether the nodes are labeled with their visibility.
+   * @return the changed nodes of the new and the old state.
+   */
+  public static List<List<Node>> getChangedNodes(DomTree tree1, DomTree tree2,
+      List<int[]> mappings, boolean visualData) {
+    List<Node> postOrder1 = tree1.postOrder;
+    List<Node> postOrder2 = tree2.postOrder;
 
     List<Node> doc1Nodes = new LinkedList<>();
     List<Node> doc2Nodes = new LinkedList<>();
     Map<Node, Node> nodeMappings = Maps.newLinkedHashMap();
 
-    AptedNode<StringNodeData> aptedDoc1 = AptedUtils.getAptedTree(doc1, visualData);
-
-    AptedNode<StringNodeData> aptedDoc2 = AptedUtils.getAptedTree(doc2, visualData);
-    APTED<StringUnitCostModel, StringNodeData> apted = new APTED<>(new StringUnitCostModel());
-    double structuralDistance = apted.computeEditDistance(aptedDoc1, aptedDoc2);
-
-    LinkedList<int[]> mappings = (LinkedList<int[]>) apted.computeEditMapping();
     for (int[] mapping : mappings) {
       if (mapping[1] == 0) {
 
@@ -177,6 +249,44 @@ public class HybridStateVertexImpl extends StateVertexImpl {
     return changedNodes;
   }
 
+  /**
+   * The nodes of the body of a DOM in post order and their APTED tree. Once read, the tree can be
+   * compared on another thread than the one reading the DOM, as the DOM is not safe for concurrent
+   * reads.
+   */
+  public static final class DomTree {
+
+    private final List<Node> postOrder;
+    private final AptedNode<StringNodeData> aptedTree;
+
+    private DomTree(List<Node> postOrder, AptedNode<StringNodeData> aptedTree) {
+      this.postOrder = postOrder;
+      this.aptedTree = aptedTree;
+    }
+  }
+
+  /**
+   * The edit distance of two {@link DomTree}s and, if it was computed, their edit mapping.
+   */
+  public static final class TreeDistance {
+
+    private final double distance;
+    private final List<int[]> mapping;
+
+    private TreeDistance(double distance, List<int[]> mapping) {
+      this.distance = distance;
+      this.mapping = mapping;
+    }
+
+    public double getDistance() {
+      return distance;
+    }
+
+    public List<int[]> getMapping() {
+      return mapping;
+    }
+  }
+
   private static void populatePostorder(List<Node> postorderList, Node node) {
     if (node == null) {
       return;
@@ -282,6 +392,13 @@ public class HybridStateVertexImpl extends StateVertexImpl {
     return visualData;
   }
 
+  /**
+   * @return the largest DOM distance at which this state {@link #equals(Object)} another state.
+   */
+  public double getThreshold() {
+    return threshold;
+  }
+
   public void setVisualData(boolean visualData) {
     this.visualData = visualData;
   }
@@ -307,24 +424,102 @@ public class HybridStateVertexImpl extends StateVertexImpl {
   public Document fragmentDom(EmbeddedBrowser browser, BufferedImage screenshot,
       File screenshotFile) {
     if (!fragmented) {
-      VipsSelenium vips = new VipsSelenium(browser.getWebDriver(), this.fragmentedDom, screenshot,
-          10, screenshotFile, this.getName(), true,
-          ((WebDriverBackedEmbeddedBrowser) browser).isUSE_CDP());
-//			VipsSeleniumParser parser = new VipsSeleniumParser(vips);
-      List<VipsRectangle> rectangles = vips.startSegmentation();
-      fragmented = true;
-      this.image = screenshot;
-      this.addFragments(rectangles, browser.getWebDriver());
+      captureLayout(browser);
     }
+    return fragmentDom(screenshot, screenshotFile);
+  }
 
+  /**
+   * Captures the layout of the page in the browser into the DOM of this state, so the state can be
+   * fragmented later without the browser by {@link #fragmentDom(BufferedImage, File)}.
+   *
+   * @param browser the browser showing this state.
+   */
+  public void captureLayout(EmbeddedBrowser browser) {
+    VipsUtils.populateStyle(fragmentedDom, browser.getWebDriver(),
+        ((WebDriverBackedEmbeddedBrowser) browser).isUSE_CDP());
+  }
+
+  /**
+   * Fragments the DOM of this state without a browser, using the layout captured by
+   * {@link #captureLayout(EmbeddedBrowser)}.
+   *
+   * @param screenshot     the screenshot of this state.
+   * @param screenshotFile the folder to write the fragments to.
+   * @return the fragmented DOM.
+   */
+  public Document fragmentDom(BufferedImage screenshot, File screenshotFile) {
+    if (fragmented) {
+      pendingSegmentation = null;
+      return fragmentedDom;
+    }
+    synchronized (segmentationLock) {
+      if (segmenting) {
+        // The DOM is read while it is segmented on this thread
+        return fragmentedDom;
+      }
+      segmenting = true;
+      try {
+        if (!fragmented) {
+          VipsSelenium vips = new VipsSelenium(this.fragmentedDom, screenshot, 10,
+              screenshotFile, this.getName(), true);
+          List<VipsRectangle> rectangles = vips.startSegmentation();
+          this.image = screenshot;
+          this.addFragments(rectangles, null);
+          fragmented = true;
+        }
+      } finally {
+        segmenting = false;
+        pendingSegmentation = null;
+      }
+    }
     return fragmentedDom;
   }
 
+  /**
+   * Marks this state as waiting to be segmented on another thread. Until it is segmented, reading
+   * the DOM of this state segments it first, or waits until the other thread is done.
+   *
+   * @param screenshot     the screenshot of this state.
+   * @param screenshotFile the folder to write the fragments to.
+   * @return segments the state, for the fragmentation worker to run.
+   */
+  public Runnable segmentLater(BufferedImage screenshot, File screenshotFile) {
+    if (!fragmented) {
+      unsegmentedDom = (Document) fragmentedDom.cloneNode(true);
+    }
+    Runnable segment = () -> fragmentDom(screenshot, screenshotFile);
+    pendingSegmentation = segment;
+    return segment;
+  }
+
+  private void awaitSegmentation() {
+    Runnable segment = pendingSegmentation;
+    if (segment != null) {
+      try {
+        segment.run();
+      } catch (RuntimeException e) {
+        LOG.error("Could not segment state {}: {}", getName(), e.getMessage());
+      }
+    }
+  }
+
   @Override
   public Document getDocument() {
+    awaitSegmentation();
     return fragmentedDom;
   }
 
+  /**
+   * @return a copy of the DOM while this state waits to be segmented, so the candidate elements are
+   * extracted without waiting for the segmentation. The DOM itself otherwise.
+   */
+  @Override
+  public Document getCandidateDocument() {
+    Document copy = unsegmentedDom;
+    return copy != null ? copy : getDocument();
+  }
+
   @Override
   public void setDocument(Document dom) {
     this.fragmentedDom = dom;
@@ -345,7 +540,7 @@ public class HybridStateVertexImpl extends StateVertexImpl {
 
   public List<List<Node>> getDifference(StateVertex other) {
     try {
-      return getChangedNodes(this.fragmentedDom, other.getDocument(), visualData);
+      return getChangedNodes(this.getDocument(), other.getDocument(), visualData);
     } catch (Exception e) {
       LOG.error("Error getting changed nodes between {} and {}", getName(), other.getName());
       LOG.debug(e.getMessage());
@@ -449,9 +644,10 @@ public class HybridStateVertexImpl extends StateVertexImpl {
   }
 
   @Override
-  public void setElementsFound(LinkedList<CandidateElement> elements) {
+  public synchronized void setElementsFound(LinkedList<CandidateElement> elements) {
     super.setElementsFound(elements);
     if (fragments != null) {
+      moveCandidatesToDocument();
       addCandidatesToFragments();
     }
   }
@@ -467,7 +663,7 @@ public class HybridStateVertexImpl extends StateVertexImpl {
   }
 
   @Override
-  public void addFragments(List<VipsRectangle> rectangles, WebDriver driver) {
+  public synchronized void addFragments(List<VipsRectangle> rectangles, WebDriver driver) {
     if (rectangles == null) {
       return;
     }
@@ -519,10 +715,68 @@ public class HybridStateVertexImpl extends StateVertexImpl {
     }
 
     if (super.getCandidateElements() != null) {
+      moveCandidatesToDocument();
       addCandidatesToFragments();
     }
   }
 
+  /**
+   * Moves the candidate elements extracted from the copy of the DOM to the same elements of the
+   * DOM, which the fragments are made of, and drops the copy. VIPS only adds attributes, so an
+   * element is at the same position in both trees.
+   */
+  private void moveCandidatesToDocument() {
+    Document copy = unsegmentedDom;
+    if (copy == null) {
+      return;
+    }
+    for (CandidateElement candidate : super.getCandidateElements()) {
+      if (candidate.getElement().getOwnerDocument() != copy) {
+        // Found in a frame, or in the DOM itself
+        continue;
+      }
+      Node same = getSameNode(candidate.getElement(), fragmentedDom);
+      if (same instanceof Element) {
+        candidate.setElement((Element) same);
+      } else {
+        LOG.warn("Could not find candidate {} in the DOM of {}",
+            candidate.getIdentification().getValue(), getName());
+      }
+    }
+    createNodeCandidateMapping();
+    unsegmentedDom = null;
+  }
+
+  /**
+   * @return the node at the same position in the other document, or <code>null</code> if there is
+   * none.
+   */
+  private static Node getSameNode(Node node, Document document) {
+    Deque<Integer> path = new ArrayDeque<>();
+    for (Node current = node; current.getParentNode() != null;
+        current = current.getParentNode()) {
+      int index = 0;
+      for (Node sibling = current.getPreviousSibling(); sibling != null;
+          sibling = sibling.getPreviousSibling()) {
+        index++;
+      }
+      path.push(index);
+    }
+    Node same = document;
+    for (int index : path) {
+      same = same.getChildNodes().item(index);
+      if (same == null) {
+        return null;
+      }
+    }
+    return same;
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    segmentationLock = new Object();
+  }
+
   public void exportFragments(File screenshotsFolder, BufferedImage pageViewport) {
 
     if (screenshotsFolder.isDirectory()) {
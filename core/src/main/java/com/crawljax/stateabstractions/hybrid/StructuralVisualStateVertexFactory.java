@@ -1,6 +1,7 @@
 package com.crawljax.stateabstractions.hybrid;
 
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.core.state.StateVertex;
 import com.crawljax.core.state.StateVertexFactory;
 import com.crawljax.stateabstractions.visual.imagehashes.DHash;
@@ -69,8 +70,22 @@ public class StructuralVisualStateVertexFactory extends StateVertexFactory {
   public StateVertexForElementsWithVisualInfo newStateVertex(int id, String url, String name,
       String dom, String strippedDom, EmbeddedBrowser browser,
       DHash visualHashCalculator) {
+    return newStateVertex(id, url, name, dom, strippedDom, browser, visualHashCalculator,
+        browser.getScreenShotAsBufferedImage(1000));
+  }
+
+  @Override
+  public StateVertex newStateVertex(int id, String name, PageCapture capture,
+      String strippedDom) {
+    return newStateVertex(id, capture.getUrl(), name, capture.getDom(), strippedDom,
+        capture.getBrowser(), new DHash(), capture.getScreenshot(1000));
+  }
+
+  private StateVertexForElementsWithVisualInfo newStateVertex(int id, String url, String name,
+      String dom, String strippedDom, EmbeddedBrowser browser, DHash visualHashCalculator,
+      BufferedImage screenshot) {
     this.visualHashCalculator = visualHashCalculator;
-    this.screenshot = browser.getScreenShotAsBufferedImage(1000);
+    this.screenshot = screenshot;
 //    saveImage(screenshot, screenShotFile, true);
     List<DOMElementWithVisualInfo> elementsVisualInfo = getElementsVisualInfo(browser, strippedDom);
     return new StateVertexForElementsWithVisualInfo(id, url, name, dom, strippedDom,
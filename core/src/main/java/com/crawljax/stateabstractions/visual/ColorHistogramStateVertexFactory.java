@@ -1,8 +1,6 @@
 package com.crawljax.stateabstractions.visual;
 
-import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
 import java.awt.image.BufferedImage;
 import org.opencv.core.Mat;
 import org.slf4j.Logger;
@@ -12,7 +10,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the Stripped dom.
  */
-public class ColorHistogramStateVertexFactory extends StateVertexFactory {
+public class ColorHistogramStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(ColorHistogramStateVertexFactory.class.getName());
@@ -32,11 +30,8 @@ public class ColorHistogramStateVertexFactory extends StateVertexFactory {
 
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
-
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
     Mat hist = colorHist.getHistogram(image);
 
     return new ColorHistogramStateVertexImpl(id, url, name, dom, strippedDom, hist, threshold);
@@ -1,8 +1,6 @@
 package com.crawljax.stateabstractions.visual;
 
-import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
 import java.awt.image.BufferedImage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +9,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the Stripped dom.
  */
-public class PDiffStateVertexFactory extends StateVertexFactory {
+public class PDiffStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(PDiffStateVertexFactory.class.getName());
@@ -29,11 +27,8 @@ public class PDiffStateVertexFactory extends StateVertexFactory {
 
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
-
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
 
     return new PDiffStateVertexImpl(id, url, name, dom, strippedDom, image, threshold);
   }
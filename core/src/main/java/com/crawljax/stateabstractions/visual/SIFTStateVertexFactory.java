@@ -1,8 +1,6 @@
 package com.crawljax.stateabstractions.visual;
 
-import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
 import java.awt.image.BufferedImage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +9,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the Stripped dom.
  */
-public class SIFTStateVertexFactory extends StateVertexFactory {
+public class SIFTStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(SIFTStateVertexFactory.class.getName());
@@ -30,11 +28,8 @@ public class SIFTStateVertexFactory extends StateVertexFactory {
 
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
-
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
     return new SIFTStateVertexImpl(id, url, name, dom, strippedDom, image, threshold);
   }
 
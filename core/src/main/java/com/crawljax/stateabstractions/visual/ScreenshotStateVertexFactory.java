@@ -0,0 +1,43 @@
+package com.crawljax.stateabstractions.visual;
+
+import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexFactory;
+import java.awt.image.BufferedImage;
+
+/**
+ * A factory for states that are compared by the screenshot of the page. When the state is created
+ * from a {@link PageCapture}, the screenshot of the capture is used, so the page is only
+ * screenshotted once for the new state.
+ */
+public abstract class ScreenshotStateVertexFactory extends StateVertexFactory {
+
+  private static final int SCROLL_TIMEOUT = 1000;
+
+  /**
+   * Defines a State from the screenshot of the page.
+   *
+   * @param url         the current url of the state
+   * @param name        the name of the state
+   * @param dom         the current DOM tree of the browser
+   * @param strippedDom the stripped dom by the OracleComparators
+   * @param screenshot  the screenshot of the page
+   */
+  protected abstract StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage screenshot);
+
+  @Override
+  public StateVertex newStateVertex(int id, String url, String name, String dom,
+      String strippedDom, EmbeddedBrowser browser) {
+    return createStateVertex(id, url, name, dom, strippedDom,
+        browser.getScreenShotAsBufferedImage(SCROLL_TIMEOUT));
+  }
+
+  @Override
+  public StateVertex newStateVertex(int id, String name, PageCapture capture,
+      String strippedDom) {
+    return createStateVertex(id, capture.getUrl(), name, capture.getDom(), strippedDom,
+        capture.getScreenshot(SCROLL_TIMEOUT));
+  }
+}
@@ -6,7 +6,7 @@ import java.io.IOException;
 import org.opencv.core.Mat;
 import org.opencv.img_hash.AverageHash;
 
-public class AverageImageHash extends VisHash {
+public class AverageImageHash extends HammingVisHash {
 
   AverageImageHash() {
     thresholdCoefficient = 0.0;
@@ -1,11 +1,10 @@
 package com.crawljax.stateabstractions.visual.imagehashes;
 
-import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.core.state.NearestStateIndex;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
 import com.crawljax.stateabstractions.visual.OpenCVLoad;
+import com.crawljax.stateabstractions.visual.ScreenshotStateVertexFactory;
 import java.awt.image.BufferedImage;
-import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +12,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the visual hash of the web page's screenshot.
  */
-public class AverageImageHashStateVertexFactory extends StateVertexFactory {
+public class AverageImageHashStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(AverageImageHashStateVertexFactory.class.getName());
@@ -28,14 +27,17 @@ public class AverageImageHashStateVertexFactory extends StateVertexFactory {
 
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
+    HammingHash hammingHash = visHash.getHammingHash(image);
 
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
-    Mat hashMat = visHash.getHash(image);
+    return new AverageImageHashStateVertexImpl(id, url, name, dom, strippedDom, visHash,
+        hammingHash);
+  }
 
-    return new AverageImageHashStateVertexImpl(id, url, name, dom, strippedDom, visHash, hashMat);
+  @Override
+  public NearestStateIndex createNearestStateIndex() {
+    return new MultiIndexHammingIndex((int) visHash.maxThreshold);
   }
 
   @Override
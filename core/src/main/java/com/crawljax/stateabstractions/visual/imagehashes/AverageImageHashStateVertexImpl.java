@@ -5,17 +5,17 @@ import com.crawljax.core.state.StateVertexImpl;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
-import org.opencv.core.Mat;
 
 /**
  * The state vertex class which represents a state in the browser. When iterating over the possible
  * candidate elements every time a candidate is returned its removed from the list so it is a one
  * time only access to the candidates.
  */
-public class AverageImageHashStateVertexImpl extends StateVertexImpl {
+public class AverageImageHashStateVertexImpl extends StateVertexImpl
+    implements HammingHashStateVertex {
 
   private static final long serialVersionUID = 123400017983489L;
-  public final Mat hashMat;
+  public final HammingHash hammingHash;
   final AverageImageHash visHash;
 
   /**
@@ -26,8 +26,8 @@ public class AverageImageHashStateVertexImpl extends StateVertexImpl {
    */
   @VisibleForTesting
   AverageImageHashStateVertexImpl(int id, String name, String dom, AverageImageHash visHash,
-      Mat hashMat) {
-    this(id, null, name, dom, dom, visHash, hashMat);
+      HammingHash hammingHash) {
+    this(id, null, name, dom, dom, visHash, hammingHash);
   }
 
   /**
@@ -40,22 +40,22 @@ public class AverageImageHashStateVertexImpl extends StateVertexImpl {
    */
   public AverageImageHashStateVertexImpl(int id, String url, String name, String dom,
       String strippedDom,
-      AverageImageHash visHash, Mat hashMat) {
+      AverageImageHash visHash, HammingHash hammingHash) {
     super(id, url, name, dom, strippedDom);
     this.visHash = visHash;
-    this.hashMat = hashMat;
+    this.hammingHash = hammingHash;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(hashMat);
+    return Objects.hashCode(hammingHash);
   }
 
   @Override
   public boolean equals(Object object) {
     if (object instanceof AverageImageHashStateVertexImpl) {
       AverageImageHashStateVertexImpl that = (AverageImageHashStateVertexImpl) object;
-      double distance = visHash.compare(this.hashMat, that.hashMat);
+      double distance = visHash.compare(this.hammingHash, that.hammingHash);
       return (distance >= visHash.minThreshold && distance <= visHash.maxThreshold)
           || (distance == 0.0);
     }
@@ -74,7 +74,7 @@ public class AverageImageHashStateVertexImpl extends StateVertexImpl {
     // Only implemented when there is a threshold for near duplicates
     if (vertexOfGraph instanceof AverageImageHashStateVertexImpl) {
       AverageImageHashStateVertexImpl vertex = (AverageImageHashStateVertexImpl) vertexOfGraph;
-      double distance = visHash.compare(this.hashMat, vertex.hashMat);
+      double distance = visHash.compare(this.hammingHash, vertex.hammingHash);
       return distance >= visHash.minThreshold && distance <= visHash.maxThreshold;
     }
     return false;
@@ -84,8 +84,13 @@ public class AverageImageHashStateVertexImpl extends StateVertexImpl {
   public double getDist(StateVertex vertexOfGraph) {
     if (vertexOfGraph instanceof AverageImageHashStateVertexImpl) {
       AverageImageHashStateVertexImpl vertex = (AverageImageHashStateVertexImpl) vertexOfGraph;
-      return visHash.compare(this.hashMat, vertex.hashMat);
+      return visHash.compare(this.hammingHash, vertex.hammingHash);
     }
     return -1;
   }
+
+  @Override
+  public HammingHash getHammingHash() {
+    return hammingHash;
+  }
 }
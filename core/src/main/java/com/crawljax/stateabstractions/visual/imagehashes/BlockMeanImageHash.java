@@ -6,7 +6,7 @@ import java.io.IOException;
 import org.opencv.core.Mat;
 import org.opencv.img_hash.BlockMeanHash;
 
-public class BlockMeanImageHash extends VisHash {
+public class BlockMeanImageHash extends HammingVisHash {
 
   public BlockMeanImageHash() {
     thresholdCoefficient = 0.0;
@@ -5,17 +5,17 @@ import com.crawljax.core.state.StateVertexImpl;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
-import org.opencv.core.Mat;
 
 /**
  * The state vertex class which represents a state in the browser. When iterating over the possible
  * candidate elements every time a candidate is returned its removed from the list so it is a one
  * time only access to the candidates.
  */
-public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl {
+public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl
+    implements HammingHashStateVertex {
 
   private static final long serialVersionUID = 123400017983489L;
-  public final Mat hashMat;
+  public final HammingHash hammingHash;
   final BlockMeanImageHash visHash;
 
   /**
@@ -26,8 +26,8 @@ public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl {
    */
   @VisibleForTesting
   BlockMeanImageHashStateVertexImpl(int id, String name, String dom, BlockMeanImageHash visHash,
-      Mat hashMat) {
-    this(id, null, name, dom, dom, visHash, hashMat, -1);
+      HammingHash hammingHash) {
+    this(id, null, name, dom, dom, visHash, hammingHash, -1);
   }
 
   /**
@@ -42,10 +42,10 @@ public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl {
   public BlockMeanImageHashStateVertexImpl(int id, String url, String name, String dom,
       String strippedDom,
       BlockMeanImageHash visHash,
-      Mat hashMat, double threshold) {
+      HammingHash hammingHash, double threshold) {
     super(id, url, name, dom, strippedDom);
     this.visHash = visHash;
-    this.hashMat = hashMat;
+    this.hammingHash = hammingHash;
     if (threshold != -1) {
       this.visHash.maxThreshold = threshold;
     }
@@ -53,14 +53,14 @@ public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl {
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(hashMat);
+    return Objects.hashCode(hammingHash);
   }
 
   @Override
   public boolean equals(Object object) {
     if (object instanceof BlockMeanImageHashStateVertexImpl) {
       BlockMeanImageHashStateVertexImpl that = (BlockMeanImageHashStateVertexImpl) object;
-      double distance = visHash.compare(this.hashMat, that.hashMat);
+      double distance = visHash.compare(this.hammingHash, that.hammingHash);
       return (distance >= visHash.minThreshold && distance <= visHash.maxThreshold)
           || (distance == 0.0);
     }
@@ -79,7 +79,7 @@ public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl {
     // Only implemented when there is a threshold for near duplicates
     if (vertexOfGraph instanceof BlockMeanImageHashStateVertexImpl) {
       BlockMeanImageHashStateVertexImpl vertex = (BlockMeanImageHashStateVertexImpl) vertexOfGraph;
-      double distance = visHash.compare(this.hashMat, vertex.hashMat);
+      double distance = visHash.compare(this.hammingHash, vertex.hammingHash);
       return distance >= visHash.minThreshold && distance <= visHash.maxThreshold;
     }
     return false;
@@ -89,8 +89,13 @@ public class BlockMeanImageHashStateVertexImpl extends StateVertexImpl {
   public double getDist(StateVertex vertexOfGraph) {
     if (vertexOfGraph instanceof BlockMeanImageHashStateVertexImpl) {
       BlockMeanImageHashStateVertexImpl vertex = (BlockMeanImageHashStateVertexImpl) vertexOfGraph;
-      return visHash.compare(this.hashMat, vertex.hashMat);
+      return visHash.compare(this.hammingHash, vertex.hammingHash);
     }
     return -1;
   }
+
+  @Override
+  public HammingHash getHammingHash() {
+    return hammingHash;
+  }
 }
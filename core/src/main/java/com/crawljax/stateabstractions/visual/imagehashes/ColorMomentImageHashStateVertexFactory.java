@@ -1,9 +1,10 @@
 package com.crawljax.stateabstractions.visual.imagehashes;
 
-import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.core.state.NearestStateIndex;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
+import com.crawljax.core.state.VantagePointTreeIndex;
 import com.crawljax.stateabstractions.visual.OpenCVLoad;
+import com.crawljax.stateabstractions.visual.ScreenshotStateVertexFactory;
 import java.awt.image.BufferedImage;
 import org.opencv.core.Mat;
 import org.slf4j.Logger;
@@ -13,7 +14,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the visual hash of the web page's screenshot.
  */
-public class ColorMomentImageHashStateVertexFactory extends StateVertexFactory {
+public class ColorMomentImageHashStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(ColorMomentImageHashStateVertexFactory.class.getName());
@@ -28,17 +29,19 @@ public class ColorMomentImageHashStateVertexFactory extends StateVertexFactory {
 
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
-
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
     Mat hashMat = visHash.getHash(image);
 
     return new ColorMomentImageHashStateVertexImpl(id, url, name, dom, strippedDom, visHash,
         hashMat);
   }
 
+  @Override
+  public NearestStateIndex createNearestStateIndex() {
+    return new VantagePointTreeIndex();
+  }
+
   @Override
   public String toString() {
     return this.visHash.getHashName();
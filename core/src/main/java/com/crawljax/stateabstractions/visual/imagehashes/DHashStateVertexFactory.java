@@ -1,9 +1,8 @@
 package com.crawljax.stateabstractions.visual.imagehashes;
 
-import com.crawljax.browser.EmbeddedBrowser;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
 import com.crawljax.stateabstractions.visual.OpenCVLoad;
+import com.crawljax.stateabstractions.visual.ScreenshotStateVertexFactory;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import org.slf4j.Logger;
@@ -13,7 +12,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the Stripped dom.
  */
-public class DHashStateVertexFactory extends StateVertexFactory {
+public class DHashStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(DHashStateVertexFactory.class.getName());
@@ -26,11 +25,8 @@ public class DHashStateVertexFactory extends StateVertexFactory {
 
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
-
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
 
     DHash visualDHash = new DHash();
     String dHash = null;
@@ -43,4 +39,9 @@ public class DHashStateVertexFactory extends StateVertexFactory {
     return new DHashStateVertexImpl(id, url, name, dom, strippedDom, dHash);
   }
 
+  @Override
+  public boolean hasExactEquality() {
+    return true;
+  }
+
 }
@@ -10,11 +10,11 @@ import com.google.common.base.Objects;
  * candidate elements every time a candidate is returned its removed from the list so it is a one
  * time only access to the candidates.
  */
-public class DHashStateVertexImpl extends StateVertexImpl {
+public class DHashStateVertexImpl extends StateVertexImpl implements HammingHashStateVertex {
 
   private static final long serialVersionUID = 123400017983489L;
 
-  final String dHash;
+  final HammingHash dHash;
 
   /**
    * Creates a current state without an url and the stripped dom equals the dom.
@@ -38,7 +38,7 @@ public class DHashStateVertexImpl extends StateVertexImpl {
   public DHashStateVertexImpl(int id, String url, String name, String dom, String strippedDom,
       String dHashVisual) {
     super(id, url, name, dom, strippedDom);
-    this.dHash = dHashVisual;
+    this.dHash = HammingHash.fromBitString(dHashVisual);
   }
 
   @Override
@@ -50,7 +50,7 @@ public class DHashStateVertexImpl extends StateVertexImpl {
   public boolean equals(Object object) {
     if (object instanceof DHashStateVertexImpl) {
       DHashStateVertexImpl that = (DHashStateVertexImpl) object;
-      return Objects.equal(this.dHash, that.getDHashVisual());
+      return Objects.equal(this.dHash, that.dHash);
     }
     return false;
   }
@@ -63,6 +63,11 @@ public class DHashStateVertexImpl extends StateVertexImpl {
   }
 
   public String getDHashVisual() {
+    return dHash.toBitString();
+  }
+
+  @Override
+  public HammingHash getHammingHash() {
     return dHash;
   }
 
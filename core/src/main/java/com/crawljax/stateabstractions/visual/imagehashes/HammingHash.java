@@ -0,0 +1,141 @@
+package com.crawljax.stateabstractions.visual.imagehashes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * An image hash packed into 64-bit words. Two hashes are compared by counting the differing bits,
+ * which gives the same result as {@link org.opencv.core.Core#NORM_HAMMING} on the original OpenCV
+ * hash without a native call, and without keeping the native {@link Mat} alive.
+ */
+public final class HammingHash implements Serializable {
+
+  private static final long serialVersionUID = 2651018374012567802L;
+
+  private final long[] words;
+  private final int length;
+
+  private HammingHash(long[] words, int length) {
+    this.words = words;
+    this.length = length;
+  }
+
+  /**
+   * @param hash an OpenCV image hash with a {@link CvType#CV_8U} depth, as computed by the
+   *             <code>img_hash</code> algorithms.
+   * @return the packed hash.
+   */
+  public static HammingHash fromMat(Mat hash) {
+    if (hash.depth() != CvType.CV_8U) {
+      throw new IllegalArgumentException("Only CV_8U hashes can be packed, got type "
+          + CvType.typeToString(hash.type()));
+    }
+    byte[] bytes = new byte[(int) (hash.total() * hash.channels())];
+    hash.get(0, 0, bytes);
+    long[] words = new long[(bytes.length + 7) / 8];
+    for (int i = 0; i < bytes.length; i++) {
+      words[i / 8] |= (bytes[i] & 0xFFL) << (8 * (i % 8));
+    }
+    return new HammingHash(words, bytes.length * 8);
+  }
+
+  /**
+   * @param bits a hash written as a string of <code>0</code> and <code>1</code> characters.
+   * @return the packed hash.
+   */
+  public static HammingHash fromBitString(String bits) {
+    long[] words = new long[(bits.length() + 63) / 64];
+    for (int i = 0; i < bits.length(); i++) {
+      char bit = bits.charAt(i);
+      if (bit == '1') {
+        words[i / 64] |= 1L << (i % 64);
+      } else if (bit != '0') {
+        throw new IllegalArgumentException("Not a bit string: " + bits);
+      }
+    }
+    return new HammingHash(words, bits.length());
+  }
+
+  /**
+   * @param other the hash to compare with.
+   * @return the number of bits that differ between the two hashes.
+   * @throws IllegalArgumentException if the hashes do not have the same length.
+   */
+  public int distance(HammingHash other) {
+    if (length != other.length) {
+      throw new IllegalArgumentException(
+          "Hashes must have the same length: " + length + " and " + other.length);
+    }
+    int distance = 0;
+    for (int i = 0; i < words.length; i++) {
+      distance += Long.bitCount(words[i] ^ other.words[i]);
+    }
+    return distance;
+  }
+
+  /**
+   * @return the number of bits in the hash.
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @param index the index of the bit.
+   * @return whether the bit at the given index is set.
+   */
+  public boolean getBit(int index) {
+    return (words[index / 64] >>> (index % 64) & 1L) == 1L;
+  }
+
+  /**
+   * @param from the index of the first bit, inclusive.
+   * @param to   the index of the last bit, exclusive.
+   * @return a new hash with the bits in the given range.
+   */
+  public HammingHash slice(int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + from + ", " + to + ") out of bounds for length " + length);
+    }
+    long[] sliced = new long[(to - from + 63) / 64];
+    for (int i = from; i < to; i++) {
+      if (getBit(i)) {
+        sliced[(i - from) / 64] |= 1L << ((i - from) % 64);
+      }
+    }
+    return new HammingHash(sliced, to - from);
+  }
+
+  /**
+   * @return the hash as a string of <code>0</code> and <code>1</code> characters.
+   */
+  public String toBitString() {
+    StringBuilder bits = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      bits.append(getBit(i) ? '1' : '0');
+    }
+    return bits.toString();
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(words) + length;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof HammingHash) {
+      HammingHash that = (HammingHash) object;
+      return length == that.length && Arrays.equals(words, that.words);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return toBitString();
+  }
+}
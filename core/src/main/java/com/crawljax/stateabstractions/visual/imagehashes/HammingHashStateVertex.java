@@ -0,0 +1,15 @@
+package com.crawljax.stateabstractions.visual.imagehashes;
+
+import com.crawljax.core.state.StateVertex;
+
+/**
+ * A {@link StateVertex} that is abstracted by a {@link HammingHash} of its screenshot, and whose
+ * {@link StateVertex#getDist(StateVertex)} is the Hamming distance between those hashes.
+ */
+public interface HammingHashStateVertex extends StateVertex {
+
+  /**
+   * @return the packed image hash of this state.
+   */
+  HammingHash getHammingHash();
+}
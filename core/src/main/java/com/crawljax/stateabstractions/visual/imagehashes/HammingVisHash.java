@@ -0,0 +1,33 @@
+package com.crawljax.stateabstractions.visual.imagehashes;
+
+import java.awt.image.BufferedImage;
+import org.opencv.core.Mat;
+
+/**
+ * A {@link VisHash} whose {@link #compare(Mat, Mat)} is the Hamming distance between the hash
+ * bits. States only keep the {@link HammingHash} of these hashes, so comparing them does not need
+ * OpenCV.
+ */
+public abstract class HammingVisHash extends VisHash {
+
+  /**
+   * @param img the image to hash.
+   * @return the packed hash of the image.
+   */
+  public HammingHash getHammingHash(BufferedImage img) {
+    Mat hashMat = getHash(img);
+    try {
+      return HammingHash.fromMat(hashMat);
+    } finally {
+      hashMat.release();
+    }
+  }
+
+  /**
+   * @return the same distance as {@link #compare(Mat, Mat)} on the original hashes.
+   */
+  public double compare(HammingHash hash1, HammingHash hash2) {
+    return hash1.distance(hash2);
+  }
+
+}
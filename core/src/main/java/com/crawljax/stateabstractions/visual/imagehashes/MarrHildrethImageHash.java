@@ -6,7 +6,7 @@ import java.io.IOException;
 import org.opencv.core.Mat;
 import org.opencv.img_hash.MarrHildrethHash;
 
-public class MarrHildrethImageHash extends VisHash {
+public class MarrHildrethImageHash extends HammingVisHash {
 
   public MarrHildrethImageHash() {
     thresholdCoefficient = 0.0;
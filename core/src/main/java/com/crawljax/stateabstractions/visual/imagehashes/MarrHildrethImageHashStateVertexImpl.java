@@ -5,17 +5,17 @@ import com.crawljax.core.state.StateVertexImpl;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
-import org.opencv.core.Mat;
 
 /**
  * The state vertex class which represents a state in the browser. When iterating over the possible
  * candidate elements every time a candidate is returned its removed from the list so it is a one
  * time only access to the candidates.
  */
-public class MarrHildrethImageHashStateVertexImpl extends StateVertexImpl {
+public class MarrHildrethImageHashStateVertexImpl extends StateVertexImpl
+    implements HammingHashStateVertex {
 
   private static final long serialVersionUID = 123400017983489L;
-  public final Mat hashMat;
+  public final HammingHash hammingHash;
   final MarrHildrethImageHash hash;
 
   /**
@@ -27,8 +27,8 @@ public class MarrHildrethImageHashStateVertexImpl extends StateVertexImpl {
   @VisibleForTesting
   MarrHildrethImageHashStateVertexImpl(int id, String name, String dom,
       MarrHildrethImageHash visHash,
-      Mat hashMat) {
-    this(id, null, name, dom, dom, visHash, hashMat);
+      HammingHash hammingHash) {
+    this(id, null, name, dom, dom, visHash, hammingHash);
   }
 
   /**
@@ -41,22 +41,22 @@ public class MarrHildrethImageHashStateVertexImpl extends StateVertexImpl {
    */
   public MarrHildrethImageHashStateVertexImpl(int id, String url, String name, String dom,
       String strippedDom,
-      MarrHildrethImageHash visHash, Mat hashMat) {
+      MarrHildrethImageHash visHash, HammingHash hammingHash) {
     super(id, url, name, dom, strippedDom);
     this.hash = visHash;
-    this.hashMat = hashMat;
+    this.hammingHash = hammingHash;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(hashMat);
+    return Objects.hashCode(hammingHash);
   }
 
   @Override
   public boolean equals(Object object) {
     if (object instanceof MarrHildrethImageHashStateVertexImpl) {
       MarrHildrethImageHashStateVertexImpl that = (MarrHildrethImageHashStateVertexImpl) object;
-      double distance = hash.compare(this.hashMat, that.hashMat);
+      double distance = hash.compare(this.hammingHash, that.hammingHash);
       return (distance >= hash.minThreshold && distance <= hash.maxThreshold)
           || (distance == 0.0);
     }
@@ -75,7 +75,7 @@ public class MarrHildrethImageHashStateVertexImpl extends StateVertexImpl {
     // Only implemented when there is a threshold for near duplicates
     if (vertexOfGraph instanceof MarrHildrethImageHashStateVertexImpl) {
       MarrHildrethImageHashStateVertexImpl vertex = (MarrHildrethImageHashStateVertexImpl) vertexOfGraph;
-      double distance = hash.compare(this.hashMat, vertex.hashMat);
+      double distance = hash.compare(this.hammingHash, vertex.hammingHash);
       return distance >= hash.minThreshold && distance <= hash.maxThreshold;
     }
     return false;
@@ -85,8 +85,13 @@ public class MarrHildrethImageHashStateVertexImpl extends StateVertexImpl {
   public double getDist(StateVertex vertexOfGraph) {
     if (vertexOfGraph instanceof MarrHildrethImageHashStateVertexImpl) {
       MarrHildrethImageHashStateVertexImpl vertex = (MarrHildrethImageHashStateVertexImpl) vertexOfGraph;
-      return hash.compare(this.hashMat, vertex.hashMat);
+      return hash.compare(this.hammingHash, vertex.hammingHash);
     }
     return -1;
   }
+
+  @Override
+  public HammingHash getHammingHash() {
+    return hammingHash;
+  }
 }
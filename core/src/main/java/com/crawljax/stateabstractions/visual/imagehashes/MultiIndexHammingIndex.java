@@ -0,0 +1,144 @@
+package com.crawljax.stateabstractions.visual.imagehashes;
+
+import com.crawljax.core.state.NearestStateIndex;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.VantagePointTreeIndex;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@link NearestStateIndex} for {@link HammingHashStateVertex}es using multi-index hashing. Each
+ * hash is split into <code>radius + 1</code> substrings, with a hash table per substring. By the
+ * pigeonhole principle two hashes within Hamming distance <code>radius</code> have at least one
+ * identical substring, so only the states sharing a substring with the new state have to be
+ * compared.
+ * <p>
+ * The radius should be the largest distance at which two states are still considered equal, see
+ * {@link VisHash#maxThreshold}. Nearest state queries that have no candidate within the radius
+ * fall back to a {@link VantagePointTreeIndex}.
+ */
+public class MultiIndexHammingIndex implements NearestStateIndex {
+
+  private static final long serialVersionUID = 6270418237781094435L;
+
+  private final int radius;
+  private final NearestStateIndex fallback = new VantagePointTreeIndex();
+  private final List<Entry> entries = new ArrayList<>();
+  private final List<Map<HammingHash, List<Entry>>> tables = new ArrayList<>();
+  private int hashLength = -1;
+
+  /**
+   * @param radius the Hamming distance up to which {@link #findCloneCandidates(StateVertex)} must
+   *               return all states.
+   */
+  public MultiIndexHammingIndex(int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("The radius cannot be negative: " + radius);
+    }
+    this.radius = radius;
+  }
+
+  @Override
+  public void add(StateVertex state) {
+    HammingHash hash = ((HammingHashStateVertex) state).getHammingHash();
+    if (hashLength == -1) {
+      hashLength = hash.length();
+      for (int i = 0; i < getNumberOfTables(); i++) {
+        tables.add(new HashMap<>());
+      }
+    }
+    Entry entry = new Entry(state, entries.size());
+    entries.add(entry);
+    fallback.add(state);
+    for (int i = 0; i < tables.size(); i++) {
+      tables.get(i).computeIfAbsent(substring(hash, i), key -> new ArrayList<>(1)).add(entry);
+    }
+  }
+
+  @Override
+  public Neighbour findNearest(StateVertex state) {
+    if (tables.isEmpty()) {
+      return fallback.findNearest(state);
+    }
+    Entry best = null;
+    double bestDistance = Double.POSITIVE_INFINITY;
+    for (Entry candidate : getCandidates(state).values()) {
+      double dist = state.getDist(candidate.state);
+      if (best == null || dist < bestDistance) {
+        best = candidate;
+        bestDistance = dist;
+      }
+    }
+
+    // Every state closer than the number of tables shares a substring, so it was a candidate.
+    if (best != null && bestDistance < tables.size()) {
+      return new Neighbour(best.state, bestDistance);
+    }
+    return fallback.findNearest(state);
+  }
+
+  @Override
+  public Collection<StateVertex> findCloneCandidates(StateVertex state) {
+    List<StateVertex> candidates = new ArrayList<>();
+    for (Entry candidate : getCandidates(state).values()) {
+      candidates.add(candidate.state);
+    }
+    return candidates;
+  }
+
+  /**
+   * @return the indexed states sharing at least one substring with the given state, by the order
+   * in which they were added.
+   */
+  private TreeMap<Integer, Entry> getCandidates(StateVertex state) {
+    TreeMap<Integer, Entry> candidates = new TreeMap<>();
+    if (entries.isEmpty()) {
+      return candidates;
+    }
+    if (tables.isEmpty()) {
+      // The radius covers the whole hash, so every state is a candidate.
+      for (Entry entry : entries) {
+        candidates.put(entry.order, entry);
+      }
+      return candidates;
+    }
+    HammingHash hash = ((HammingHashStateVertex) state).getHammingHash();
+    for (int i = 0; i < tables.size(); i++) {
+      List<Entry> bucket = tables.get(i).get(substring(hash, i));
+      if (bucket != null) {
+        for (Entry entry : bucket) {
+          candidates.put(entry.order, entry);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  private int getNumberOfTables() {
+    return radius < hashLength ? radius + 1 : 0;
+  }
+
+  private HammingHash substring(HammingHash hash, int table) {
+    int numberOfTables = tables.size();
+    return hash.slice(table * hashLength / numberOfTables,
+        (table + 1) * hashLength / numberOfTables);
+  }
+
+  private static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1858126230970113624L;
+
+    private final StateVertex state;
+    private final int order;
+
+    private Entry(StateVertex state, int order) {
+      this.state = state;
+      this.order = order;
+    }
+  }
+}
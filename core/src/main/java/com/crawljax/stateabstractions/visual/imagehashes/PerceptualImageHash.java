@@ -6,7 +6,7 @@ import java.io.IOException;
 import org.opencv.core.Mat;
 import org.opencv.img_hash.PHash;
 
-public class PerceptualImageHash extends VisHash {
+public class PerceptualImageHash extends HammingVisHash {
 
   public PerceptualImageHash() {
     thresholdCoefficient = 0.0;
@@ -1,11 +1,10 @@
 package com.crawljax.stateabstractions.visual.imagehashes;
 
-import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.core.state.NearestStateIndex;
 import com.crawljax.core.state.StateVertex;
-import com.crawljax.core.state.StateVertexFactory;
 import com.crawljax.stateabstractions.visual.OpenCVLoad;
+import com.crawljax.stateabstractions.visual.ScreenshotStateVertexFactory;
 import java.awt.image.BufferedImage;
-import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +12,7 @@ import org.slf4j.LoggerFactory;
  * The default factory that creates State vertexes with a {@link Object#hashCode()} and
  * {@link Object#equals(Object)} function based on the visual hash of the web page's screenshot.
  */
-public class PerceptualImageHashStateVertexFactory extends StateVertexFactory {
+public class PerceptualImageHashStateVertexFactory extends ScreenshotStateVertexFactory {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(PerceptualImageHashStateVertexFactory.class.getName());
@@ -33,16 +32,19 @@ public class PerceptualImageHashStateVertexFactory extends StateVertexFactory {
   }
 
   @Override
-  public StateVertex newStateVertex(int id, String url, String name, String dom,
-      String strippedDom,
-      EmbeddedBrowser browser) {
-
-    BufferedImage image = browser.getScreenShotAsBufferedImage(1000);
+  protected StateVertex createStateVertex(int id, String url, String name, String dom,
+      String strippedDom, BufferedImage image) {
 //    String imageFile = saveImage(image, name);
-    Mat hashMat = visHash.getHash(image);
+    HammingHash hammingHash = visHash.getHammingHash(image);
+
+    return new PerceptualImageHashStateVertexImpl(id, url, name, dom, strippedDom, visHash,
+        hammingHash, threshold);
+  }
 
-    return new PerceptualImageHashStateVertexImpl(id, url, name, dom, strippedDom, visHash, hashMat,
-        threshold);
+  @Override
+  public NearestStateIndex createNearestStateIndex() {
+    // The states use the threshold as the maximum distance of the hash.
+    return new MultiIndexHammingIndex((int) threshold);
   }
 
   @Override
@@ -0,0 +1,263 @@
+/*
+ * Serializes the current document including the content of its frames, without the script
+ * elements and without the attributes whose name matches one of the patterns in arguments[0].
+ * Returns null when the content of a frame can not be read, for example because the frame is
+ * from another origin, so the caller can fall back to switching to the frames.
+ *
+ * The DOM is written like DomUtils.getDocumentToString writes the DOM parsed from the page
+ * source, so both give the same string: attribute names in lower case and sorted, the escaping
+ * and the entities of the html output method, a META element after the HEAD start tag, and the
+ * line separator in arguments[1] for the line feeds in text.
+ */
+var patterns = arguments[0].map(function (pattern) {
+  return new RegExp('^(?:' + pattern + ')$', 'i');
+});
+var lineSeparator = arguments[1];
+
+var META = '<META http-equiv="Content-Type" content="text/html; charset=UTF-8">';
+var EMPTY = names('basefont frame isindex br area link img param hr input col base meta');
+var RAW = names('script style');
+var URL_ATTRIBUTES = {
+  a: names('href name'), area: names('href'), base: names('href'), blockquote: names('cite'),
+  del: names('cite'), div: names('src'), form: names('action'), frame: names('src longdesc'),
+  head: names('profile'), iframe: names('src longdesc'), ilayer: names('src'),
+  img: names('src longdesc usemap'), input: names('src usemap'), ins: names('cite'),
+  layer: names('src'), link: names('href'),
+  object: names('classid codebase data archive usemap'), q: names('cite'),
+  script: names('src for')
+};
+var EMPTY_ATTRIBUTES = {
+  area: names('nohref'), button: names('disabled'), dir: names('compact'), div: names('nowrap'),
+  dl: names('compact'), frame: names('noresize'), hr: names('noshade'), img: names('ismap'),
+  input: names('checked disabled ismap readonly'), menu: names('compact'),
+  object: names('declare'), ol: names('compact'), optgroup: names('disabled'),
+  option: names('selected disabled'), script: names('defer'), select: names('disabled multiple'),
+  table: names('nowrap'), td: names('nowrap'), textarea: names('disabled readonly'),
+  th: names('nowrap'), tr: names('nowrap'), ul: names('compact')
+};
+var ENTITIES = {
+  160: 'nbsp', 161: 'iexcl', 162: 'cent', 163: 'pound', 164: 'curren', 165: 'yen', 166: 'brvbar',
+  167: 'sect', 168: 'uml', 169: 'copy', 170: 'ordf', 171: 'laquo', 172: 'not', 173: 'shy',
+  174: 'reg', 175: 'macr', 176: 'deg', 177: 'plusmn', 178: 'sup2', 179: 'sup3', 180: 'acute',
+  181: 'micro', 182: 'para', 183: 'middot', 184: 'cedil', 185: 'sup1', 186: 'ordm', 187: 'raquo',
+  188: 'frac14', 189: 'frac12', 190: 'frac34', 191: 'iquest', 192: 'Agrave', 193: 'Aacute',
+  194: 'Acirc', 195: 'Atilde', 196: 'Auml', 197: 'Aring', 198: 'AElig', 199: 'Ccedil',
+  200: 'Egrave', 201: 'Eacute', 202: 'Ecirc', 203: 'Euml', 204: 'Igrave', 205: 'Iacute',
+  206: 'Icirc', 207: 'Iuml', 208: 'ETH', 209: 'Ntilde', 210: 'Ograve', 211: 'Oacute', 212: 'Ocirc',
+  213: 'Otilde', 214: 'Ouml', 215: 'times', 216: 'Oslash', 217: 'Ugrave', 218: 'Uacute',
+  219: 'Ucirc', 220: 'Uuml', 221: 'Yacute', 222: 'THORN', 223: 'szlig', 224: 'agrave',
+  225: 'aacute', 226: 'acirc', 227: 'atilde', 228: 'auml', 229: 'aring', 230: 'aelig',
+  231: 'ccedil', 232: 'egrave', 233: 'eacute', 234: 'ecirc', 235: 'euml', 236: 'igrave',
+  237: 'iacute', 238: 'icirc', 239: 'iuml', 240: 'eth', 241: 'ntilde', 242: 'ograve', 243: 'oacute',
+  244: 'ocirc', 245: 'otilde', 246: 'ouml', 247: 'divide', 248: 'oslash', 249: 'ugrave',
+  250: 'uacute', 251: 'ucirc', 252: 'uuml', 253: 'yacute', 254: 'thorn', 255: 'yuml', 8194: 'ensp',
+  8195: 'emsp', 8201: 'thinsp', 8204: 'zwnj', 8205: 'zwj', 8206: 'lrm', 8207: 'rlm', 8211: 'ndash',
+  8212: 'mdash', 8216: 'lsquo', 8217: 'rsquo', 8218: 'sbquo', 8220: 'ldquo', 8221: 'rdquo',
+  8222: 'bdquo', 8224: 'dagger', 8225: 'Dagger', 8226: 'bull', 8230: 'hellip', 8240: 'permil',
+  8242: 'prime', 8243: 'Prime', 8249: 'lsaquo', 8250: 'rsaquo', 8254: 'oline', 8260: 'frasl',
+  8364: 'euro', 8465: 'image', 8472: 'weierp', 8476: 'real', 8482: 'trade', 8501: 'alefsym',
+  8592: 'larr', 8593: 'uarr', 8594: 'rarr', 8595: 'darr', 8596: 'harr', 8629: 'crarr', 8656: 'lArr',
+  8657: 'uArr', 8658: 'rArr', 8659: 'dArr', 8660: 'hArr', 8704: 'forall', 8706: 'part',
+  8707: 'exist', 8709: 'empty', 8711: 'nabla', 8712: 'isin', 8713: 'notin', 8715: 'ni',
+  8719: 'prod', 8721: 'sum', 8722: 'minus', 8727: 'lowast', 8730: 'radic', 8733: 'prop',
+  8734: 'infin', 8736: 'ang', 8743: 'and', 8744: 'or', 8745: 'cap', 8746: 'cup', 8747: 'int',
+  8756: 'there4', 8764: 'sim', 8773: 'cong', 8776: 'asymp', 8800: 'ne', 8801: 'equiv', 8804: 'le',
+  8805: 'ge', 8834: 'sub', 8835: 'sup', 8836: 'nsub', 8838: 'sube', 8839: 'supe', 8853: 'oplus',
+  8855: 'otimes', 8869: 'perp', 8901: 'sdot', 8968: 'lceil', 8969: 'rceil', 8970: 'lfloor',
+  8971: 'rfloor', 9001: 'lang', 9002: 'rang', 9674: 'loz', 9824: 'spades', 9827: 'clubs',
+  9829: 'hearts', 9830: 'diams'
+};
+
+function names(list) {
+  var set = {};
+  list.split(' ').forEach(function (name) {
+    set[name] = true;
+  });
+  return set;
+}
+
+function FrameNotReadable() {
+}
+
+function isFiltered(name) {
+  for (var i = 0; i < patterns.length; i++) {
+    if (patterns[i].test(name)) {
+      return true;
+    }
+  }
+  return false;
+}
+
+function escapeText(text) {
+  return text.replace(
+      /[\uD800-\uDBFF][\uDC00-\uDFFF]|[\u0000-\u0008\n\u000B-\u001F&<>\u007F-\u27FF]/g,
+      function (c) {
+        switch (c) {
+          case '\n':
+            return lineSeparator;
+          case '&':
+            return '&amp;';
+          case '<':
+            return '&lt;';
+          case '>':
+            return '&gt;';
+          default:
+            return entity(c);
+        }
+      });
+}
+
+function escapeRawText(text) {
+  return text.replace(/[\u0000-\u0008\n\u000B\u000C\u000E-\u001F]/g, function (c) {
+    return c === '\n' ? lineSeparator : '&#' + c.charCodeAt(0) + ';';
+  });
+}
+
+function escapeAttribute(value) {
+  return value.replace(/&(?!\{)|[\u0000-\u0008\u000B\u000C\u000E-\u001F"\u00A0-\u27FF]/g,
+      function (c) {
+        switch (c) {
+          case '&':
+            return '&amp;';
+          case '"':
+            return '&quot;';
+          default:
+            return entity(c);
+        }
+      });
+}
+
+function entity(c) {
+  var code = c.length === 2
+      ? 0x10000 + ((c.charCodeAt(0) - 0xD800) << 10) + (c.charCodeAt(1) - 0xDC00)
+      : c.charCodeAt(0);
+  var name = ENTITIES[code];
+  if (name) {
+    return '&' + name + ';';
+  }
+  return code < 0xA0 || code > 0xFFFF ? '&#' + code + ';' : c;
+}
+
+/*
+ * Escapes the characters outside of printable ASCII as the %HH of their UTF-8 bytes.
+ */
+function escapeUrl(value) {
+  return value.replace(/[\uD800-\uDBFF][\uDC00-\uDFFF]|[\u0000-\u001F\u007F-\uFFFF"&]/g,
+      function (c) {
+        switch (c) {
+          case '"':
+            return '%22';
+          case '&':
+            return '&amp;';
+          default:
+            return utf8Bytes(c).map(function (b) {
+              return '%' + (b < 16 ? '0' : '') + b.toString(16).toUpperCase();
+            }).join('');
+        }
+      });
+}
+
+function utf8Bytes(c) {
+  var code = c.length === 2
+      ? 0x10000 + ((c.charCodeAt(0) - 0xD800) << 10) + (c.charCodeAt(1) - 0xDC00)
+      : c.charCodeAt(0);
+  if (code < 0x80) {
+    return [code];
+  } else if (code < 0x800) {
+    return [0xC0 | (code >> 6), 0x80 | (code & 0x3F)];
+  } else if (code < 0x10000) {
+    return [0xE0 | (code >> 12), 0x80 | ((code >> 6) & 0x3F), 0x80 | (code & 0x3F)];
+  }
+  return [0xF0 | (code >> 18), 0x80 | ((code >> 12) & 0x3F), 0x80 | ((code >> 6) & 0x3F),
+    0x80 | (code & 0x3F)];
+}
+
+function writeAttributes(element, key) {
+  var attributes = [];
+  for (var i = 0; i < element.attributes.length; i++) {
+    var name = element.attributes[i].name.toLowerCase();
+    if (!isFiltered(name)) {
+      attributes.push({name: name, value: element.attributes[i].value});
+    }
+  }
+  attributes.sort(function (a, b) {
+    return a.name < b.name ? -1 : a.name > b.name ? 1 : 0;
+  });
+  var out = '';
+  attributes.forEach(function (attribute) {
+    var value = attribute.value;
+    if ((value === '' || value.toLowerCase() === attribute.name)
+        && EMPTY_ATTRIBUTES[key] && EMPTY_ATTRIBUTES[key][attribute.name]) {
+      out += ' ' + attribute.name;
+    } else if (URL_ATTRIBUTES[key] && URL_ATTRIBUTES[key][attribute.name]) {
+      out += ' ' + attribute.name + '="' + escapeUrl(value) + '"';
+    } else {
+      out += ' ' + attribute.name + '="' + escapeAttribute(value) + '"';
+    }
+  });
+  return out;
+}
+
+function frameRoot(frame) {
+  var frameDocument;
+  try {
+    frameDocument = frame.contentDocument;
+  } catch (e) {
+    throw new FrameNotReadable();
+  }
+  if (!frameDocument || !frameDocument.documentElement) {
+    throw new FrameNotReadable();
+  }
+  return frameDocument.documentElement;
+}
+
+function writeNode(node, raw) {
+  switch (node.nodeType) {
+    case 1:
+      return writeElement(node);
+    case 3:
+      return raw ? escapeRawText(node.data) : escapeText(node.data);
+    case 8:
+      var comment = node.data.replace(/-(?=-)/g, '- ');
+      return '<!--' + comment + (comment.charAt(comment.length - 1) === '-' ? ' ' : '') + '-->';
+    default:
+      return '';
+  }
+}
+
+function writeElement(element) {
+  var name = element.localName;
+  var key = name.toLowerCase();
+  var out = '<' + name;
+  if (key === 'head') {
+    out += '>' + META;
+  } else {
+    out += writeAttributes(element, key) + '>';
+  }
+  var raw = RAW[key] === true;
+  var children = key === 'template' && element.content ? element.content : element;
+  var empty = true;
+  for (var child = children.firstChild; child; child = child.nextSibling) {
+    if (child.nodeType !== 1 || child.localName.toLowerCase() !== 'script') {
+      var content = writeNode(child, raw);
+      out += content;
+      empty = empty && content === '';
+    }
+  }
+  if ((key === 'iframe' || key === 'frame')
+      && (element.getAttribute('id') || element.getAttribute('name'))) {
+    out += writeElement(frameRoot(element));
+    empty = false;
+  }
+  // The end tag of an empty element is only left out when it has no content
+  return EMPTY[key] && empty ? out : out + '</' + name + '>';
+}
+
+try {
+  return writeElement(document.documentElement);
+} catch (e) {
+  if (e instanceof FrameNotReadable) {
+    return null;
+  }
+  throw e;
+}
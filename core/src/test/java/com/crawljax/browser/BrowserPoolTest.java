@@ -0,0 +1,135 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crawljax.core.CrawljaxException;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Provider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class BrowserPoolTest {
+
+  private BrowserPool pool;
+  private final List<EmbeddedBrowser> launched = new ArrayList<>();
+  private final Provider<EmbeddedBrowser> newBrowsers = () -> {
+    EmbeddedBrowser browser = mock(EmbeddedBrowser.class);
+    synchronized (launched) {
+      launched.add(browser);
+    }
+    return browser;
+  };
+  private final AtomicInteger reuses = new AtomicInteger();
+
+  @Before
+  public void setup() {
+    pool = new BrowserPool(4);
+  }
+
+  @After
+  public void closePool() {
+    pool.close();
+  }
+
+  @Test(timeout = 10_000)
+  public void releasedBrowsersAreReused() {
+    EmbeddedBrowser browser = pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+    pool.release(browser);
+
+    assertThat(pool.acquire(newBrowsers, b -> reuses.incrementAndGet()), sameInstance(browser));
+    assertThat(launched.size(), is(1));
+    assertThat(reuses.get(), is(1));
+    assertThat(pool.getMetrics().counter("reused").getCount(), is(1L));
+  }
+
+  @Test(timeout = 10_000)
+  public void prelaunchedBrowsersAreHandedOutFresh() {
+    pool.prelaunch(2, newBrowsers);
+
+    EmbeddedBrowser first = pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+    EmbeddedBrowser second = pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+
+    assertThat(first, not(sameInstance(second)));
+    assertThat(launched.size(), is(2));
+    assertThat(reuses.get(), is(0));
+    assertThat(pool.getMetrics().timer("wait").getCount(), is(2L));
+  }
+
+  @Test(timeout = 10_000)
+  public void browsersPrelaunchedByAnotherCrawlAreHandedOver() {
+    Provider<EmbeddedBrowser> otherCrawl = newBrowsers::get;
+    pool.prelaunch(1, otherCrawl);
+
+    EmbeddedBrowser browser = pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+
+    assertThat(launched, is(List.of(browser)));
+    assertThat(reuses.get(), is(1));
+    assertThat(pool.getMetrics().counter("reused").getCount(), is(0L));
+  }
+
+  @Test(timeout = 10_000)
+  public void waitingForABrowserIsInterruptible() {
+    CountDownLatch launch = new CountDownLatch(1);
+    pool.prelaunch(1, () -> {
+      Uninterruptibles.awaitUninterruptibly(launch);
+      return newBrowsers.get();
+    });
+
+    Thread.currentThread().interrupt();
+    try {
+      pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+      fail("Acquiring a browser should stop when the thread is interrupted");
+    } catch (CrawljaxException e) {
+      assertThat(Thread.interrupted(), is(true));
+    } finally {
+      launch.countDown();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void crashedBrowsersAreEvicted() {
+    EmbeddedBrowser crashed = mock(EmbeddedBrowser.class);
+    WebDriver driver = mock(WebDriver.class);
+    when(crashed.getWebDriver()).thenReturn(driver);
+    when(driver.navigate()).thenThrow(new WebDriverException("The browser crashed"));
+
+    pool.release(crashed);
+    EmbeddedBrowser replacement = pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+
+    assertThat(replacement, not(sameInstance(crashed)));
+    verify(crashed).close();
+    assertThat(pool.getMetrics().counter("evicted").getCount(), is(1L));
+  }
+
+  @Test(timeout = 10_000)
+  public void closingThePoolQuitsKeptAndReleasedBrowsers() {
+    pool.prelaunch(1, newBrowsers);
+    EmbeddedBrowser kept = pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+    pool.release(kept);
+    pool.prelaunch(1, newBrowsers);
+    pool.acquire(newBrowsers, b -> reuses.incrementAndGet());
+    pool.release(kept);
+    pool.prelaunch(1, newBrowsers);
+
+    pool.close();
+    EmbeddedBrowser inUse = mock(EmbeddedBrowser.class);
+    pool.release(inUse);
+
+    assertThat(pool.getIdleCount(), is(0));
+    verify(inUse).close();
+  }
+}
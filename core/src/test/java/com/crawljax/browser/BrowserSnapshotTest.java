@@ -0,0 +1,109 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.net.URI;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriver.Navigation;
+import org.openqa.selenium.WebDriver.Options;
+
+public class BrowserSnapshotTest {
+
+  private static final String URL = "http://example.com/app#/cart";
+
+  private EmbeddedBrowser browser;
+  private Options options;
+  private Navigation navigation;
+  private final Cookie session = new Cookie("session", "42");
+
+  @Before
+  public void setup() {
+    browser = mock(EmbeddedBrowser.class);
+    WebDriver driver = mock(WebDriver.class);
+    options = mock(Options.class);
+    navigation = mock(Navigation.class);
+    when(browser.getWebDriver()).thenReturn(driver);
+    when(driver.manage()).thenReturn(options);
+    when(driver.navigate()).thenReturn(navigation);
+    when(options.getCookies()).thenReturn(ImmutableSet.of(session));
+    when(browser.getCurrentUrl()).thenReturn(URL);
+    when(browser.executeJavaScript(anyString()))
+        .thenReturn("{\"local\": {\"cart\": \"[1,2]\"}, \"session\": {\"step\": \"2\"}}");
+  }
+
+  @Test
+  public void captureReadsUrlCookiesAndStorage() {
+    BrowserSnapshot snapshot = BrowserSnapshot.capture(browser);
+
+    assertThat(snapshot.getUrl(), is(URI.create(URL)));
+    assertThat(snapshot.getCookies(), is(ImmutableSet.of(session)));
+    assertThat(snapshot.getLocalStorage(), is(ImmutableMap.of("cart", "[1,2]")));
+    assertThat(snapshot.getSessionStorage(), is(ImmutableMap.of("step", "2")));
+  }
+
+  @Test
+  public void captureWithoutStorageIsEmpty() {
+    when(browser.executeJavaScript(anyString())).thenReturn("{}");
+
+    BrowserSnapshot snapshot = BrowserSnapshot.capture(browser);
+
+    assertThat(snapshot.getLocalStorage().isEmpty(), is(true));
+    assertThat(snapshot.getSessionStorage().isEmpty(), is(true));
+  }
+
+  @Test
+  public void restoreOnTheSameSiteLoadsTheUrlOnce() {
+    BrowserSnapshot snapshot = BrowserSnapshot.capture(browser);
+    when(browser.getCurrentUrl()).thenReturn("http://example.com/app#/home");
+
+    snapshot.restore(browser);
+
+    InOrder order = inOrder(options, browser, navigation);
+    order.verify(options).deleteAllCookies();
+    order.verify(options).addCookie(session);
+    ArgumentCaptor<String> script = ArgumentCaptor.forClass(String.class);
+    order.verify(browser).executeJavaScript(script.capture());
+    order.verify(navigation).to("about:blank");
+    order.verify(browser).goToUrl(URI.create(URL));
+    assertThat(script.getValue(), containsString("{\"cart\":\"[1,2]\"}"));
+    assertThat(script.getValue(), containsString("{\"step\":\"2\"}"));
+  }
+
+  @Test
+  public void restoreFromAnotherSiteLoadsTheUrlBeforeSettingCookies() {
+    BrowserSnapshot snapshot = BrowserSnapshot.capture(browser);
+    when(browser.getCurrentUrl()).thenReturn("about:blank");
+
+    snapshot.restore(browser);
+
+    InOrder order = inOrder(options, browser);
+    order.verify(browser).goToUrl(URI.create(URL));
+    order.verify(options).addCookie(any(Cookie.class));
+    order.verify(browser).goToUrl(URI.create(URL));
+  }
+
+  @Test
+  public void restoreOnTheSameSiteDoesNotLoadTheUrlFirst() {
+    BrowserSnapshot snapshot = BrowserSnapshot.capture(browser);
+
+    snapshot.restore(browser);
+
+    verify(browser, times(1)).goToUrl(any(URI.class));
+  }
+}
@@ -0,0 +1,61 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PageCaptureTest {
+
+  @Mock
+  private EmbeddedBrowser browser;
+
+  @Test
+  public void pageIsFetchedOnce() {
+    when(browser.getCurrentUrl()).thenReturn("http://localhost/");
+    when(browser.getStrippedDom()).thenReturn("<HTML><BODY/></HTML>");
+
+    PageCapture capture = PageCapture.of(browser);
+    capture.getDom();
+    capture.getDom();
+
+    assertThat(capture.getUrl(), is("http://localhost/"));
+    assertThat(capture.getDom(), is("<HTML><BODY/></HTML>"));
+    verify(browser, times(1)).getStrippedDom();
+    verify(browser, times(1)).getCurrentUrl();
+  }
+
+  @Test
+  public void pageIsCapturedUnderTheGivenUrl() {
+    when(browser.getStrippedDom()).thenReturn("<HTML><BODY/></HTML>");
+
+    PageCapture capture = PageCapture.of(browser, "http://localhost/index.html");
+
+    assertThat(capture.getUrl(), is("http://localhost/index.html"));
+    assertThat(capture.getDom(), is("<HTML><BODY/></HTML>"));
+    verify(browser, never()).getCurrentUrl();
+  }
+
+  @Test
+  public void screenshotIsTakenOnce() {
+    BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    when(browser.getScreenShotAsBufferedImage(anyInt())).thenReturn(image);
+
+    PageCapture capture = PageCapture.of(browser);
+    assertThat(capture.getScreenshot(1000), is(sameInstance(image)));
+    assertThat(capture.getScreenshot(500), is(sameInstance(image)));
+    verify(browser, times(1)).getScreenShotAsBufferedImage(anyInt());
+  }
+
+}
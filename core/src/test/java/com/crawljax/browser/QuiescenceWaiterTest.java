@@ -0,0 +1,112 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.crawljax.browser.QuiescenceWaiter.NetworkMonitor;
+import com.crawljax.metrics.MetricsModule;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+public class QuiescenceWaiterTest {
+
+  private static final long QUIET_PERIOD = 100;
+  private static final long MAX_WAIT = 2000;
+
+  private WebDriver driver;
+  private MetricRegistry registry;
+
+  @Before
+  public void setup() {
+    driver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+    registry = new MetricRegistry();
+  }
+
+  @Test
+  public void quietPageSettlesAfterTheQuietPeriod() throws InterruptedException {
+    domIdleFor(10_000L);
+    QuiescenceWaiter waiter = new QuiescenceWaiter(driver, registry, QUIET_PERIOD, null);
+
+    long waited = timed(() -> waiter.afterEvent(MAX_WAIT));
+
+    assertThat(waited, greaterThanOrEqualTo(QUIET_PERIOD));
+    assertThat(waited, lessThan(MAX_WAIT));
+    assertThat(timer("settle_after_event").getCount(), is(1L));
+    assertThat(timeouts(), is(0L));
+  }
+
+  @Test
+  public void changingPageWaitsTheLongestTime() throws InterruptedException {
+    domIdleFor(0L);
+    QuiescenceWaiter waiter = new QuiescenceWaiter(driver, registry, QUIET_PERIOD, null);
+
+    long waited = timed(() -> waiter.afterReload(300));
+
+    assertThat(waited, greaterThanOrEqualTo(300L));
+    assertThat(timer("settle_after_reload").getCount(), is(1L));
+    assertThat(timeouts(), is(1L));
+  }
+
+  @Test
+  public void busyNetworkWaitsTheLongestTime() throws InterruptedException {
+    domIdleFor(10_000L);
+    NetworkMonitor network = new NetworkMonitor();
+    for (int i = 0; i <= NetworkMonitor.MAX_OPEN_REQUESTS; i++) {
+      network.started("request" + i);
+    }
+    QuiescenceWaiter waiter = new QuiescenceWaiter(driver, registry, QUIET_PERIOD, network);
+
+    waiter.afterEvent(300);
+
+    assertThat(timeouts(), is(1L));
+  }
+
+  @Test
+  public void networkIsIdleWithFewOpenRequests() throws InterruptedException {
+    NetworkMonitor network = new NetworkMonitor();
+    network.started("poll");
+    network.started("xhr");
+    network.started("image");
+    assertThat(network.idleMs(System.nanoTime() + TimeUnit.SECONDS.toNanos(1)), is(0L));
+
+    network.finished("image");
+    long finished = System.nanoTime();
+
+    assertThat(network.idleMs(finished + TimeUnit.SECONDS.toNanos(1)),
+        greaterThanOrEqualTo(1000L));
+  }
+
+  private void domIdleFor(long millis) {
+    when(((JavascriptExecutor) driver).executeScript(anyString())).thenReturn(millis);
+  }
+
+  private Timer timer(String name) {
+    return registry.timer(MetricsModule.EVENTS_PREFIX + name);
+  }
+
+  private long timeouts() {
+    return registry.counter(MetricsModule.EVENTS_PREFIX + "settle_timeouts").getCount();
+  }
+
+  private static long timed(Wait wait) throws InterruptedException {
+    long start = System.nanoTime();
+    wait.run();
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private interface Wait {
+
+    void run() throws InterruptedException;
+  }
+}
@@ -48,6 +48,22 @@ public class WebDriverBackedEmbeddedBrowserTest {
 
   }
 
+  @Test
+  public void domSerializedInBrowserEqualsDomFromPageSources() {
+
+    WebDriverBackedEmbeddedBrowser browser = WebDriverBackedEmbeddedBrowser
+        .withDriver(provider.newBrowser(),
+            ImmutableSortedSet.of("closure_hashcode_(\\w)*", "jquery[0-9]+"), 100, 100);
+
+    browser.goToUrl(SERVER.getSiteUrl());
+    String fromPageSources = browser.getStrippedDom();
+
+    browser.setCaptureDomInBrowser(true);
+    String fromBrowser = browser.getStrippedDom();
+
+    assertEquals(fromPageSources, fromBrowser);
+  }
+
   @Test
   public void saveScreenShot() throws CrawljaxException, IOException {
 
@@ -0,0 +1,46 @@
+package com.crawljax.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+import com.crawljax.core.configuration.BrowserConfiguration;
+import com.crawljax.core.configuration.BrowserOptions;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
+import com.crawljax.metrics.MetricsModule;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+
+public class WebDriverBrowserBuilderTest {
+
+  @Test
+  public void configuringABrowserOfAnotherCrawlAppliesTheSettingsOfThisCrawl() {
+    WebDriverBackedEmbeddedBrowser browser = WebDriverBackedEmbeddedBrowser.withDriver(
+        mock(WebDriver.class), ImmutableSortedSet.of("closure_hashcode"), 100, 200);
+    browser.setCaptureDomInBrowser(true);
+
+    BrowserOptions options = new BrowserOptions();
+    options.setAdaptiveWaiting(true);
+    CrawljaxConfigurationBuilder builder = CrawljaxConfiguration.builderFor("http://localhost");
+    builder.setBrowserConfig(new BrowserConfiguration(BrowserType.CHROME_HEADLESS, 1, options));
+    builder.crawlRules().waitAfterReloadUrl(300, TimeUnit.MILLISECONDS);
+    builder.crawlRules().waitAfterEvent(400, TimeUnit.MILLISECONDS);
+    builder.crawlRules().filterAttributeNames("jquery");
+    MetricRegistry registry = new MetricRegistry();
+
+    new WebDriverBrowserBuilder(builder.build(), null, registry).configure(browser);
+
+    assertThat(browser.getFilterAttributes(), is(ImmutableSortedSet.of("jquery")));
+    assertThat(browser.getCrawlWaitReload(), is(300L));
+    assertThat(browser.getCrawlWaitEvent(), is(400L));
+    assertThat(browser.isCaptureDomInBrowser(), is(false));
+    assertThat(browser.isAdaptiveWaiting(), is(true));
+    assertThat(registry.getTimers()
+        .containsKey(MetricsModule.EVENTS_PREFIX + "settle_after_event"), is(true));
+  }
+}
@@ -0,0 +1,51 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class CrawlExecutorsTest {
+
+  @Test(timeout = 10_000)
+  public void consumerExecutorRunsTasksWithOrWithoutVirtualThreads() throws Exception {
+    for (boolean virtualThreads : new boolean[] {false, true}) {
+      ExecutorService executor = CrawlExecutors.newConsumerExecutor(virtualThreads);
+      try {
+        assertThat(executor.submit(() -> 42).get(), is(42));
+      } finally {
+        executor.shutdownNow();
+      }
+      assertThat(executor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void timerRunsScheduledTasksAndCanBeCancelled() throws Exception {
+    CountDownLatch ran = new CountDownLatch(1);
+    CrawlExecutors.timer().schedule(ran::countDown, 10, TimeUnit.MILLISECONDS);
+    ran.await();
+
+    ScheduledFuture<?> cancelled =
+        CrawlExecutors.timer().schedule(() -> {
+          throw new AssertionError("Cancelled task ran");
+        }, 1, TimeUnit.HOURS);
+    assertThat(cancelled.cancel(false), is(true));
+  }
+
+  @Test
+  public void cancelledTimerTasksAreRemovedRightAway() {
+    ScheduledFuture<?> cancelled =
+        CrawlExecutors.timer().schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+    cancelled.cancel(false);
+
+    ScheduledThreadPoolExecutor timer = (ScheduledThreadPoolExecutor) CrawlExecutors.timer();
+    assertThat(timer.getQueue().contains(cancelled), is(false));
+  }
+}
@@ -0,0 +1,143 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CrawlTaskSchedulerTest {
+
+  private CrawlTaskScheduler scheduler;
+
+  @Before
+  public void setup() {
+    scheduler = new CrawlTaskScheduler();
+  }
+
+  @Test
+  public void takeRotatesThroughStates() throws InterruptedException {
+    scheduler.add(3);
+    scheduler.add(1);
+    scheduler.add(2);
+
+    assertThat(scheduler.take(), is(3));
+    assertThat(scheduler.take(), is(1));
+    assertThat(scheduler.take(), is(2));
+    assertThat(scheduler.take(), is(3));
+  }
+
+  @Test
+  public void statesAreScheduledOnce() throws InterruptedException {
+    scheduler.add(1);
+    scheduler.add(2);
+    scheduler.add(1);
+
+    assertThat(scheduler.size(), is(2));
+    assertThat(scheduler.take(), is(1));
+    assertThat(scheduler.take(), is(2));
+  }
+
+  @Test
+  public void takeOldestReturnsLowestIdAndReschedulesIt() throws InterruptedException {
+    scheduler.add(5);
+    scheduler.add(2);
+    scheduler.add(7);
+
+    assertThat(scheduler.takeOldest(), is(2));
+    assertThat(scheduler.take(), is(5));
+    assertThat(scheduler.take(), is(7));
+    assertThat(scheduler.take(), is(2));
+  }
+
+  @Test
+  public void takeFirstMatchingKeepsTheOrderOfSkippedStates() throws InterruptedException {
+    scheduler.add(1);
+    scheduler.add(2);
+    scheduler.add(3);
+
+    assertThat(scheduler.takeFirstMatching(id -> id % 2 == 0), is(2));
+    assertThat(scheduler.takeFirstMatching(id -> id > 3), is(nullValue()));
+    assertThat(scheduler.take(), is(1));
+    assertThat(scheduler.take(), is(3));
+    assertThat(scheduler.take(), is(2));
+  }
+
+  @Test
+  public void takeCheapestPrefersLowestCostAndThenScheduleOrder() throws InterruptedException {
+    scheduler.add(4);
+    scheduler.add(1);
+    scheduler.add(3);
+    scheduler.add(2);
+
+    assertThat(scheduler.takeCheapest(id -> id % 2, 4), is(4));
+    assertThat(scheduler.takeCheapest(id -> id % 2, 4), is(2));
+    assertThat(scheduler.takeCheapest(id -> 1, 4), is(1));
+    assertThat(scheduler.take(), is(3));
+  }
+
+  @Test
+  public void takeCheapestOnlyScoresTheHeadOfTheSchedule() throws InterruptedException {
+    scheduler.add(3);
+    scheduler.add(2);
+    scheduler.add(1);
+
+    assertThat(scheduler.takeCheapest(id -> id, 2), is(2));
+    assertThat(scheduler.take(), is(3));
+    assertThat(scheduler.take(), is(1));
+  }
+
+  @Test
+  public void takeIfScheduledPutsTheStateAtTheEnd() throws InterruptedException {
+    scheduler.add(1);
+    scheduler.add(2);
+
+    assertThat(scheduler.takeIfScheduled(1), is(true));
+    assertThat(scheduler.takeIfScheduled(3), is(false));
+    assertThat(scheduler.take(), is(2));
+    assertThat(scheduler.take(), is(1));
+  }
+
+  @Test
+  public void removedStatesAreNotTaken() throws InterruptedException {
+    scheduler.add(1);
+    scheduler.add(2);
+    scheduler.add(3);
+
+    assertThat(scheduler.remove(2), is(true));
+    assertThat(scheduler.remove(2), is(false));
+
+    assertThat(scheduler.contains(2), is(false));
+    assertThat(scheduler.getStateIds(), containsInAnyOrder(1, 3));
+    assertThat(scheduler.take(), is(1));
+    assertThat(scheduler.take(), is(3));
+
+    scheduler.remove(1);
+    scheduler.remove(3);
+    assertThat(scheduler.isEmpty(), is(true));
+  }
+
+  @Test
+  public void takeBlocksUntilAStateIsAdded() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Integer> taken = executor.submit(scheduler::take);
+      Thread.sleep(100);
+      assertThat(taken.isDone(), is(false));
+
+      scheduler.add(4);
+      assertThat(taken.get(5, TimeUnit.SECONDS), is(4));
+      assertThat(scheduler.getStateIds(), contains(4));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
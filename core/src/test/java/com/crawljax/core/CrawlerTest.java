@@ -7,6 +7,7 @@ import static org.mockito.Mockito.when;
 
 import com.codahale.metrics.MetricRegistry;
 import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
 import com.crawljax.condition.browserwaiter.WaitConditionChecker;
 import com.crawljax.core.configuration.CrawljaxConfiguration;
 import com.crawljax.core.plugin.Plugins;
@@ -143,7 +144,7 @@ public class CrawlerTest {
         new MetricRegistry());
     crawler = new Crawler(context, config, stateComparator, candidateActionCache,
         formHandlerFactory, null, waitConditionChecker, elementExtractor, graphProvider,
-        plugins, new DefaultStateVertexFactory());
+        plugins, new DefaultStateVertexFactory(), new StateSnapshots(new MetricRegistry()));
 
     when(candidateActionCache.pollActionOrNull(index)).thenReturn(null);
     when(candidateActionCache.getInput(Mockito.any())).thenReturn(null);
@@ -178,6 +179,8 @@ public class CrawlerTest {
 
     when(graph.newStateFor(Mockito.any(), anyString(), anyString(), Mockito.any())).thenReturn(
         index, index, index, index, target);
+    when(graph.newStateFor(Mockito.any(PageCapture.class), anyString())).thenReturn(
+        index, index, index, index, target);
   }
 
   private void setStateMachineForConfig(CrawljaxConfiguration config) {
@@ -0,0 +1,130 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+import com.crawljax.core.configuration.BrowserConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
+import com.crawljax.core.state.StateFlowGraph;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexImpl;
+import com.crawljax.metrics.MetricsModule;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalityAwareSchedulingTest {
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private final StateFlowGraph graph = mock(StateFlowGraph.class);
+  private final StateVertex index = state(0);
+  private final StateVertex near = state(1);
+  private final StateVertex far = state(2);
+  private final StateVertex unreachable = state(3);
+  private final List<StateVertex> onURLSet = Collections.singletonList(index);
+
+  private UnfiredFragmentCandidates candidates;
+  private ExecutorService otherConsumer;
+
+  @Before
+  public void setup() {
+    CrawljaxConfigurationBuilder builder = CrawljaxConfiguration.builderFor("http://example.com")
+        .setBrowserConfig(new BrowserConfiguration(BrowserType.FIREFOX, 2));
+    builder.crawlRules().setLocalityAwareScheduling(true);
+    CrawljaxConfiguration config = builder.build();
+
+    @SuppressWarnings("unchecked")
+    Provider<StateFlowGraph> graphProvider = mock(Provider.class);
+    when(graphProvider.get()).thenReturn(graph);
+    for (StateVertex state : new StateVertex[] {index, near, far, unreachable}) {
+      when(graph.getById(state.getId())).thenReturn(state);
+    }
+    when(graph.getDistance(any(StateVertex.class), any(StateVertex.class))).thenReturn(-1);
+    when(graph.getDistance(index, near)).thenReturn(1);
+    when(graph.getDistance(index, far)).thenReturn(4);
+
+    candidates = new UnfiredFragmentCandidates(config.getBrowserConfig(), graphProvider,
+        registry, config.getCrawlRules());
+    otherConsumer = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void shutdown() {
+    otherConsumer.shutdownNow();
+  }
+
+  @Test
+  public void consumerKeepsCrawlingTheStateItIsAt() throws InterruptedException {
+    addActions(near, far);
+
+    assertThat(candidates.awaitNewTask(far, onURLSet, null), is(far));
+    assertThat(count("tasks_on_current_state"), is(1L));
+  }
+
+  @Test
+  public void consumerTakesTheStateWithTheShortestReplay() throws InterruptedException {
+    addActions(unreachable, far, near);
+
+    assertThat(candidates.awaitNewTask(index, onURLSet, null), is(near));
+    assertThat(count("tasks_on_current_state"), is(0L));
+  }
+
+  @Test
+  public void idleConsumerStealsTheStateOfAnotherConsumer() throws Exception {
+    addActions(near);
+
+    StateVertex taken = otherConsumer.submit(() -> candidates.awaitNewTask(near, onURLSet, null))
+        .get(10, TimeUnit.SECONDS);
+    assertThat(taken, is(near));
+
+    addActions(far);
+    assertThat(candidates.awaitNewTask(index, onURLSet, null), is(far));
+    assertThat(count("tasks_stolen"), is(0L));
+
+    candidates.purgeActionsForState(far);
+    assertThat(candidates.awaitNewTask(index, onURLSet, null), is(near));
+    assertThat(count("tasks_stolen"), is(1L));
+  }
+
+  @Test
+  public void stoppedConsumerNoLongerHoldsItsState() throws Exception {
+    addActions(near);
+
+    otherConsumer.submit(() -> {
+      candidates.awaitNewTask(near, onURLSet, null);
+      candidates.removeConsumer();
+      return null;
+    }).get(10, TimeUnit.SECONDS);
+
+    addActions(far);
+    assertThat(candidates.awaitNewTask(index, onURLSet, null), is(near));
+    assertThat(count("tasks_stolen"), is(0L));
+  }
+
+  private void addActions(StateVertex... states) {
+    for (StateVertex state : states) {
+      candidates.addActions(Collections.singletonList(mock(CandidateCrawlAction.class)), state);
+    }
+  }
+
+  private long count(String event) {
+    return registry.counter(MetricsModule.EVENTS_PREFIX + event).getCount();
+  }
+
+  private static StateVertex state(int id) {
+    String dom = "<div>state" + id + "</div>";
+    return new StateVertexImpl(id, "http://example.com", "state" + id, dom, dom);
+  }
+}
@@ -0,0 +1,215 @@
+package com.crawljax.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.browser.EmbeddedBrowser.BrowserType;
+import com.crawljax.core.configuration.BrowserConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.state.StateFlowGraph;
+import com.crawljax.core.state.StateMachine;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexImpl;
+import com.crawljax.fragmentation.FragmentManager;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.inject.Provider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Polls, adds, purges and restores actions from many threads at once and checks that every action
+ * is handed out exactly once, both for plain states and for the prioritized polling of hybrid
+ * states.
+ */
+public class UnfiredFragmentCandidatesConcurrencyTest {
+
+  private static final int THREADS = 16;
+  private static final int STATES = 64;
+  private static final int ACTIONS_PER_BATCH = 25;
+  private static final int BATCHES_PER_STATE = 4;
+
+  private UnfiredFragmentCandidates candidates;
+  private List<StateVertex> states;
+  private ExecutorService executor;
+
+  private final Set<CandidateCrawlAction> polled = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger duplicatePolls = new AtomicInteger();
+
+  @Before
+  public void setup() {
+    CrawljaxConfiguration config = CrawljaxConfiguration.builderFor("http://example.com")
+        .setBrowserConfig(new BrowserConfiguration(BrowserType.FIREFOX, THREADS))
+        .build();
+    @SuppressWarnings("unchecked")
+    Provider<StateFlowGraph> graphProvider = mock(Provider.class);
+    candidates = new UnfiredFragmentCandidates(config.getBrowserConfig(), graphProvider,
+        new MetricRegistry(), config.getCrawlRules());
+
+    states = new ArrayList<>(STATES);
+    for (int i = 0; i < STATES; i++) {
+      states.add(new StateVertexImpl(i, "http://example.com", "state" + i, "", ""));
+    }
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentAddsAndPollsHandOutEveryActionOnce() throws Exception {
+    assertConcurrentAddsAndPollsHandOutEveryActionOnce(candidates::pollActionOrNull);
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentAddsAndHybridPollsHandOutEveryActionOnce() throws Exception {
+    FragmentManager fragmentManager = mock(FragmentManager.class);
+    when(fragmentManager.calculateCandidateInfluence(any(CandidateElement.class)))
+        .thenReturn(1.0);
+    when(fragmentManager.calculateDuplicationFactor(any(CandidateElement.class),
+        any(StateVertex.class))).thenReturn(1.0);
+    Map<Integer, StateMachine> stateMachines = new HashMap<>();
+    for (int i = 0; i < STATES; i++) {
+      HybridStateVertexImpl state = mock(HybridStateVertexImpl.class);
+      when(state.getId()).thenReturn(i);
+      StateMachine stateMachine = mock(StateMachine.class);
+      when(stateMachine.getCurrentState()).thenReturn(state);
+      states.set(i, state);
+      stateMachines.put(i, stateMachine);
+    }
+
+    assertConcurrentAddsAndPollsHandOutEveryActionOnce(state -> candidates.pollActionOrNull(
+        stateMachines.get(state.getId()), fragmentManager, null, false));
+  }
+
+  private void assertConcurrentAddsAndPollsHandOutEveryActionOnce(
+      Function<StateVertex, CandidateCrawlAction> poller) throws Exception {
+    int producers = THREADS / 2;
+    CountDownLatch producersDone = new CountDownLatch(producers);
+    AtomicInteger added = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      futures.add(executor.submit(() -> {
+        try {
+          for (int batch = 0; batch < BATCHES_PER_STATE; batch++) {
+            for (int i = producer; i < STATES; i += producers) {
+              candidates.addActions(mockActions(ACTIONS_PER_BATCH), states.get(i));
+              added.addAndGet(ACTIONS_PER_BATCH);
+            }
+          }
+        } finally {
+          producersDone.countDown();
+        }
+      }));
+    }
+    for (int c = producers; c < THREADS; c++) {
+      futures.add(executor.submit(() -> {
+        while (producersDone.getCount() > 0 || !candidates.isEmpty()) {
+          poll(states.get(ThreadLocalRandom.current().nextInt(STATES)), poller);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(50, TimeUnit.SECONDS);
+    }
+
+    assertThat(duplicatePolls.get(), is(0));
+    assertThat(polled.size(), is(added.get()));
+    assertThat(candidates.isEmpty(), is(true));
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentPurgesAndRestoresLoseNoActions() throws Exception {
+    int total = 0;
+    for (StateVertex state : states) {
+      candidates.addActions(mockActions(ACTIONS_PER_BATCH * BATCHES_PER_STATE), state);
+      total += ACTIONS_PER_BATCH * BATCHES_PER_STATE;
+    }
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 2_000; i++) {
+          StateVertex state = states.get(ThreadLocalRandom.current().nextInt(STATES));
+          switch (ThreadLocalRandom.current().nextInt(3)) {
+            case 0:
+              candidates.purgeActionsForState(state);
+              break;
+            case 1:
+              candidates.rediscoveredState(state);
+              break;
+            default:
+              pollRandomState();
+              break;
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(50, TimeUnit.SECONDS);
+    }
+
+    for (StateVertex state : states) {
+      candidates.rediscoveredState(state);
+      while (poll(state)) {
+        // drain the state
+      }
+    }
+
+    assertThat(duplicatePolls.get(), is(0));
+    assertThat(polled.size(), is(total));
+    assertThat(candidates.isEmpty(), is(true));
+  }
+
+  private void pollRandomState() {
+    poll(states.get(ThreadLocalRandom.current().nextInt(STATES)));
+  }
+
+  private boolean poll(StateVertex state) {
+    return poll(state, candidates::pollActionOrNull);
+  }
+
+  private boolean poll(StateVertex state, Function<StateVertex, CandidateCrawlAction> poller) {
+    CandidateCrawlAction action = poller.apply(state);
+    if (action == null) {
+      return false;
+    }
+    if (!polled.add(action)) {
+      duplicatePolls.incrementAndGet();
+    }
+    return true;
+  }
+
+  private static List<CandidateCrawlAction> mockActions(int size) {
+    CandidateElement element = mock(CandidateElement.class);
+    List<CandidateCrawlAction> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      CandidateCrawlAction action = mock(CandidateCrawlAction.class);
+      when(action.getCandidateElement()).thenReturn(element);
+      list.add(action);
+    }
+    return list;
+  }
+}
@@ -0,0 +1,143 @@
+package com.crawljax.core.state;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.crawljax.core.ExitNotifier;
+import com.crawljax.core.state.Eventable.EventType;
+import com.crawljax.core.state.Identification.How;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
+import org.jgrapht.graph.DirectedPseudograph;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShortestPathsTest {
+
+  private InMemoryStateFlowGraph graph;
+  private List<StateVertex> states;
+  private int edgeCounter;
+
+  @Before
+  public void setup() {
+    graph = new InMemoryStateFlowGraph(new ExitNotifier(0), new DefaultStateVertexFactory());
+    states = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      StateVertex state = new StateVertexImpl(i, "state" + i, "<div>state" + i + "</div>");
+      states.add(state);
+      if (i == StateVertex.INDEX_ID) {
+        graph.putIndex(state);
+      } else {
+        graph.putIfAbsent(state);
+      }
+    }
+  }
+
+  @Test
+  public void addedEdgeShortensCachedPath() {
+    addEdge(0, 1);
+    addEdge(1, 2);
+    addEdge(2, 3);
+    assertThat(graph.getDistance(state(0), state(3)), is(3));
+
+    Eventable shortcut = addEdge(0, 3);
+
+    assertThat(graph.getDistance(state(0), state(3)), is(1));
+    assertThat(graph.getShortestPath(state(0), state(3)), is(ImmutableList.of(shortcut)));
+  }
+
+  @Test
+  public void addedEdgeShortensPathsBeyondIt() {
+    addEdge(0, 1);
+    addEdge(1, 2);
+    addEdge(2, 3);
+    addEdge(3, 4);
+    assertThat(graph.getDistance(state(0), state(4)), is(4));
+
+    addEdge(0, 2);
+
+    assertThat(graph.getDistance(state(0), state(3)), is(2));
+    assertThat(graph.getDistance(state(0), state(4)), is(3));
+  }
+
+  @Test
+  public void removedEdgeReroutesCachedPath() {
+    Eventable first = addEdge(0, 1);
+    addEdge(1, 2);
+    addEdge(0, 3);
+    addEdge(3, 4);
+    addEdge(4, 2);
+    assertThat(graph.getDistance(state(0), state(2)), is(2));
+
+    graph.removeEdge(first);
+
+    assertThat(graph.getDistance(state(0), state(2)), is(3));
+    assertThat(graph.getDistance(state(0), state(1)), is(-1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unreachableStateHasNoPath() {
+    addEdge(0, 1);
+    graph.getShortestPath(state(0), state(2));
+  }
+
+  @Test
+  public void removedAndRestoredStatesUpdateCachedPaths() {
+    addEdge(0, 1);
+    addEdge(1, 2);
+    assertThat(graph.getDistance(state(0), state(2)), is(2));
+
+    graph.removeState(state(1));
+    assertThat(graph.getDistance(state(0), state(2)), is(-1));
+
+    graph.restoreState(state(1));
+    assertThat(graph.getDistance(state(0), state(2)), is(2));
+  }
+
+  @Test
+  public void cachedDistancesMatchDijkstraAfterRandomUpdates() {
+    DirectedPseudograph<StateVertex, Eventable> expected =
+        new DirectedPseudograph<>(Eventable.class);
+    states.forEach(expected::addVertex);
+    List<Eventable> edges = new ArrayList<>();
+    Random random = new Random(42);
+
+    for (int round = 0; round < 200; round++) {
+      if (edges.isEmpty() || random.nextInt(3) > 0) {
+        int source = random.nextInt(states.size());
+        int target = random.nextInt(states.size());
+        Eventable edge = addEdge(source, target);
+        expected.addEdge(state(source), state(target), edge);
+        edges.add(edge);
+      } else {
+        Eventable edge = edges.remove(random.nextInt(edges.size()));
+        graph.removeEdge(edge);
+        expected.removeEdge(edge);
+      }
+
+      for (StateVertex start : states) {
+        for (StateVertex end : states) {
+          GraphPath<StateVertex, Eventable> path =
+              DijkstraShortestPath.findPathBetween(expected, start, end);
+          int distance = path == null ? -1 : path.getLength();
+          assertThat(graph.getDistance(start, end), is(distance));
+        }
+      }
+    }
+  }
+
+  private StateVertex state(int id) {
+    return states.get(id);
+  }
+
+  private Eventable addEdge(int source, int target) {
+    Eventable edge = new Eventable(new Identification(How.xpath, "/body/a[" + edgeCounter++ + "]"),
+        EventType.click);
+    graph.addEdge(state(source), state(target), edge);
+    return edge;
+  }
+}
@@ -0,0 +1,74 @@
+package com.crawljax.core.state;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class VantagePointTreeIndexTest {
+
+  @Test
+  public void emptyIndexHasNoNearestState() {
+    assertThat(new VantagePointTreeIndex().findNearest(point(0, 0, 0)), is(nullValue()));
+  }
+
+  @Test
+  public void treeReturnsSameNearestStateAsScan() {
+    Random random = new Random(42);
+    NearestStateIndex scan = new LinearNearestStateIndex();
+    NearestStateIndex tree = new VantagePointTreeIndex();
+    for (int i = 0; i < 500; i++) {
+      StateVertex query = point(i, random.nextInt(50), random.nextInt(50));
+      NearestStateIndex.Neighbour expected = scan.findNearest(query);
+      NearestStateIndex.Neighbour actual = tree.findNearest(query);
+      if (expected == null) {
+        assertThat(actual, is(nullValue()));
+      } else {
+        assertThat(actual.getState(), is(expected.getState()));
+        assertThat(actual.getDistance(), is(expected.getDistance()));
+      }
+      scan.add(query);
+      tree.add(query);
+    }
+  }
+
+  private static StateVertex point(int id, int x, int y) {
+    return new PointStateVertex(id, x, y);
+  }
+
+  /**
+   * A state positioned on a grid with the Manhattan distance as metric. The integer coordinates
+   * make sure there are plenty of ties.
+   */
+  private static class PointStateVertex extends StateVertexImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int x;
+    private final int y;
+
+    PointStateVertex(int id, int x, int y) {
+      super(id, "state" + id, x + "," + y);
+      this.x = x;
+      this.y = y;
+    }
+
+    @Override
+    public double getDist(StateVertex vertexOfGraph) {
+      PointStateVertex that = (PointStateVertex) vertexOfGraph;
+      return Math.abs(x - that.x) + Math.abs(y - that.y);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return this == object;
+    }
+
+    @Override
+    public int hashCode() {
+      return getId();
+    }
+  }
+}
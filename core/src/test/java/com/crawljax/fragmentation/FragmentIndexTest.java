@@ -0,0 +1,133 @@
+package com.crawljax.fragmentation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+import com.crawljax.fragmentation.Fragment.FragmentComparision;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.crawljax.util.DomUtils;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class FragmentIndexTest {
+
+  private static final String[] STATES = {"296", "297", "652", "653"};
+
+  @Test
+  public void indexedComparisonMatchesExhaustiveComparison() throws IOException {
+    assertMatchesExhaustiveComparison(load(false, false, false, false));
+  }
+
+  @Test
+  public void indexedComparisonWithVisualDataMatchesExhaustiveComparison() throws IOException {
+    assertMatchesExhaustiveComparison(load(true, true, true, true));
+  }
+
+  @Test
+  public void indexedComparisonOfMixedStatesMatchesExhaustiveComparison() throws IOException {
+    assertMatchesExhaustiveComparison(load(true, false, false, true));
+  }
+
+  @Test
+  public void fragmentsWithAnotherTreeAreNotCompared() throws IOException {
+    List<Fragment> fragments = load(false, false, false, false);
+    FragmentIndex index = new FragmentIndex();
+    long candidates = 0;
+    for (Fragment fragment : fragments) {
+      FragmentIndex.Signature signature = FragmentIndex.sign(fragment);
+      candidates += index.getCandidates(signature).size();
+      index.add(fragment, signature);
+    }
+
+    long pairs = (long) fragments.size() * (fragments.size() - 1) / 2;
+    assertThat(candidates, lessThan(pairs));
+  }
+
+  /**
+   * Loads the fragmented test states into a fragment manager.
+   *
+   * @param visualData whether each state has visual data.
+   * @return the fragments in the order they were added.
+   */
+  private static List<Fragment> load(boolean... visualData) throws IOException {
+    FragmentManager manager = new FragmentManager(null);
+    List<Fragment> fragments = new ArrayList<>();
+    for (int i = 0; i < STATES.length; i++) {
+      String dom = FileUtils.readFileToString(
+          new File("src/test/resources/crawls/frag_state" + STATES[i] + ".html"));
+      HybridStateVertexImpl state = new HybridStateVertexImpl(i, "", "state" + STATES[i], dom,
+          dom, 0.0, visualData[i]);
+      FragmentationPlugin.loadFragmentState(state, manager, DomUtils.asDocument(dom),
+          ImageIO.read(new File("src/test/resources/crawls/state" + STATES[i] + ".png")));
+      fragments.addAll(state.getFragments());
+    }
+    return fragments;
+  }
+
+  /**
+   * Compares every fragment with all unique fragments before it, the way the fragment manager
+   * did before it had an index, and checks the manager linked the same fragments.
+   */
+  private static void assertMatchesExhaustiveComparison(List<Fragment> fragments) {
+    List<Fragment> unique = new ArrayList<>();
+    Map<Fragment, List<Fragment>> duplicates = new IdentityHashMap<>();
+    Map<Fragment, List<Fragment>> equivalents = new IdentityHashMap<>();
+    for (Fragment fragment : fragments) {
+      Fragment equal = null;
+      List<Fragment> equivalent = new ArrayList<>();
+      for (Fragment existing : unique) {
+        FragmentComparision comparision = compare(existing, fragment);
+        if (comparision == FragmentComparision.EQUAL) {
+          equal = existing;
+          break;
+        } else if (comparision == FragmentComparision.EQUIVALENT) {
+          equivalent.add(existing);
+        }
+      }
+      if (equal != null) {
+        link(duplicates, equal, fragment);
+        link(duplicates, fragment, equal);
+        assertThat(fragment.isGlobal(), is(false));
+        continue;
+      }
+      unique.add(fragment);
+      for (Fragment existing : equivalent) {
+        link(equivalents, existing, fragment);
+        link(equivalents, fragment, existing);
+      }
+      assertThat(fragment.isGlobal(), is(true));
+    }
+
+    for (Fragment fragment : fragments) {
+      assertThat(fragment.getDuplicateFragments(),
+          is(duplicates.getOrDefault(fragment, Collections.emptyList())));
+      assertThat(fragment.getEquivalentFragments(),
+          is(equivalents.getOrDefault(fragment, Collections.emptyList())));
+    }
+  }
+
+  private static FragmentComparision compare(Fragment existing, Fragment fragment) {
+    try {
+      return FragmentationPlugin.COMPARE_FAST ? existing.compareFast(fragment)
+          : existing.compare(fragment);
+    } catch (RuntimeException e) {
+      return FragmentComparision.DIFFERENT;
+    }
+  }
+
+  private static void link(Map<Fragment, List<Fragment>> links, Fragment from, Fragment to) {
+    List<Fragment> linked = links.computeIfAbsent(from, fragment -> new ArrayList<>());
+    if (!linked.contains(to)) {
+      linked.add(to);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.crawljax.fragmentation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.crawljax.core.state.InMemoryStateFlowGraph;
+import com.crawljax.core.state.StatePair;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexImpl;
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl;
+import com.crawljax.util.DomUtils;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+public class FragmentManagerTest {
+
+  private static final String[] STORED_STATES = {"296", "297", "652", "653"};
+
+  private FragmentManager fragmentManager;
+
+  @Before
+  public void setup() {
+    fragmentManager = new FragmentManager(null);
+  }
+
+  @Test
+  public void seenStateCountsSelectionsOfOtherStates() {
+    StateVertex index = state(0);
+    StateVertex first = state(1);
+    StateVertex second = state(2);
+
+    fragmentManager.seenState(index);
+    fragmentManager.seenState(first);
+    fragmentManager.seenState(first);
+    fragmentManager.seenState(second);
+
+    assertThat(fragmentManager.getNumNonSelections(index.getId()), is(3.0));
+    assertThat(fragmentManager.getNumNonSelections(first.getId()), is(1.0));
+    assertThat(fragmentManager.getNumNonSelections(second.getId()), is(0.0));
+
+    fragmentManager.seenState(index);
+
+    assertThat(fragmentManager.getNumNonSelections(index.getId()), is(0.0));
+    assertThat(fragmentManager.getNumNonSelections(first.getId()), is(2.0));
+    assertThat(fragmentManager.getNumNonSelections(second.getId()), is(1.0));
+  }
+
+  @Test
+  public void unseenStatesAreNotCounted() {
+    fragmentManager.seenState(state(0));
+    assertThat(fragmentManager.getNumNonSelections(1), is(0.0));
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentSelectionsKeepDistinctCounts() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        StateVertex state = state(t);
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10_000; i++) {
+            fragmentManager.seenState(state);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(50, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Every selection was counted once, so the last selection of every state is distinct.
+    Set<Double> counts = new HashSet<>();
+    for (int t = 0; t < threads; t++) {
+      counts.add(fragmentManager.getNumNonSelections(t));
+    }
+    assertThat(counts.size(), is(threads));
+    assertThat(counts.contains(0.0), is(true));
+  }
+
+  @Test(timeout = 120_000)
+  public void parallelComparisonsMatchSequentialComparisons() throws IOException {
+    FragmentManager sequential = compareStoredStates(1);
+    FragmentManager parallel = compareStoredStates(4);
+
+    int pairs = STORED_STATES.length * (STORED_STATES.length - 1) / 2;
+    assertThat(comparisons(sequential).size(), is(pairs));
+    assertThat(comparisons(parallel), is(comparisons(sequential)));
+    assertThat(nearDuplicates(parallel), is(nearDuplicates(sequential)));
+  }
+
+  /**
+   * Adds the stored hybrid crawl states to a graph one by one, and compares each new state to the
+   * states before it.
+   */
+  private static FragmentManager compareStoredStates(int parallelism) throws IOException {
+    List<StateVertex> states = new ArrayList<>();
+    InMemoryStateFlowGraph graph = mock(InMemoryStateFlowGraph.class);
+    when(graph.getAllStates()).thenAnswer(invocation -> ImmutableSet.copyOf(states));
+    FragmentManager manager = new FragmentManager(() -> graph, parallelism);
+    try {
+      for (String name : STORED_STATES) {
+        String dom = FileUtils.readFileToString(
+            new File("src/test/resources/crawls/frag_state" + name + ".html"));
+        HybridStateVertexImpl state = new HybridStateVertexImpl(states.size(), "",
+            "state" + name, dom, dom, 0.0, false);
+        FragmentationPlugin.loadFragmentState(state, manager, DomUtils.asDocument(dom),
+            ImageIO.read(new File("src/test/resources/crawls/state" + name + ".png")));
+        states.add(state);
+        manager.cacheStateComparisions(state);
+      }
+    } finally {
+      manager.shutdownComparisons();
+    }
+    return manager;
+  }
+
+  /**
+   * @return the cached comparison and the number of changed nodes of every pair of states.
+   */
+  private static Map<String, String> comparisons(FragmentManager manager) {
+    Map<String, String> comparisons = new TreeMap<>();
+    for (StatePair pair : manager.getStateComparisionCache()) {
+      comparisons.put(pair.getState1().getId() + "-" + pair.getState2().getId(),
+          pair.getStateComparision() + " " + size(pair.getState1Nodes()) + "/"
+              + size(pair.getState2Nodes()));
+    }
+    return comparisons;
+  }
+
+  private static int size(List<Node> nodes) {
+    return nodes == null ? -1 : nodes.size();
+  }
+
+  private static Set<Set<Integer>> nearDuplicates(FragmentManager manager) {
+    Set<Set<Integer>> clusters = new HashSet<>();
+    for (Set<StateVertex> cluster : manager.nearDuplicates) {
+      Set<Integer> ids = new HashSet<>();
+      for (StateVertex state : cluster) {
+        ids.add(state.getId());
+      }
+      clusters.add(ids);
+    }
+    return clusters;
+  }
+
+  private static StateVertex state(int id) {
+    return new StateVertexImpl(id, "http://example.com", "state" + id, "", "");
+  }
+}
@@ -0,0 +1,105 @@
+package com.crawljax.fragmentation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.codahale.metrics.MetricRegistry;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexImpl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FragmentationQueueTest {
+
+  private FragmentationQueue queue;
+
+  @Before
+  public void setup() {
+    queue = new FragmentationQueue(2, new MetricRegistry());
+  }
+
+  @After
+  public void shutdown() {
+    queue.shutdown();
+  }
+
+  @Test
+  public void fragmentsAreAddedInTheOrderTheStatesWereFound() {
+    CountDownLatch firstSegmented = new CountDownLatch(1);
+    List<Integer> added = Collections.synchronizedList(new ArrayList<>());
+
+    queue.submit(state(1), () -> await(firstSegmented), () -> added.add(1));
+    queue.submit(state(2), () -> {
+    }, () -> added.add(2));
+    firstSegmented.countDown();
+    queue.await();
+
+    assertThat(added, is(Arrays.asList(1, 2)));
+  }
+
+  @Test
+  public void statesAreSegmentedInParallel() {
+    CountDownLatch bothSegmenting = new CountDownLatch(2);
+
+    queue.submit(state(1), () -> {
+      bothSegmenting.countDown();
+      await(bothSegmenting);
+    }, () -> {
+    });
+    queue.submit(state(2), () -> {
+      bothSegmenting.countDown();
+      await(bothSegmenting);
+    }, () -> {
+    });
+    queue.await();
+
+    assertThat(bothSegmenting.getCount(), is(0L));
+  }
+
+  @Test
+  public void failedStateDoesNotStopTheNextStates() {
+    List<Integer> added = Collections.synchronizedList(new ArrayList<>());
+
+    queue.submit(state(1), () -> {
+      throw new IllegalStateException("segmentation failed");
+    }, () -> added.add(1));
+    queue.submit(state(2), () -> {
+    }, () -> added.add(2));
+    queue.await();
+
+    assertThat(added, is(Arrays.asList(1, 2)));
+  }
+
+  @Test(timeout = 10_000)
+  public void statesSubmittedAfterShutdownAreStillAdded() {
+    List<Integer> added = Collections.synchronizedList(new ArrayList<>());
+    queue.shutdown();
+
+    queue.submit(state(1), () -> {
+    }, () -> added.add(1));
+    queue.await();
+
+    assertThat(added, is(Arrays.asList(1)));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      if (!latch.await(5, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("Timed out");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static StateVertex state(int id) {
+    return new StateVertexImpl(id, "http://example.com", "state" + id, "", "");
+  }
+}
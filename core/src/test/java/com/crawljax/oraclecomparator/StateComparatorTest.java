@@ -0,0 +1,39 @@
+package com.crawljax.oraclecomparator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import com.crawljax.core.configuration.CrawljaxConfiguration;
+import com.crawljax.core.configuration.CrawljaxConfiguration.CrawljaxConfigurationBuilder;
+import com.crawljax.oraclecomparator.comparators.AttributeComparator;
+import com.crawljax.oraclecomparator.comparators.ScriptComparator;
+import com.crawljax.oraclecomparator.comparators.StyleComparator;
+import com.crawljax.oraclecomparator.comparators.XPathExpressionComparator;
+import org.junit.Test;
+
+public class StateComparatorTest {
+
+  private static final String DOM = "<HTML><HEAD><SCRIPT>var a = 1;</SCRIPT></HEAD><BODY>"
+      + "<DIV id=\"ad\">advertisement</DIV>"
+      + "<P align=\"left\" style=\"color: red; display: none\">Hello <B>world</B></P>"
+      + "<A href=\"#\" class=\"x\">link</A><SCRIPT>var b = 2;</SCRIPT></BODY></HTML>";
+
+  @Test
+  public void sharedDocumentGivesSameResultAsSeparateNormalization() {
+    Comparator[] comparators = {new ScriptComparator(), new StyleComparator(),
+        new XPathExpressionComparator("//DIV[@id='ad']"), new AttributeComparator("class"),
+        new ScriptComparator()};
+
+    CrawljaxConfigurationBuilder builder = CrawljaxConfiguration.builderFor("http://localhost");
+    String expected = DOM;
+    for (int i = 0; i < comparators.length; i++) {
+      builder.crawlRules().addOracleComparator(
+          new OracleComparator("comparator" + i, comparators[i]));
+      expected = comparators[i].normalize(expected);
+    }
+    StateComparator stateComparator = new StateComparator(builder.build().getCrawlRules());
+
+    assertThat(stateComparator.getStrippedDom(DOM, null), is(expected));
+  }
+
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
 import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.junit.Before;
 import org.junit.Test;
@@ -80,4 +81,31 @@ public class EditDistanceTest {
 
     assertTrue(arg);
   }
+
+  /**
+   * Check if the bounded edit distance agrees with the full Levenshtein distance.
+   */
+  @Test
+  public void testBoundedLevenshteinDistance() {
+    Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      String x = randomDom(random);
+      String y = randomDom(random);
+      int expected = new LevenshteinDistance().apply(x, y);
+
+      assertEquals(expected, EditDistanceComparator.getLevenshteinDistance(x, y));
+      for (int max = 0; max < 20; max++) {
+        int bounded = EditDistanceComparator.getLevenshteinDistance(x, y, max);
+        assertEquals(expected <= max ? expected : -1, bounded);
+      }
+    }
+  }
+
+  private static String randomDom(Random random) {
+    StringBuilder dom = new StringBuilder("<html><body>");
+    for (int i = random.nextInt(5); i > 0; i--) {
+      dom.append(random.nextBoolean() ? "<div>a</div>" : "<span>b</span>");
+    }
+    return dom.append("</body></html>").toString();
+  }
 }
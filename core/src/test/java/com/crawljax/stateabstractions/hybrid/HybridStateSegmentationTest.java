@@ -0,0 +1,110 @@
+package com.crawljax.stateabstractions.hybrid;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+import com.crawljax.core.CandidateElement;
+import com.crawljax.util.DomUtils;
+import com.crawljax.util.XPathHelper;
+import com.crawljax.vips_selenium.VipsUtils;
+import com.google.common.collect.ImmutableList;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class HybridStateSegmentationTest {
+
+  @Rule
+  public TemporaryFolder outputFolder = new TemporaryFolder();
+
+  private BufferedImage screenshot;
+  private HybridStateVertexImpl index;
+  private HybridStateVertexImpl segmented;
+
+  @Before
+  public void setup() throws IOException {
+    screenshot = ImageIO.read(new File("src/test/resources/crawls/state297.png"));
+    index = state(0, "frag_state296.html");
+    segmented = state(1, "frag_state297.html");
+    segmented.fragmentDom(screenshot, outputFolder.getRoot());
+  }
+
+  @Test(timeout = 60_000)
+  public void comparingStatesWaitsForSegmentationInFlight() throws Exception {
+    HybridStateVertexImpl pending = state(1, "frag_state297.html");
+    Runnable segment = pending.segmentLater(screenshot, outputFolder.getRoot());
+
+    ExecutorService worker = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> segmenting = worker.submit(segment);
+      double distance = index.getDist(pending);
+      boolean equal = index.equals(pending);
+      segmenting.get();
+
+      assertThat(distance, is(index.getDist(segmented)));
+      assertThat(equal, is(index.equals(segmented)));
+      assertThat(pending.getFragments().size(), is(segmented.getFragments().size()));
+    } finally {
+      worker.shutdownNow();
+    }
+  }
+
+  @Test
+  public void readingTheDomSegmentsAPendingState() throws IOException {
+    HybridStateVertexImpl pending = state(1, "frag_state297.html");
+    pending.segmentLater(screenshot, outputFolder.getRoot());
+
+    pending.getDocument();
+
+    assertThat(pending.isFragmented(), is(true));
+    assertThat(pending.getFragments().size(), is(segmented.getFragments().size()));
+  }
+
+  @Test
+  public void candidatesAreExtractedFromACopyAndMovedToTheSegmentedDom() throws IOException {
+    HybridStateVertexImpl pending = state(1, "frag_state297.html");
+    Runnable segment = pending.segmentLater(screenshot, outputFolder.getRoot());
+
+    Document copy = pending.getCandidateDocument();
+    Element body = (Element) copy.getElementsByTagName("BODY").item(0);
+    CandidateElement candidate = new CandidateElement(body,
+        XPathHelper.getXPathExpression(body), ImmutableList.of());
+    pending.setElementsFound(new LinkedList<>(ImmutableList.of(candidate)));
+    assertThat(pending.isFragmented(), is(false));
+
+    segment.run();
+
+    Document dom = pending.getDocument();
+    assertThat(candidate.getElement().getOwnerDocument(), is(sameInstance(dom)));
+    assertThat(pending.getCandidateDocument(), is(sameInstance(dom)));
+    assertThat(pending.getCandidateElement(candidate.getElement()).get(0),
+        is(sameInstance(candidate)));
+  }
+
+  /**
+   * Loads a fragmented DOM of an earlier crawl, without its segmentation.
+   */
+  private static HybridStateVertexImpl state(int id, String file) throws IOException {
+    String dom = FileUtils.readFileToString(new File("src/test/resources/crawls/" + file));
+    HybridStateVertexImpl state =
+        new HybridStateVertexImpl(id, "", "state" + id, dom, dom, 0.0, true);
+    Document document = DomUtils.asDocument(dom);
+    VipsUtils.cleanDom(document, true);
+    VipsUtils.clearSegmentation(document);
+    state.setDocument(document);
+    return state;
+  }
+}
@@ -3,12 +3,14 @@ package com.crawljax.stateabstractions.hybrid;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.crawljax.stateabstractions.hybrid.HybridStateVertexImpl.DomTree;
 import com.crawljax.util.DomUtils;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,12 +49,8 @@ public class TreeDiffParamTest {
 
   @Test
   public void testTreeDiff() throws IOException {
-
-    String docString = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state1));
-    Document doc1 = DomUtils.asDocument(docString);
-
-    String docString2 = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state2));
-    Document doc2 = DomUtils.asDocument(docString2);
+    Document doc1 = readState(state1);
+    Document doc2 = readState(state2);
 
     double compDist = HybridStateVertexImpl.computeDistance(doc1, doc2, false);
     assertEquals(this.distance, compDist, 0.0);
@@ -70,4 +68,23 @@ public class TreeDiffParamTest {
       assertTrue(removedNodes.get(0).getNodeName().equalsIgnoreCase(removedNode));
     }
   }
+
+  @Test
+  public void treeDiffOnAnotherThreadFindsTheSameNodes() throws Exception {
+    Document doc1 = readState(state1);
+    Document doc2 = readState(state2);
+    DomTree tree1 = HybridStateVertexImpl.getDomTree(doc1, false);
+    DomTree tree2 = HybridStateVertexImpl.getDomTree(doc2, false);
+
+    List<int[]> mappings = CompletableFuture
+        .supplyAsync(() -> HybridStateVertexImpl.computeEditMapping(tree1, tree2)).get();
+
+    assertEquals(HybridStateVertexImpl.getChangedNodes(doc1, doc2, false),
+        HybridStateVertexImpl.getChangedNodes(tree1, tree2, mappings, false));
+  }
+
+  private static Document readState(String state) throws IOException {
+    String docString = FileUtils.readFileToString(new File("src/test/resources/crawls/" + state));
+    return DomUtils.asDocument(docString);
+  }
 }
@@ -0,0 +1,53 @@
+package com.crawljax.stateabstractions.visual;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crawljax.browser.EmbeddedBrowser;
+import com.crawljax.browser.PageCapture;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexImpl;
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScreenshotStateVertexFactoryTest {
+
+  @Mock
+  private EmbeddedBrowser browser;
+
+  private BufferedImage used;
+
+  @Test
+  public void stateFromACaptureUsesTheScreenshotOfTheCapture() {
+    BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    when(browser.getCurrentUrl()).thenReturn("http://localhost/");
+    when(browser.getStrippedDom()).thenReturn("<HTML><BODY/></HTML>");
+    when(browser.getScreenShotAsBufferedImage(anyInt())).thenReturn(image);
+    ScreenshotStateVertexFactory factory = new ScreenshotStateVertexFactory() {
+      @Override
+      protected StateVertex createStateVertex(int id, String url, String name, String dom,
+          String strippedDom, BufferedImage screenshot) {
+        used = screenshot;
+        return new StateVertexImpl(id, url, name, dom, strippedDom);
+      }
+    };
+
+    PageCapture capture = PageCapture.of(browser);
+    StateVertex state = factory.newStateVertex(1, "state1", capture, "<HTML><BODY/></HTML>");
+    capture.getScreenshot(1000);
+
+    assertThat(state.getUrl(), is("http://localhost/"));
+    assertThat(used, is(sameInstance(image)));
+    verify(browser, times(1)).getScreenShotAsBufferedImage(anyInt());
+  }
+
+}
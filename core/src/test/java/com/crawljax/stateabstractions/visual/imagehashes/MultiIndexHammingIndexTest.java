@@ -0,0 +1,104 @@
+package com.crawljax.stateabstractions.visual.imagehashes;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertTrue;
+
+import com.crawljax.core.state.LinearNearestStateIndex;
+import com.crawljax.core.state.NearestStateIndex;
+import com.crawljax.core.state.StateVertex;
+import com.crawljax.core.state.StateVertexImpl;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class MultiIndexHammingIndexTest {
+
+  private static final int RADIUS = 3;
+
+  @Test
+  public void findsSameNearestStateAndAllClonesAsScan() {
+    Random random = new Random(42);
+    List<String> prototypes = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      prototypes.add(randomBits(random, 64));
+    }
+
+    NearestStateIndex scan = new LinearNearestStateIndex();
+    NearestStateIndex index = new MultiIndexHammingIndex(RADIUS);
+    List<StateVertex> states = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // Flip a few bits of a prototype, so there are plenty of near duplicates.
+      char[] bits = prototypes.get(random.nextInt(prototypes.size())).toCharArray();
+      for (int flips = random.nextInt(8); flips > 0; flips--) {
+        int bit = random.nextInt(bits.length);
+        bits[bit] = bits[bit] == '0' ? '1' : '0';
+      }
+      StateVertex state = new PackedHashStateVertex(i, new String(bits));
+
+      NearestStateIndex.Neighbour expected = scan.findNearest(state);
+      NearestStateIndex.Neighbour actual = index.findNearest(state);
+      if (expected == null) {
+        assertThat(actual, is(nullValue()));
+      } else {
+        assertThat(actual.getState(), is(expected.getState()));
+        assertThat(actual.getDistance(), is(expected.getDistance()));
+      }
+
+      Collection<StateVertex> candidates = index.findCloneCandidates(state);
+      for (StateVertex other : states) {
+        if (state.getDist(other) <= RADIUS) {
+          assertTrue(candidates.contains(other));
+        }
+      }
+
+      scan.add(state);
+      index.add(state);
+      states.add(state);
+    }
+  }
+
+  private static String randomBits(Random random, int length) {
+    StringBuilder bits = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      bits.append(random.nextBoolean() ? '1' : '0');
+    }
+    return bits.toString();
+  }
+
+  private static class PackedHashStateVertex extends StateVertexImpl
+      implements HammingHashStateVertex {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HammingHash hash;
+
+    PackedHashStateVertex(int id, String bits) {
+      super(id, null, "state" + id, bits, bits);
+      this.hash = HammingHash.fromBitString(bits);
+    }
+
+    @Override
+    public HammingHash getHammingHash() {
+      return hash;
+    }
+
+    @Override
+    public double getDist(StateVertex vertexOfGraph) {
+      return hash.distance(((HammingHashStateVertex) vertexOfGraph).getHammingHash());
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return this == object;
+    }
+
+    @Override
+    public int hashCode() {
+      return getId();
+    }
+  }
+}
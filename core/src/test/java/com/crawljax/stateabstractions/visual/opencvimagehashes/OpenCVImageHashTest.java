@@ -1,10 +1,14 @@
 package com.crawljax.stateabstractions.visual.opencvimagehashes;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import com.crawljax.stateabstractions.visual.imagehashes.AverageImageHash;
 import com.crawljax.stateabstractions.visual.imagehashes.BlockMeanImageHash;
 import com.crawljax.stateabstractions.visual.imagehashes.ColorMomentImageHash;
+import com.crawljax.stateabstractions.visual.imagehashes.HammingHash;
+import com.crawljax.stateabstractions.visual.imagehashes.HammingVisHash;
 import com.crawljax.stateabstractions.visual.imagehashes.MarrHildrethImageHash;
 import com.crawljax.stateabstractions.visual.imagehashes.PerceptualImageHash;
 import com.crawljax.stateabstractions.visual.imagehashes.RadialVarianceImageHash;
@@ -108,4 +112,27 @@ public class OpenCVImageHashTest {
     double diff = visHash.compare(hash1, hash2);
     assertTrue(diff > 0.0);
   }
+
+  @Test
+  public void testPackedHashDistanceEqualsOpenCVDistance() throws IOException {
+    assumeTrue(visHash instanceof HammingVisHash);
+    HammingVisHash hammingVisHash = (HammingVisHash) visHash;
+
+    String[] files = {"/screenshots/bookscene.jpg", "/screenshots/bookobject.jpg",
+        "/screenshots/PetClinicND1.png", "/screenshots/PetClinicND2.png"};
+    for (String file1 : files) {
+      for (String file2 : files) {
+        BufferedImage img1 =
+            ImageIO.read(new File(OpenCVImageHashTest.class.getResource(file1).getPath()));
+        BufferedImage img2 =
+            ImageIO.read(new File(OpenCVImageHashTest.class.getResource(file2).getPath()));
+        Mat hash1 = visHash.getHash(img1);
+        Mat hash2 = visHash.getHash(img2);
+        HammingHash packed1 = HammingHash.fromMat(hash1);
+        HammingHash packed2 = HammingHash.fromMat(hash2);
+        assertEquals(visHash.compare(hash1, hash2), hammingVisHash.compare(packed1, packed2),
+            0.0);
+      }
+    }
+  }
 }
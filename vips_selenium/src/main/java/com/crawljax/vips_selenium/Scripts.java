@@ -82,6 +82,7 @@ public class Scripts {
       "	}\n" +
       "\n" +
       "	returnMap['bgcolor'] = a.bgColor;\n" +
+      "	returnMap['backgroundcolor'] = getComputedStyle(a).backgroundColor;\n" +
       "	returnMap['isdisplayed'] = getDisplayed(a);\n" +
       "	return returnMap;\n" +
       "}";
@@ -166,6 +167,7 @@ public class Scripts {
       "	}\n" +
       "\n" +
       "	returnMap['bgcolor'] = a.bgColor;\n" +
+      "	returnMap['backgroundcolor'] = getComputedStyle(a).backgroundColor;\n" +
       "	returnMap['isdisplayed'] = getDisplayed(a);\n" +
       "\n" +
       "	if(getEventListeners(a)['click']){\n" +
@@ -5,6 +5,7 @@ import java.awt.Rectangle;
 public class VipsBrowserAttributes {
 
   String bgcolor;
+  String backgroundColor;
   int fontsize;
   int fontweight;
   Rectangle rectangle;
@@ -13,7 +14,17 @@ public class VipsBrowserAttributes {
 
   public VipsBrowserAttributes(Rectangle rect, int fontSize, int fontWeight, String bgColor,
       boolean isDisplayed2, String eventListeners) {
+    this(rect, fontSize, fontWeight, bgColor, bgColor, isDisplayed2, eventListeners);
+  }
+
+  /**
+   * @param backgroundColor the computed background color, where bgColor is the value of the
+   *                        legacy <code>bgcolor</code> attribute.
+   */
+  public VipsBrowserAttributes(Rectangle rect, int fontSize, int fontWeight, String bgColor,
+      String backgroundColor, boolean isDisplayed2, String eventListeners) {
     this.bgcolor = bgColor;
+    this.backgroundColor = backgroundColor;
     this.rectangle = rect;
     this.fontsize = fontSize;
     this.fontweight = fontWeight;
@@ -45,6 +56,14 @@ public class VipsBrowserAttributes {
     this.bgcolor = bgcolor;
   }
 
+  public String getBackgroundColor() {
+    return backgroundColor;
+  }
+
+  public void setBackgroundColor(String backgroundColor) {
+    this.backgroundColor = backgroundColor;
+  }
+
   public int getFontsize() {
     return fontsize;
   }
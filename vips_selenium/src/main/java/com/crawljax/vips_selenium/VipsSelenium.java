@@ -80,6 +80,23 @@ public class VipsSelenium {
     }
   }
 
+  /**
+   * Segments a DOM offline, without a browser. The layout of the page has to be captured in the
+   * DOM before, with {@link VipsUtils#populateStyle}, or the DOM has to be a segmented DOM that was
+   * exported earlier. Elements without a captured layout are treated as not displayed.
+   *
+   * @param dom                the DOM with the captured layout.
+   * @param screenshot         the screenshot of the page.
+   * @param numberOfIterations the number of segmentation rounds.
+   * @param folder             the folder to write the output to.
+   * @param filename           the name of the output files.
+   * @param fragOutput         whether to write the fragments to the folder.
+   */
+  public VipsSelenium(Document dom, BufferedImage screenshot, int numberOfIterations,
+      File folder, String filename, boolean fragOutput) {
+    this(null, dom, screenshot, numberOfIterations, folder, filename, fragOutput, false);
+  }
+
   public VipsSelenium(WebDriver driver, Document dom, BufferedImage screenshot,
       int numberOfIterations, File folder, String filename, boolean fragOutput,
       boolean is_USE_CDP) {
@@ -312,7 +329,8 @@ public class VipsSelenium {
 //		vipsOutput.setOutputFileName(filename);
 
     if (graphicsOutput) {
-      vipsOutput.writeXML(constructor.getVisualStructure(), viewport, url, driver.getTitle());
+      vipsOutput.writeXML(constructor.getVisualStructure(), viewport, url,
+          driver == null ? filename : driver.getTitle());
     }
 
     List<VipsRectangle> rectangles = vipsOutput.exportVisualStructureToImage(
@@ -427,6 +445,9 @@ public class VipsSelenium {
   }
 
   public void cleanup() {
+    if (this.driver == null) {
+      return;
+    }
     this.driver.close();
   }
 }
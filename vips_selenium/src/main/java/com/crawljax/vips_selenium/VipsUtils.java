@@ -11,7 +11,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.imageio.ImageIO;
-import javax.xml.xpath.XPathExpressionException;
 import org.apache.commons.io.FilenameUtils;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
@@ -111,6 +110,33 @@ public class VipsUtils {
     root.normalize();
   }
 
+  /**
+   * Removes the results of an earlier segmentation from a segmented DOM, such as an exported
+   * fragment DOM, and keeps the captured layout. Segmenting the DOM again then gives the same
+   * result as segmenting the page it was captured from.
+   *
+   * @param dom the segmented DOM.
+   */
+  public static void clearSegmentation(Document dom) {
+    clearSegmentation(dom.getDocumentElement());
+  }
+
+  private static void clearSegmentation(Node node) {
+    if (node.hasAttributes()) {
+      for (String attribute : new String[] {ISVISUALBLOCK, ALREADYDIVIDED, ISDIVIDABLE, DOC,
+          VIPSLEVEL, FRAGPARENT}) {
+        if (node.getAttributes().getNamedItem(attribute) != null) {
+          node.getAttributes().removeNamedItem(attribute);
+        }
+      }
+    }
+    for (Node child : getChildren(node)) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        clearSegmentation(child);
+      }
+    }
+  }
+
   private static void removeOfflineAttributes(Node node) {
     if (!node.hasAttributes()) {
       return;
@@ -489,6 +515,13 @@ public class VipsUtils {
       return rect;
     }
 
+    if (driver == null && !vipsBlock.getNodeName().equalsIgnoreCase("text")) {
+      LOG.debug("Cannot find rectangle for {} without a driver", vipsBlock.getNodeName());
+      Rectangle rect = new Rectangle(-1, -1, -1, -1);
+      setRectangle(vipsBlock, rect);
+      return rect;
+    }
+
     if (vipsBlock.getNodeName().equalsIgnoreCase("text")) {
       Rectangle rect = getRectangle(vipsBlock.getParentNode(), driver);
       List<Rectangle> siblingRects = new ArrayList<>();
@@ -580,6 +613,9 @@ public class VipsUtils {
       return Integer.parseInt(propertyValue);
     }
 
+    if (driver == null) {
+      return 0;
+    }
     String xpath = XPathHelper.getXPathExpression(vipsBlock);
     WebElement element = driver.findElement(By.xpath(xpath));
     String propertyValue = element.getCssValue("fontSize");
@@ -845,26 +881,34 @@ public class VipsUtils {
    */
   public static List<String> getXpathList(Node node) {
     List<String> returnList = new ArrayList<String>();
-//		if(node.getNodeName().equalsIgnoreCase("#text")) {
-//			return returnList;
-//		}
-    if (node.getNodeName().startsWith("#")) {
-      return returnList;
-    }
-    returnList.add(XPathHelper.getXPathExpression(node));
-    List<Node> children = getChildren(node);
-    for (Node child : children) {
-//			if(child.getNodeName().equalsIgnoreCase("#text")) {
-//				continue;
-//			}
-      if (child.getNodeName().startsWith("#")) {
-        continue;
-      }
-      returnList.addAll(getXpathList(child));
+    for (Node element : getElementList(node)) {
+      returnList.add(XPathHelper.getXPathExpression(element));
     }
     return returnList;
   }
 
+  /**
+   * return the node and all its children that are elements, in document order
+   *
+   * @param node
+   * @return
+   */
+  private static List<Node> getElementList(Node node) {
+    List<Node> returnList = new ArrayList<Node>();
+    addElements(node, returnList);
+    return returnList;
+  }
+
+  private static void addElements(Node node, List<Node> returnList) {
+    if (node.getNodeName().startsWith("#")) {
+      return;
+    }
+    returnList.add(node);
+    for (Node child : getChildren(node)) {
+      addElements(child, returnList);
+    }
+  }
+
   public static boolean isPopulated(Document dom) {
     if (dom == null || dom.getDocumentElement() == null) {
       return false;
@@ -895,7 +939,11 @@ public class VipsUtils {
       script = Scripts.VIPS_SCIRPT;
     }
 
-    List<String> xpaths = getXpathList(dom.getElementsByTagName("body").item(0));
+    List<Node> elements = getElementList(dom.getElementsByTagName("body").item(0));
+    List<String> xpaths = new ArrayList<>(elements.size());
+    for (Node element : elements) {
+      xpaths.add(XPathHelper.getXPathExpression(element));
+    }
     LOG.info("Sending {} xpaths", xpaths.size());
     LOG.debug("{}", xpaths);
     Object attributeString = null;
@@ -963,6 +1011,7 @@ public class VipsUtils {
             int fontSize = (int) (long) ((Map) attributes).get(FONTSIZE);
             int fontWeight = (int) (long) ((Map) attributes).get(FONTWEIGHT);
             String bgColor = (String) ((Map) attributes).get(BGCOLOR);
+            Object backgroundColor = ((Map) attributes).get(BACKGROUNDCOLOR.replace("-", ""));
             boolean isDisplayed = (boolean) ((Map) attributes).get(ISDISPLAYED);
             String eventListeners = (String) ((Map) attributes).get("eventListeners");
             LOG.debug("rectangle {}", rectangle);
@@ -970,28 +1019,27 @@ public class VipsUtils {
             LOG.debug("font weight {}", fontWeight);
             LOG.debug("bg color {}", bgColor);
             attributeMap.put(xpath,
-                new VipsBrowserAttributes(rect, fontSize, fontWeight, bgColor, isDisplayed,
-                    eventListeners));
+                new VipsBrowserAttributes(rect, fontSize, fontWeight, bgColor,
+                    backgroundColor instanceof String ? (String) backgroundColor : bgColor,
+                    isDisplayed, eventListeners));
           }
         }
         LOG.debug(elementSheet.toString());
       }
     }
 
-    for (String xpath : xpaths) {
-      try {
-        NodeList nodes = XPathHelper.evaluateXpathExpression(dom, xpath);
-        if (nodes.getLength() == 1) {
-          Node vipsBlock = nodes.item(0);
-          // Apply attributes
-          if (attributeMap.containsKey(xpath)) {
-            setBrowserAttributes(vipsBlock, attributeMap.get(xpath));
-          }
-        }
-      } catch (XPathExpressionException e) {
-        LOG.error("Error while setting browser attribtues to document");
-        LOG.error(e.getMessage());
+    // The xpaths were computed from the elements, so the attributes are applied to them directly
+    // instead of evaluating every xpath on the document again. Elements the browser could not find
+    // get the same attributes a failed lookup in the browser would give them, so segmentation never
+    // goes back to the driver.
+    for (int i = 0; i < elements.size(); i++) {
+      VipsBrowserAttributes browserAttributes = attributeMap.get(xpaths.get(i));
+      if (browserAttributes == null) {
+        LOG.debug("No browser attributes found for {}", xpaths.get(i));
+        browserAttributes = new VipsBrowserAttributes(new Rectangle(-1, -1, -1, -1), 0, 0, null,
+            false, null);
       }
+      setBrowserAttributes(elements.get(i), browserAttributes);
     }
 
     setPopulated(dom);
@@ -1002,7 +1050,7 @@ public class VipsUtils {
     setFontSize(vipsBlock, browserAttributes.getFontsize());
     setFontWeight(vipsBlock, browserAttributes.getFontweight());
     setCssProperty(vipsBlock, BGCOLOR, browserAttributes.getBgcolor());
-    setCssProperty(vipsBlock, BACKGROUNDCOLOR, browserAttributes.bgcolor);
+    setCssProperty(vipsBlock, BACKGROUNDCOLOR, browserAttributes.getBackgroundColor());
     boolean isDisplayed = browserAttributes.isDisplayed() && browserAttributes.rectangle != null &&
         browserAttributes.rectangle.height > 0 && browserAttributes.rectangle.width > 0;
     setIsDisplayed(vipsBlock, isDisplayed ? "true" : "false");
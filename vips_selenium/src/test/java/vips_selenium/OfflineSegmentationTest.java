@@ -0,0 +1,125 @@
+package vips_selenium;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.crawljax.vips_selenium.DomUtils;
+import com.crawljax.vips_selenium.VipsRectangle;
+import com.crawljax.vips_selenium.VipsSelenium;
+import com.crawljax.vips_selenium.VipsUtils;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.w3c.dom.Document;
+
+public class OfflineSegmentationTest {
+
+  private static final String PAGE = "<html><body><div><p>header</p></div>"
+      + "<div><span>content</span></div></body></html>";
+
+  @Rule
+  public TemporaryFolder outputFolder = new TemporaryFolder();
+
+  private WebDriver driver;
+  private BufferedImage screenshot;
+
+  @Before
+  public void setup() throws IOException {
+    driver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+    Document page = DomUtils.asDocument(PAGE);
+    List<Map<String, Object>> layout = new ArrayList<>();
+    int top = 0;
+    for (String xpath : VipsUtils.getXpathList(page.getElementsByTagName("body").item(0))) {
+      if (xpath.toUpperCase().endsWith("BODY[1]")) {
+        layout.add(elementSheet(xpath, new Rectangle(0, 0, 800, 600)));
+      } else {
+        layout.add(elementSheet(xpath, new Rectangle(0, top, 800, 150)));
+        top += 150;
+      }
+    }
+    when(((JavascriptExecutor) driver).executeScript(anyString())).thenReturn(layout);
+    screenshot = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+  }
+
+  @Test
+  public void segmentingCapturedLayoutMatchesSegmentingWithDriver() throws IOException {
+    Document online = DomUtils.asDocument(PAGE);
+    List<VipsRectangle> expected = new VipsSelenium(driver, online, screenshot, 10,
+        outputFolder.getRoot(), "online", false, false).startSegmentation();
+
+    Document offline = DomUtils.asDocument(PAGE);
+    VipsUtils.populateStyle(offline, driver, false);
+    List<VipsRectangle> actual = new VipsSelenium(offline, screenshot, 10,
+        outputFolder.getRoot(), "offline", false).startSegmentation();
+
+    assertNotNull(actual);
+    assertFalse(actual.isEmpty());
+    assertEquals(rects(expected), rects(actual));
+  }
+
+  @Test
+  public void segmentingWithoutLayoutTreatsElementsAsHidden() throws IOException {
+    Document dom = DomUtils.asDocument(PAGE);
+
+    new VipsSelenium(dom, screenshot, 10, outputFolder.getRoot(), "nolayout", false)
+        .startSegmentation();
+
+    assertFalse(VipsUtils.isDisplayed(dom.getElementsByTagName("div").item(0), null));
+    assertEquals(0, VipsUtils.getFontSize(dom.getElementsByTagName("p").item(0), null));
+  }
+
+  @Test
+  public void clearedSegmentationKeepsTheLayout() throws IOException {
+    Document dom = DomUtils.asDocument(PAGE);
+    VipsUtils.populateStyle(dom, driver, false);
+    List<VipsRectangle> first = new VipsSelenium(dom, screenshot, 10, outputFolder.getRoot(),
+        "first", false).startSegmentation();
+
+    VipsUtils.clearSegmentation(dom);
+    List<VipsRectangle> second = new VipsSelenium(dom, screenshot, 10, outputFolder.getRoot(),
+        "second", false).startSegmentation();
+
+    assertEquals(rects(first), rects(second));
+  }
+
+  private static List<Rectangle> rects(List<VipsRectangle> rectangles) {
+    List<Rectangle> rects = new ArrayList<>();
+    for (VipsRectangle rectangle : rectangles) {
+      rects.add(rectangle.getRect());
+    }
+    return rects;
+  }
+
+  private static Map<String, Object> elementSheet(String xpath, Rectangle rect) {
+    Map<String, Object> rectangle = new HashMap<>();
+    rectangle.put("x", (long) rect.x);
+    rectangle.put("y", (long) rect.y);
+    rectangle.put("width", (long) rect.width);
+    rectangle.put("height", (long) rect.height);
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("rectangle", rectangle);
+    attributes.put("fontsize", 16L);
+    attributes.put("fontweight", 400L);
+    attributes.put("backgroundcolor", "rgba(0, 0, 0, 0)");
+    attributes.put("isdisplayed", true);
+    Map<String, Object> elementSheet = new HashMap<>();
+    elementSheet.put("xpath", xpath);
+    elementSheet.put("attributes", attributes);
+    return elementSheet;
+  }
+}
@@ -0,0 +1,88 @@
+package vips_selenium;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.crawljax.vips_selenium.DomUtils;
+import com.crawljax.vips_selenium.VipsUtils;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+public class PopulateStyleTest {
+
+  private WebDriver driver;
+  private Document dom;
+  private Node div;
+  private Node span;
+
+  @Before
+  public void setup() throws IOException {
+    driver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+    dom = DomUtils.asDocument(
+        "<html><body><div><p>text</p></div><span>missing</span></body></html>");
+    div = dom.getElementsByTagName("div").item(0);
+    span = dom.getElementsByTagName("span").item(0);
+  }
+
+  @Test
+  public void layoutIsCapturedInOneScriptCall() {
+    List<String> xpaths = VipsUtils.getXpathList(dom.getElementsByTagName("body").item(0));
+    List<Map<String, Object>> result = new ArrayList<>();
+    for (String xpath : xpaths) {
+      if (!xpath.contains("span")) {
+        result.add(elementSheet(xpath));
+      }
+    }
+    when(((JavascriptExecutor) driver).executeScript(anyString())).thenReturn(result);
+
+    VipsUtils.populateStyle(dom, driver, false);
+
+    assertEquals(new Rectangle(10, 20, 300, 40), VipsUtils.getRectangle(div, driver));
+    assertTrue(VipsUtils.isDisplayed(div, driver));
+    assertEquals(16, VipsUtils.getFontSize(div, driver));
+    assertEquals("rgb(1, 2, 3)", VipsUtils.getBackgroundColor(div, driver));
+    assertEquals(new Rectangle(-1, -1, -1, -1), VipsUtils.getRectangle(span, driver));
+    assertFalse(VipsUtils.isDisplayed(span, driver));
+
+    verify((JavascriptExecutor) driver, times(1)).executeScript(anyString());
+    verify(driver, never()).findElement(any(By.class));
+  }
+
+  private static Map<String, Object> elementSheet(String xpath) {
+    Map<String, Object> rectangle = new HashMap<>();
+    rectangle.put("x", 10L);
+    rectangle.put("y", 20L);
+    rectangle.put("width", 300L);
+    rectangle.put("height", 40L);
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("rectangle", rectangle);
+    attributes.put("fontsize", 16L);
+    attributes.put("fontweight", 400L);
+    attributes.put("backgroundcolor", "rgb(1, 2, 3)");
+    attributes.put("isdisplayed", true);
+    Map<String, Object> elementSheet = new HashMap<>();
+    elementSheet.put("xpath", xpath);
+    elementSheet.put("attributes", attributes);
+    return elementSheet;
+  }
+}